@@ -1,16 +1,79 @@
 package net.techcable.srglib;
 
+import net.techcable.srglib.utils.Hashing;
+
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.function.UnaryOperator;
 
 import static java.util.Objects.*;
 
 /**
  * An array type
+ * <p>
+ * Arrays are stored flat, as their innermost element type and their number of dimensions,
+ * so nested arrays don't need a chain of wrappers.
+ * Instances are canonical for each innermost type instance,
+ * and are cached in the innermost type itself.
+ * </p>
  */
 /* package */ final class ArrayType implements JavaType {
-    private final JavaType elementType;
-    public ArrayType(JavaType elementType) {
-        this.elementType = requireNonNull(elementType);
+    private final JavaType innermostType;
+    private final int dimensions;
+    private final int hashCode;
+    private String internalName, descriptor, name;
+
+    private ArrayType(JavaType innermostType, int dimensions) {
+        assert !(innermostType instanceof ArrayType);
+        assert dimensions > 0;
+        this.innermostType = innermostType;
+        this.dimensions = dimensions;
+        this.hashCode = Hashing.combine(innermostType.hashCode(), dimensions);
+    }
+
+    /**
+     * Return the array of the specified element type, with the specified number of dimensions.
+     * <p>
+     * If the element type is itself an array, its dimensions are added to the result.
+     * </p>
+     *
+     * @param dimensions  the number of dimensions
+     * @param elementType the element type
+     * @return the array type
+     */
+    /* package */ static ArrayType create(int dimensions, JavaType elementType) {
+        requireNonNull(elementType, "Null element type");
+        if (dimensions <= 0) throw new IllegalArgumentException("Invalid dimensions: " + dimensions);
+        if (elementType instanceof ArrayType) {
+            ArrayType arrayType = (ArrayType) elementType;
+            return create(arrayType.dimensions + dimensions, arrayType.innermostType);
+        }
+        ArrayType[] cache;
+        if (elementType instanceof ReferenceType) {
+            cache = ((ReferenceType) elementType).arrayTypes;
+        } else if (elementType instanceof PrimitiveType) {
+            cache = ((PrimitiveType) elementType).arrayTypes;
+        } else {
+            return new ArrayType(elementType, dimensions); // Unknown type, so we can't cache it
+        }
+        ArrayType result;
+        if (cache != null && cache.length >= dimensions && (result = cache[dimensions - 1]) != null) {
+            return result;
+        }
+        result = new ArrayType(elementType, dimensions);
+        /*
+         * Copy on write, so readers always see a consistent array.
+         * Racing writers may lose each other's entries,
+         * which only means an extra instance, since equality is structural.
+         */
+        cache = cache == null ? new ArrayType[Math.max(dimensions, 2)] : Arrays.copyOf(cache, Math.max(cache.length, dimensions));
+        cache[dimensions - 1] = result;
+        if (elementType instanceof ReferenceType) {
+            ((ReferenceType) elementType).arrayTypes = cache;
+        } else {
+            ((PrimitiveType) elementType).arrayTypes = cache;
+        }
+        return result;
     }
 
     /**
@@ -20,7 +83,25 @@ import static java.util.Objects.*;
      */
     @Override
     public JavaType getElementType() {
-        return elementType;
+        return dimensions == 1 ? innermostType : create(dimensions - 1, innermostType);
+    }
+
+    /**
+     * Return the innermost element type of this array, which is never an array.
+     *
+     * @return the innermost element type
+     */
+    /* package */ JavaType getInnermostType() {
+        return innermostType;
+    }
+
+    /**
+     * Return the number of dimensions of this array.
+     *
+     * @return the dimensions
+     */
+    /* package */ int getDimensions() {
+        return dimensions;
     }
 
     @Override
@@ -30,45 +111,67 @@ import static java.util.Objects.*;
 
     @Override
     public String getInternalName() {
-        return elementType.getInternalName() + "[]";
+        String internalName = this.internalName;
+        if (internalName == null) {
+            StringBuilder builder = new StringBuilder(innermostType.getInternalName());
+            for (int i = 0; i < dimensions; i++) {
+                builder.append("[]");
+            }
+            this.internalName = internalName = builder.toString();
+        }
+        return internalName;
     }
 
     @Override
     public String getDescriptor() {
-        return "[" + elementType.getDescriptor();
+        String descriptor = this.descriptor;
+        if (descriptor == null) {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < dimensions; i++) {
+                builder.append('[');
+            }
+            this.descriptor = descriptor = builder.append(innermostType.getDescriptor()).toString();
+        }
+        return descriptor;
     }
 
     @Override
     public String getName() {
-        return elementType.getName() + "[]";
+        String name = this.name;
+        if (name == null) {
+            StringBuilder builder = new StringBuilder(innermostType.getName());
+            for (int i = 0; i < dimensions; i++) {
+                builder.append("[]");
+            }
+            this.name = name = builder.toString();
+        }
+        return name;
+    }
+
+    @Override
+    public void appendDescriptor(Appendable output) throws IOException {
+        String descriptor = this.descriptor;
+        if (descriptor != null) {
+            output.append(descriptor);
+        } else {
+            for (int i = 0; i < dimensions; i++) {
+                output.append('[');
+            }
+            innermostType.appendDescriptor(output);
+        }
     }
 
     @Override
     public JavaType mapClass(UnaryOperator<JavaType> func) {
-        int dimensions = 1;
-        JavaType elementType = this.getElementType();
-        while (elementType.isArrayType()) {
-            elementType = elementType.getElementType();
-            dimensions += 1;
+        JavaType mapped = innermostType.mapClass(func);
+        if (mapped == innermostType || mapped.equals(innermostType)) {
+            return this;
         }
-        return JavaType.createArray(dimensions, elementType.mapClass(func));
+        return create(dimensions, mapped);
     }
 
-    private int hashCode = 0;
     @Override
     public int hashCode() {
-        int hashCode = this.hashCode;
-        if (hashCode == 0) {
-            JavaType innermostType = this.elementType;
-            int dimensions = 1;
-            while (innermostType instanceof ArrayType) {
-                innermostType = ((ArrayType) innermostType).elementType;
-                dimensions++;
-            }
-            hashCode = dimensions + ~innermostType.hashCode();
-            if (hashCode == 0) hashCode = 1; // Make sure it's not zero so we never trigger again
-            this.hashCode = hashCode;
-        }
         return hashCode;
     }
 
@@ -76,8 +179,9 @@ import static java.util.Objects.*;
     public boolean equals(Object obj) {
         return obj == this || obj != null
                 && obj.getClass() == ArrayType.class
-                && obj.hashCode() == this.hashCode()
-                && this.getElementType().equals(((ArrayType) obj).getElementType());
+                && ((ArrayType) obj).hashCode == this.hashCode
+                && ((ArrayType) obj).dimensions == this.dimensions
+                && ((ArrayType) obj).innermostType.equals(this.innermostType);
     }
 
     @Override
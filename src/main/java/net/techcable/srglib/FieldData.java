@@ -1,5 +1,9 @@
 package net.techcable.srglib;
 
+import net.techcable.srglib.utils.Hashing;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
 import java.util.function.UnaryOperator;
 
 import static java.util.Objects.requireNonNull;
@@ -10,6 +14,8 @@ import static java.util.Objects.requireNonNull;
 public final class FieldData {
     private final JavaType declaringType;
     private final String name;
+    @Nullable
+    private String internalName;
 
     private FieldData(JavaType declaringType, String name) {
         this.declaringType = requireNonNull(declaringType, "Null declaring type");
@@ -44,7 +50,22 @@ public final class FieldData {
      * @return the internal name
      */
     public String getInternalName() {
-        return this.declaringType.getInternalName() + "/" + this.name;
+        String internalName = this.internalName;
+        if (internalName == null) {
+            this.internalName = internalName = this.declaringType.getInternalName() + "/" + this.name;
+        }
+        return internalName;
+    }
+
+    /**
+     * Append the internal name of this field to the specified output, without creating a temporary string.
+     *
+     * @param output the output to append to
+     * @throws IOException if an error occurs appending
+     */
+    public void appendInternalName(Appendable output) throws IOException {
+        declaringType.appendInternalName(output);
+        output.append('/').append(name);
     }
 
     public FieldData withName(String name) {
@@ -70,9 +91,17 @@ public final class FieldData {
     }
 
 
+    private int hashCode;
+
     @Override
     public int hashCode() {
-        return declaringType.hashCode() ^ name.hashCode();
+        int hashCode = this.hashCode;
+        if (hashCode == 0) {
+            hashCode = Hashing.combine(declaringType.hashCode(), name.hashCode());
+            if (hashCode == 0) hashCode = 1; // Make sure it's not zero so we never recompute
+            this.hashCode = hashCode;
+        }
+        return hashCode;
     }
 
     @Override
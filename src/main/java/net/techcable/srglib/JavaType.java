@@ -2,6 +2,7 @@ package net.techcable.srglib;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
 
+import java.io.IOException;
 import java.util.Locale;
 import java.util.function.UnaryOperator;
 
@@ -36,6 +37,34 @@ public interface JavaType {
      */
     String getName();
 
+    /**
+     * Append the internal name of this type to the specified output.
+     * <p>
+     * This is equivalent to appending {@link #getInternalName()},
+     * but implementations may avoid creating a temporary string.
+     * </p>
+     *
+     * @param output the output to append to
+     * @throws IOException if an error occurs appending
+     */
+    default void appendInternalName(Appendable output) throws IOException {
+        output.append(getInternalName());
+    }
+
+    /**
+     * Append the bytecode descriptor of this type to the specified output.
+     * <p>
+     * This is equivalent to appending {@link #getDescriptor()},
+     * but implementations may avoid creating a temporary string.
+     * </p>
+     *
+     * @param output the output to append to
+     * @throws IOException if an error occurs appending
+     */
+    default void appendDescriptor(Appendable output) throws IOException {
+        output.append(getDescriptor());
+    }
+
     /**
      * Return the name of this type, with the package removed.
      * <p>
@@ -114,11 +143,7 @@ public interface JavaType {
         requireNonNull(elementType, "Null element type");
         if (dimensions == 0) return elementType;
         if(dimensions < 0) throw new IllegalArgumentException("Negative dimensions: " + dimensions);
-        ArrayType result = new ArrayType(elementType);
-        while (--dimensions > 0) {
-            result = new ArrayType(result); // Keep nesting
-        }
-        return result;
+        return ArrayType.create(dimensions, elementType);
     }
 
     static JavaType createArray(JavaType elementType) {
@@ -136,19 +161,14 @@ public interface JavaType {
     static JavaType fromName(String name) {
         requireNonNull(name, "Null name");
         if (name.endsWith("[]")) {
+            int end = name.length();
             int dimensions = 0;
             do {
                 dimensions += 1;
-                name = name.substring(0, name.length() - 2);
-            } while (name.endsWith("[]"));
-            JavaType elementType = fromName(name);
-            assert !(elementType instanceof ArrayType);
-            ArrayType result;
-            do {
-                result = new ArrayType(elementType);
-                elementType = result;
-            } while (--dimensions > 0);
-            return result;
+                end -= 2;
+            } while (name.startsWith("[]", end - 2));
+            JavaType elementType = fromName(name.substring(0, end));
+            return ArrayType.create(dimensions, elementType);
         }
         try {
             return PrimitiveType.valueOf(name.toUpperCase(Locale.ROOT));
@@ -189,26 +209,29 @@ public interface JavaType {
             case 1:
                 return PrimitiveType.fromDescriptorChar(descriptor.charAt(0));
             default:
-                char firstChar = descriptor.charAt(0);
-                switch (firstChar) {
-                    case '[':
-                        int dimensions = 1;
-                        while (descriptor.charAt(dimensions) == '[') {
-                            dimensions++;
-                        }
-                        return createArray(dimensions, fromDescriptor(descriptor.substring(dimensions)));
-                    case 'L':
-                        if (descriptor.charAt(descriptorLength - 1) == ';') {
-                            char[] internalName = new char[descriptorLength - 2];
-                            descriptor.getChars(1, descriptorLength - 1, internalName, 0); // slice(1, -1)
-                            for (int i = 0; i < internalName.length; i++) {
-                                char c = internalName[i];
-                                if (c == '.') {
-                                    internalName[i] = '/'; // Replace all '.' with '/'
-                                }
-                            }
-                            return fromInternalName(String.valueOf(internalName));
+                // Count the array dimensions in place, instead of recursing on a substring
+                int dimensions = 0;
+                while (dimensions < descriptorLength && descriptor.charAt(dimensions) == '[') {
+                    dimensions++;
+                }
+                JavaType elementType = null;
+                if (descriptorLength - dimensions == 1) {
+                    elementType = PrimitiveType.fromDescriptorChar(descriptor.charAt(dimensions));
+                } else if (descriptorLength - dimensions > 2
+                        && descriptor.charAt(dimensions) == 'L'
+                        && descriptor.charAt(descriptorLength - 1) == ';') {
+                    char[] internalName = new char[descriptorLength - dimensions - 2];
+                    descriptor.getChars(dimensions + 1, descriptorLength - 1, internalName, 0); // slice(dimensions + 1, -1)
+                    for (int i = 0; i < internalName.length; i++) {
+                        char c = internalName[i];
+                        if (c == '.') {
+                            internalName[i] = '/'; // Replace all '.' with '/'
                         }
+                    }
+                    elementType = fromInternalName(String.valueOf(internalName));
+                }
+                if (elementType != null) {
+                    return dimensions == 0 ? elementType : ArrayType.create(dimensions, elementType);
                 }
         }
         throw new IllegalArgumentException("Invalid descriptor: " + descriptor);
@@ -1,5 +1,9 @@
 package net.techcable.srglib;
 
+import net.techcable.srglib.utils.Hashing;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
 import java.util.List;
 import java.util.function.UnaryOperator;
 
@@ -12,6 +16,8 @@ public final class MethodData {
     private final JavaType declaringType;
     private final String name;
     private final MethodSignature signature;
+    @Nullable
+    private String internalName;
 
     private MethodData(JavaType declaringType, String name, MethodSignature signature) {
         this.declaringType = requireNonNull(declaringType, "Null declaring type");
@@ -67,7 +73,22 @@ public final class MethodData {
      * @return the internal name
      */
     public String getInternalName() {
-        return declaringType.getInternalName() + "/" + name;
+        String internalName = this.internalName;
+        if (internalName == null) {
+            this.internalName = internalName = declaringType.getInternalName() + "/" + name;
+        }
+        return internalName;
+    }
+
+    /**
+     * Append the internal name of this method to the specified output, without creating a temporary string.
+     *
+     * @param output the output to append to
+     * @throws IOException if an error occurs appending
+     */
+    public void appendInternalName(Appendable output) throws IOException {
+        declaringType.appendInternalName(output);
+        output.append('/').append(name);
     }
 
     /**
@@ -116,9 +137,17 @@ public final class MethodData {
         return new MethodData(declaringType, name, signature);
     }
 
+    private int hashCode;
+
     @Override
     public int hashCode() {
-        return declaringType.hashCode() ^ name.hashCode() ^ signature.hashCode();
+        int hashCode = this.hashCode;
+        if (hashCode == 0) {
+            hashCode = Hashing.combine(Hashing.combine(declaringType.hashCode(), name.hashCode()), signature.hashCode());
+            if (hashCode == 0) hashCode = 1; // Make sure it's not zero so we never recompute
+            this.hashCode = hashCode;
+        }
+        return hashCode;
     }
 
     @Override
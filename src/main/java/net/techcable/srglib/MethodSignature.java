@@ -1,7 +1,9 @@
 package net.techcable.srglib;
 
+import net.techcable.srglib.utils.Hashing;
 import net.techcable.srglib.utils.ImmutableLists;
 
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.function.UnaryOperator;
@@ -63,6 +65,16 @@ public final class MethodSignature {
         return descriptor;
     }
 
+    /**
+     * Append the bytecode descriptor of this method type to the specified output.
+     *
+     * @param output the output to append to
+     * @throws IOException if an error occurs appending
+     */
+    public void appendDescriptor(Appendable output) throws IOException {
+        output.append(getDescriptor());
+    }
+
     public String toString() {
         return ImmutableLists.joinToString(
                 parameterTypes,
@@ -79,10 +91,13 @@ public final class MethodSignature {
     public int hashCode() {
         int hash = this.hash;
         if (hash == 0) {
-            hash = returnType == PrimitiveType.VOID ? 0 : returnType.hashCode();
-            if (!parameterTypes.isEmpty()) {
-                hash ^= parameterTypes.hashCode();
+            // Combine in order, so swapping parameter types changes the hash
+            hash = returnType.hashCode();
+            for (int i = 0, size = parameterTypes.size(); i < size; i++) {
+                hash = Hashing.combine(hash, parameterTypes.get(i).hashCode());
             }
+            hash = Hashing.mix(hash + parameterTypes.size());
+            if (hash == 0) hash = 1; // Make sure it's not zero so we never recompute
             this.hash = hash;
         }
         return hash;
@@ -3,6 +3,8 @@ package net.techcable.srglib;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
 
+import java.io.IOException;
+import java.util.Locale;
 import java.util.function.UnaryOperator;
 
 /**
@@ -29,12 +31,17 @@ public enum PrimitiveType implements JavaType {
 
     @Override
     public String getDescriptor() {
-        return String.valueOf(descriptorChar);
+        return descriptor;
     }
 
     @Override
     public String getName() {
-        return this.name().toLowerCase();
+        return name;
+    }
+
+    @Override
+    public void appendDescriptor(Appendable output) throws IOException {
+        output.append(descriptorChar);
     }
 
     @Override
@@ -48,8 +55,15 @@ public enum PrimitiveType implements JavaType {
     }
 
     private final char descriptorChar;
+    private final String name, descriptor;
+    /**
+     * The canonical arrays of this type, indexed by their dimensions minus one.
+     */
+    /* package */ ArrayType[] arrayTypes;
     /* private */ PrimitiveType(char descriptorChar) {
         this.descriptorChar = descriptorChar;
+        this.name = this.name().toLowerCase(Locale.ROOT);
+        this.descriptor = String.valueOf(descriptorChar);
     }
 
 
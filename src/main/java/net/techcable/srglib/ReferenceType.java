@@ -1,5 +1,8 @@
 package net.techcable.srglib;
 
+import net.techcable.srglib.utils.Hashing;
+
+import java.io.IOException;
 import java.util.function.UnaryOperator;
 import java.util.regex.Pattern;
 
@@ -10,6 +13,10 @@ import static java.util.Objects.requireNonNull;
  */
 /* package */ final class ReferenceType implements JavaType {
     private final String name, internalName;
+    /**
+     * The canonical arrays of this type, indexed by their dimensions minus one.
+     */
+    /* package */ ArrayType[] arrayTypes;
     private static final Pattern TYPE_NAME_PATTERN = Pattern.compile("([\\w$_]+\\.)*([\\w$_]+)");
     /* package */ ReferenceType(String name) {
         this.name = requireNonNull(name, "Null name");
@@ -34,9 +41,25 @@ import static java.util.Objects.requireNonNull;
         return internalName;
     }
 
+    private String descriptor;
+
     @Override
     public String getDescriptor() {
-        return "L" + internalName + ";";
+        String descriptor = this.descriptor;
+        if (descriptor == null) {
+            this.descriptor = descriptor = "L" + internalName + ";";
+        }
+        return descriptor;
+    }
+
+    @Override
+    public void appendDescriptor(Appendable output) throws IOException {
+        String descriptor = this.descriptor;
+        if (descriptor != null) {
+            output.append(descriptor);
+        } else {
+            output.append('L').append(internalName).append(';');
+        }
     }
 
     @Override
@@ -56,9 +79,18 @@ import static java.util.Objects.requireNonNull;
         return index < 0 ? "" : name.substring(0, index);
     }
 
+    private int hashCode;
+
     @Override
     public int hashCode() {
-        return name.hashCode();
+        int hashCode = this.hashCode;
+        if (hashCode == 0) {
+            // Short obfuscated names have tiny string hashes, so spread them out
+            hashCode = Hashing.mix(name.hashCode());
+            if (hashCode == 0) hashCode = 1; // Make sure it's not zero so we never recompute
+            this.hashCode = hashCode;
+        }
+        return hashCode;
     }
 
     @Override
@@ -6,15 +6,20 @@ import net.techcable.srglib.MethodData;
 import net.techcable.srglib.MethodSignature;
 import net.techcable.srglib.mappings.ImmutableMappings;
 import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.utils.CharSlice;
 import net.techcable.srglib.utils.LineProcessor;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+import static java.util.Objects.requireNonNull;
+
 /* package */ class CompactSrgMappingsFormat implements MappingsFormat {
     public static final CompactSrgMappingsFormat INSTANCE = new CompactSrgMappingsFormat();
 
@@ -23,41 +28,45 @@ import java.util.Map;
         return new SrgLineProcessor();
     }
 
+    @Override
+    public void parse(BufferedReader reader, MappingsVisitor visitor) throws IOException {
+        CompactSrgEventParser parser = new CompactSrgEventParser(requireNonNull(visitor, "Null visitor"), null);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            parser.parseLine(line);
+        }
+    }
+
+    @Override
+    public Mappings parse(BufferedReader reader, MappingsFilter filter) throws IOException {
+        SrgLineProcessor processor = new SrgLineProcessor(requireNonNull(filter, "Null filter"));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            processor.parseLine(line);
+        }
+        return processor.getResult();
+    }
+
     @Override
     public void write(Mappings mappings, Appendable output) throws IOException {
         try {
             mappings.forEachClass((original, renamed) -> {
                 try {
-                    output.append(original.getInternalName());
-                    output.append(' ');
-                    output.append(renamed.getInternalName());
-                    output.append('\n');
+                    writeClass(original, renamed, output);
                 } catch (IOException e) {
                     throw new UncheckedIOException(e);
                 }
             });
             mappings.forEachField((original, renamed) -> {
                 try {
-                    output.append(original.getDeclaringType().getInternalName());
-                    output.append(' ');
-                    output.append(original.getName());
-                    output.append(' ');
-                    output.append(renamed.getName());
-                    output.append('\n');
+                    writeField(original, renamed, output);
                 } catch (IOException e) {
                     throw new UncheckedIOException(e);
                 }
             });
             mappings.forEachMethod((original, renamed) -> {
                 try {
-                    output.append(original.getDeclaringType().getInternalName());
-                    output.append(' ');
-                    output.append(original.getName());
-                    output.append(' ');
-                    output.append(original.getSignature().getDescriptor());
-                    output.append(' ');
-                    output.append(renamed.getName());
-                    output.append('\n');
+                    writeMethod(original, renamed, output);
                 } catch (IOException e) {
                     throw new UncheckedIOException(e);
                 }
@@ -67,47 +76,149 @@ import java.util.Map;
         }
     }
 
-    /* package */ static class SrgLineProcessor implements LineProcessor<Mappings> {
-        private final Map<JavaType, JavaType> types = new LinkedHashMap<>();
-        // We have to queue the methods and fields, since the signatures of the renamed types need to be remapped
-        private final Map<MethodData, String> methods = new LinkedHashMap<>();
-        private final Map<FieldData, String> fields = new LinkedHashMap<>();
+    @Override
+    public void writeSorted(Mappings mappings, Appendable output) throws IOException {
+        SortedMappingsWriter.write(
+                mappings,
+                output,
+                CompactSrgMappingsFormat::writeClass,
+                CompactSrgMappingsFormat::writeField,
+                CompactSrgMappingsFormat::writeMethod
+        );
+    }
 
-        @Override
-        public boolean processLine(@NonNull String line) throws IOException {
-            parseLine(line);
-            return true;
+    private static void writeClass(JavaType original, JavaType renamed, Appendable output) throws IOException {
+        original.appendInternalName(output);
+        output.append(' ');
+        renamed.appendInternalName(output);
+        output.append('\n');
+    }
+
+    private static void writeField(FieldData original, FieldData renamed, Appendable output) throws IOException {
+        original.getDeclaringType().appendInternalName(output);
+        output.append(' ');
+        output.append(original.getName());
+        output.append(' ');
+        output.append(renamed.getName());
+        output.append('\n');
+    }
+
+    private static void writeMethod(MethodData original, MethodData renamed, Appendable output) throws IOException {
+        original.getDeclaringType().appendInternalName(output);
+        output.append(' ');
+        output.append(original.getName());
+        output.append(' ');
+        original.getSignature().appendDescriptor(output);
+        output.append(' ');
+        output.append(renamed.getName());
+        output.append('\n');
+    }
+
+    /**
+     * Parses compact SRG lines into {@link MappingsVisitor} events.
+     */
+    /* package */ static final class CompactSrgEventParser {
+        private final MappingsVisitor visitor;
+        @Nullable
+        private final MappingsFilter filter;
+        private final String[] tokens = new String[4];
+        private final CharSlice owner = new CharSlice();
+
+        /* package */ CompactSrgEventParser(MappingsVisitor visitor, @Nullable MappingsFilter filter) {
+            this.visitor = visitor;
+            this.filter = filter;
         }
 
         public void parseLine(@NonNull String line) {
             line = line.trim(); // Strip whitespace
             if (line.startsWith("#") || line.isEmpty()) return;
-            String[] args = line.split(" ");
-            String originalName, newName;
-            JavaType originalDeclaringType;
-            switch (args.length) {
+            if (filter != null) {
+                // The first token is always the original owner
+                int end = line.indexOf(' ');
+                if (end > 0 && !filter.test(owner.set(line, 0, end))) return;
+            }
+            String[] tokens = this.tokens;
+            switch (LineTokens.split(line, 0, tokens)) {
                 case 2:
-                    JavaType originalType = JavaType.fromInternalName(args[0]);
-                    JavaType renamedType = JavaType.fromInternalName(args[1]);
-                    types.put(originalType, renamedType);
+                    visitor.visitClass(tokens[0], tokens[1]);
                     break;
                 case 3:
-                    originalDeclaringType = JavaType.fromInternalName(args[0]);
-                    originalName = args[1];
-                    newName = args[2];
-                    fields.put(FieldData.create(originalDeclaringType, originalName), newName);
+                    visitor.visitField(tokens[0], tokens[1], null, tokens[2]);
                     break;
                 case 4:
-                    originalDeclaringType = JavaType.fromInternalName(args[0]);
-                    originalName = args[1];
-                    MethodSignature signature = MethodSignature.fromDescriptor(args[2]);
-                    newName = args[3];
-                    methods.put(MethodData.create(originalDeclaringType, originalName, signature), newName);
+                    visitor.visitMethod(tokens[0], tokens[1], tokens[2], null, tokens[3], null);
                     break;
                 default:
                     throw new IllegalArgumentException("Invalid line: " + line);
             }
         }
+    }
+
+    /* package */ static class SrgLineProcessor implements LineProcessor<Mappings>, MappingsVisitor {
+        private final Map<JavaType, JavaType> types = new LinkedHashMap<>();
+        // We have to queue the methods and fields, since the signatures of the renamed types need to be remapped
+        private final Map<MethodData, String> methods = new LinkedHashMap<>();
+        private final Map<FieldData, String> fields = new LinkedHashMap<>();
+        private final CompactSrgEventParser parser;
+        /**
+         * The most recent member owner and its type, since members of the same class are usually adjacent.
+         */
+        @Nullable
+        private String lastOwner;
+        @Nullable
+        private JavaType lastOwnerType;
+
+        /* package */ SrgLineProcessor() {
+            this(null);
+        }
+
+        /* package */ SrgLineProcessor(@Nullable MappingsFilter filter) {
+            this.parser = new CompactSrgEventParser(this, filter);
+        }
+
+        @Override
+        public boolean processLine(@NonNull String line) throws IOException {
+            parseLine(line);
+            return true;
+        }
+
+        public void parseLine(@NonNull String line) {
+            parser.parseLine(line);
+        }
+
+        @Override
+        public void visitClass(String original, String renamed) {
+            types.put(JavaType.fromInternalName(original), JavaType.fromInternalName(renamed));
+        }
+
+        @Override
+        public void visitField(String owner, String name, @Nullable String renamedOwner, String renamedName) {
+            fields.put(FieldData.create(ownerType(owner), name), renamedName);
+        }
+
+        @Override
+        public void visitMethod(
+                String owner,
+                String name,
+                String descriptor,
+                @Nullable String renamedOwner,
+                String renamedName,
+                @Nullable String renamedDescriptor
+        ) {
+            methods.put(
+                    MethodData.create(ownerType(owner), name, MethodSignature.fromDescriptor(descriptor)),
+                    renamedName
+            );
+        }
+
+        private JavaType ownerType(String owner) {
+            JavaType type = lastOwnerType;
+            if (type == null || !owner.equals(lastOwner)) {
+                lastOwnerType = type = JavaType.fromInternalName(owner);
+                lastOwner = owner;
+            }
+            return type;
+        }
 
         @Override
         public Mappings getResult() {
@@ -0,0 +1,524 @@
+package net.techcable.srglib.format;
+
+import net.techcable.srglib.JavaType;
+import net.techcable.srglib.MethodSignature;
+import net.techcable.srglib.mappings.ImmutableMappings;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.mappings.NamespacedMappings;
+import net.techcable.srglib.utils.CharSlice;
+import net.techcable.srglib.utils.ChannelWriter;
+import net.techcable.srglib.utils.LineProcessor;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The Enigma format, where each class is a {@code CLASS} line followed by its tab-indented members.
+ * <p>
+ * Members are {@code FIELD} and {@code METHOD} lines with the original name, the optional renamed name,
+ * and the original descriptor. Nested classes are indented under their outer class, with only their simple names.
+ * Arguments, comments and access modifiers are skipped.
+ * </p>
+ * <p>
+ * Community mappings are usually kept as a directory tree with a {@code .mapping} file per top-level class,
+ * which is read with {@link #parseDirectory(Path)}, and written with {@link #writeDirectory(NamespacedMappings, String, String, Path)}.
+ * Since {@code FIELD} lines carry the field's descriptor, writing starts from namespaced mappings, which keep it,
+ * and {@link #write(Mappings, Appendable)} isn't supported.
+ * </p>
+ *
+ * @see MappingsFormat#ENIGMA_FORMAT
+ */
+public final class EnigmaMappingsFormat implements MappingsFormat {
+    /* package */ static final EnigmaMappingsFormat INSTANCE = new EnigmaMappingsFormat();
+    private static final String EXTENSION = ".mapping";
+    /**
+     * The number of files each fork-join task handles without splitting.
+     */
+    private static final int FILES_PER_TASK = 4;
+
+    private EnigmaMappingsFormat() {}
+
+    /**
+     * Parse the specified directory of {@code .mapping} files, on the common fork-join pool.
+     *
+     * @param directory the directory to parse
+     * @return the merged mappings of every file
+     * @throws IOException              if an error occurs reading
+     * @throws IllegalArgumentException if a file is invalid
+     */
+    public ImmutableMappings parseDirectory(Path directory) throws IOException {
+        return parseDirectory(directory, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Parse the specified directory of {@code .mapping} files, on the specified fork-join pool.
+     * <p>
+     * Each file is tokenized on the pool, so the latency of opening and reading each small file overlaps,
+     * and the results are merged in path order, so the result doesn't depend on scheduling.
+     * Reading is blocking, so a pool with more threads than processors hides more latency.
+     * </p>
+     *
+     * @param directory the directory to parse
+     * @param pool      the pool to parse on
+     * @return the merged mappings of every file
+     * @throws IOException              if an error occurs reading
+     * @throws IllegalArgumentException if a file is invalid
+     */
+    public ImmutableMappings parseDirectory(Path directory, ForkJoinPool pool) throws IOException {
+        requireNonNull(pool, "Null pool");
+        Path[] files;
+        try (Stream<Path> stream = Files.walk(requireNonNull(directory, "Null directory"))) {
+            files = stream
+                    .filter(path -> path.getFileName().toString().endsWith(EXTENSION) && Files.isRegularFile(path))
+                    .sorted()
+                    .toArray(Path[]::new);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        RecordedEntries[] results = new RecordedEntries[files.length];
+        runAll(pool, files.length, index -> {
+            RecordedEntries entries = new RecordedEntries();
+            try (BufferedReader reader = MappingsFiles.newReader(files[index])) {
+                parse(reader, entries);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid mappings file " + files[index] + ": " + e.getMessage(), e);
+            }
+            results[index] = entries;
+        });
+        // The signatures of the renamed methods depend on classes from other files
+        CompactSrgMappingsFormat.SrgLineProcessor builder = new CompactSrgMappingsFormat.SrgLineProcessor();
+        for (RecordedEntries entries : results) {
+            entries.replay(builder);
+        }
+        return ImmutableMappings.copyOf(builder.getResult());
+    }
+
+    /**
+     * Write the specified namespaced mappings as a directory of {@code .mapping} files, on the common fork-join pool.
+     *
+     * @param mappings  the mappings to write
+     * @param from      the namespace of the original names
+     * @param to        the namespace of the renamed names
+     * @param directory the directory to write to
+     * @throws IOException              if an error occurs writing
+     * @throws IllegalArgumentException if either namespace is unknown
+     */
+    public void writeDirectory(NamespacedMappings mappings, String from, String to, Path directory) throws IOException {
+        writeDirectory(mappings, from, to, directory, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Write the specified namespaced mappings as a directory of {@code .mapping} files, on the specified fork-join pool.
+     * <p>
+     * Each top-level class is written to a file named after its renamed name, along with its nested classes.
+     * Files are formatted and written concurrently, replacing any existing files,
+     * but other files in the directory are left alone.
+     * </p>
+     *
+     * @param mappings  the mappings to write
+     * @param from      the namespace of the original names
+     * @param to        the namespace of the renamed names
+     * @param directory the directory to write to
+     * @param pool      the pool to write on
+     * @throws IOException              if an error occurs writing
+     * @throws IllegalArgumentException if either namespace is unknown
+     */
+    public void writeDirectory(
+            NamespacedMappings mappings,
+            String from,
+            String to,
+            Path directory,
+            ForkJoinPool pool
+    ) throws IOException {
+        requireNonNull(directory, "Null directory");
+        requireNonNull(pool, "Null pool");
+        List<ClassNode> topLevel = buildTree(mappings, from, to);
+        runAll(pool, topLevel.size(), index -> {
+            ClassNode node = topLevel.get(index);
+            StringBuilder buffer = new StringBuilder(256);
+            node.write(0, null, buffer);
+            Path path = directory.resolve(node.renamed + EXTENSION);
+            Path parent = path.getParent();
+            if (parent != null) Files.createDirectories(parent);
+            try (ChannelWriter out = MappingsFiles.newWriter(path)) {
+                out.append(buffer);
+            }
+        });
+    }
+
+    private static List<ClassNode> buildTree(NamespacedMappings mappings, String from, String to) {
+        List<String> namespaces = mappings.getNamespaces();
+        int fromIndex = namespaces.indexOf(requireNonNull(from, "Null from"));
+        int toIndex = namespaces.indexOf(requireNonNull(to, "Null to"));
+        if (fromIndex < 0 || toIndex < 0) {
+            throw new IllegalArgumentException("Unknown namespaces " + from + " and " + to + " in " + namespaces);
+        }
+        // Descriptors are in the first namespace
+        Mappings descriptors = fromIndex == 0 ? null : mappings.getMappings(namespaces.get(0), from);
+        Map<String, ClassNode> classes = new LinkedHashMap<>();
+        mappings.accept(new NamespacedMappings.Visitor() {
+            @Nullable
+            private ClassNode current;
+
+            @Override
+            public void visitClass(String[] names) {
+                current = new ClassNode(names[fromIndex], names[toIndex]);
+                classes.put(current.name, current);
+            }
+
+            @Override
+            public void visitField(String descriptor, String[] names) {
+                if (descriptors != null) {
+                    descriptor = descriptors.getNewType(JavaType.fromDescriptor(descriptor)).getDescriptor();
+                }
+                addMember("FIELD", names, descriptor);
+            }
+
+            @Override
+            public void visitMethod(String descriptor, String[] names) {
+                if (descriptors != null) {
+                    descriptor = MethodSignature.fromDescriptor(descriptor).mapTypes(descriptors::getNewType).getDescriptor();
+                }
+                addMember("METHOD", names, descriptor);
+            }
+
+            private void addMember(String kind, String[] names, String descriptor) {
+                assert current != null;
+                current.members.add(new String[]{kind, names[fromIndex], names[toIndex], descriptor});
+            }
+        });
+        List<ClassNode> topLevel = new ArrayList<>();
+        for (ClassNode node : classes.values()) {
+            int separator = node.name.lastIndexOf('$');
+            ClassNode outer = separator > 0 ? classes.get(node.name.substring(0, separator)) : null;
+            if (outer != null) {
+                outer.children.add(node);
+            } else {
+                topLevel.add(node);
+            }
+        }
+        return topLevel;
+    }
+
+    @Override
+    public LineProcessor<Mappings> createLineProcessor() {
+        return new EnigmaLineProcessor(null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The renamed descriptors aren't known until all the classes are read, so they're always null.
+     * </p>
+     */
+    @Override
+    public void parse(BufferedReader reader, MappingsVisitor visitor) throws IOException {
+        EnigmaEventParser parser = new EnigmaEventParser(requireNonNull(visitor, "Null visitor"), null);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            parser.parseLine(line);
+        }
+    }
+
+    @Override
+    public Mappings parse(BufferedReader reader, MappingsFilter filter) throws IOException {
+        EnigmaLineProcessor processor = new EnigmaLineProcessor(requireNonNull(filter, "Null filter"));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            processor.parseLine(line);
+        }
+        return processor.getResult();
+    }
+
+    @Override
+    public void write(Mappings mappings, Appendable output) throws IOException {
+        throw new UnsupportedOperationException("Enigma FIELD lines need descriptors, so write a directory of namespaced mappings with writeDirectory");
+    }
+
+    private interface FileAction {
+        void run(int index) throws IOException;
+    }
+
+    private static void runAll(ForkJoinPool pool, int count, FileAction action) throws IOException {
+        try {
+            pool.invoke(new FileTask(action, 0, count));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Runs an action for a range of files, splitting the range in half until it's small.
+     */
+    private static final class FileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final FileAction action;
+        private final int start, end;
+
+        private FileTask(FileAction action, int start, int end) {
+            this.action = action;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= FILES_PER_TASK) {
+                try {
+                    for (int i = start; i < end; i++) {
+                        action.run(i);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            } else {
+                int middle = (start + end) >>> 1;
+                invokeAll(new FileTask(action, start, middle), new FileTask(action, middle, end));
+            }
+        }
+    }
+
+    /**
+     * A class and its members to write, in the output namespaces.
+     */
+    private static final class ClassNode {
+        private final String name, renamed;
+        /**
+         * The members, as their kind, name, renamed name and descriptor.
+         */
+        private final List<String[]> members = new ArrayList<>();
+        private final List<ClassNode> children = new ArrayList<>(0);
+
+        private ClassNode(String name, String renamed) {
+            this.name = name;
+            this.renamed = renamed;
+        }
+
+        private void write(int depth, @Nullable ClassNode outer, StringBuilder output) {
+            indent(depth, output);
+            output.append("CLASS ");
+            if (outer == null) {
+                output.append(name);
+                if (!renamed.equals(name)) output.append(' ').append(renamed);
+            } else {
+                String simpleName = name.substring(outer.name.length() + 1);
+                output.append(simpleName);
+                String prefix = outer.renamed + '$';
+                if (renamed.startsWith(prefix)) {
+                    String renamedSimpleName = renamed.substring(prefix.length());
+                    if (!renamedSimpleName.equals(simpleName)) output.append(' ').append(renamedSimpleName);
+                } else {
+                    output.append(' ').append(renamed);
+                }
+            }
+            output.append('\n');
+            for (String[] member : members) {
+                indent(depth + 1, output);
+                output.append(member[0]).append(' ').append(member[1]);
+                if (!member[2].equals(member[1])) output.append(' ').append(member[2]);
+                output.append(' ').append(member[3]).append('\n');
+            }
+            for (ClassNode child : children) {
+                child.write(depth + 1, this, output);
+            }
+        }
+
+        private static void indent(int depth, StringBuilder output) {
+            for (int i = 0; i < depth; i++) {
+                output.append('\t');
+            }
+        }
+    }
+
+    /**
+     * Records the entries of a single file, so files can be parsed in parallel and merged in order.
+     */
+    private static final class RecordedEntries implements MappingsVisitor {
+        private final List<String> classes = new ArrayList<>();
+        private final List<String> fields = new ArrayList<>();
+        private final List<String> methods = new ArrayList<>();
+
+        @Override
+        public void visitClass(String original, String renamed) {
+            classes.add(original);
+            classes.add(renamed);
+        }
+
+        @Override
+        public void visitField(String owner, String name, @Nullable String renamedOwner, String renamedName) {
+            fields.add(owner);
+            fields.add(name);
+            fields.add(renamedName);
+        }
+
+        @Override
+        public void visitMethod(
+                String owner,
+                String name,
+                String descriptor,
+                @Nullable String renamedOwner,
+                String renamedName,
+                @Nullable String renamedDescriptor
+        ) {
+            methods.add(owner);
+            methods.add(name);
+            methods.add(descriptor);
+            methods.add(renamedName);
+        }
+
+        private void replay(MappingsVisitor visitor) {
+            for (int i = 0; i < classes.size(); i += 2) {
+                visitor.visitClass(classes.get(i), classes.get(i + 1));
+            }
+            for (int i = 0; i < fields.size(); i += 3) {
+                visitor.visitField(fields.get(i), fields.get(i + 1), null, fields.get(i + 2));
+            }
+            for (int i = 0; i < methods.size(); i += 4) {
+                visitor.visitMethod(methods.get(i), methods.get(i + 1), methods.get(i + 2), null, methods.get(i + 3), null);
+            }
+        }
+    }
+
+    /**
+     * Parses Enigma lines into {@link MappingsVisitor} events, keeping the enclosing classes between lines.
+     */
+    /* package */ static final class EnigmaEventParser {
+        private final MappingsVisitor visitor;
+        @Nullable
+        private final MappingsFilter filter;
+        private final String[] tokens = new String[5];
+        private final CharSlice ownerSlice = new CharSlice();
+        /**
+         * The original and renamed names of the enclosing classes, indexed by depth.
+         */
+        private String[] classNames = new String[4], renamedClassNames = new String[4];
+        private int classDepth = -1;
+        /**
+         * The depth of a class rejected by the filter, whose contents are skipped, or -1.
+         */
+        private int skipDepth = -1;
+
+        /* package */ EnigmaEventParser(MappingsVisitor visitor, @Nullable MappingsFilter filter) {
+            this.visitor = visitor;
+            this.filter = filter;
+        }
+
+        public void parseLine(@NonNull String line) {
+            int depth = 0;
+            int end = line.length();
+            while (depth < end && line.charAt(depth) == '\t') {
+                depth++;
+            }
+            while (end > depth && Character.isWhitespace(line.charAt(end - 1))) {
+                end--;
+            }
+            if (end == depth) return;
+            if (skipDepth >= 0) {
+                if (depth > skipDepth) return;
+                skipDepth = -1;
+            }
+            String[] tokens = this.tokens;
+            int count = LineTokens.split(end == line.length() ? line : line.substring(0, end), depth, tokens);
+            String kind = tokens[0];
+            if (kind.equals("COMMENT") || kind.equals("ARG")) return;
+            if (count > tokens.length) throw invalidLine(line);
+            if (tokens[count - 1].startsWith("ACC:")) count--; // Access modifiers
+            switch (kind) {
+                case "CLASS":
+                    parseClass(line, depth, count);
+                    break;
+                case "FIELD":
+                case "METHOD":
+                    if (count < 3 || count > 4 || depth == 0 || depth - 1 > classDepth) throw invalidLine(line);
+                    String owner = classNames[depth - 1], renamedOwner = renamedClassNames[depth - 1];
+                    String name = tokens[1];
+                    String renamedName = count == 4 ? tokens[2] : name;
+                    String descriptor = tokens[count - 1];
+                    if (kind.equals("FIELD")) {
+                        visitor.visitField(owner, name, renamedOwner, renamedName);
+                    } else {
+                        visitor.visitMethod(owner, name, descriptor, renamedOwner, renamedName, null);
+                    }
+                    break;
+                default:
+                    throw invalidLine(line);
+            }
+        }
+
+        private void parseClass(String line, int depth, int count) {
+            if (count < 2 || count > 3 || depth - 1 > classDepth) throw invalidLine(line);
+            String name = tokens[1];
+            @Nullable String renamedName = count == 3 ? tokens[2] : null;
+            if (depth > 0) {
+                // Nested classes usually only have their simple names
+                String outer = classNames[depth - 1], renamedOuter = renamedClassNames[depth - 1];
+                if (!name.startsWith(outer + '$')) name = outer + '$' + name;
+                if (renamedName == null) {
+                    renamedName = renamedOuter + name.substring(outer.length());
+                } else if (renamedName.indexOf('/') < 0 && !renamedName.startsWith(renamedOuter + '$')) {
+                    renamedName = renamedOuter + '$' + renamedName;
+                }
+            } else if (renamedName == null) {
+                renamedName = name;
+            }
+            if (depth == classNames.length) {
+                classNames = Arrays.copyOf(classNames, depth * 2);
+                renamedClassNames = Arrays.copyOf(renamedClassNames, depth * 2);
+            }
+            classNames[depth] = name;
+            renamedClassNames[depth] = renamedName;
+            classDepth = depth;
+            if (filter != null && !filter.test(ownerSlice.set(name, 0, name.length()))) {
+                skipDepth = depth;
+                return;
+            }
+            visitor.visitClass(name, renamedName);
+        }
+
+        private static IllegalArgumentException invalidLine(String line) {
+            return new IllegalArgumentException("Invalid line: " + line.trim());
+        }
+    }
+
+    /**
+     * Builds mappings from Enigma lines, like the compact SRG format.
+     */
+    private static final class EnigmaLineProcessor implements LineProcessor<Mappings> {
+        private final CompactSrgMappingsFormat.SrgLineProcessor builder = new CompactSrgMappingsFormat.SrgLineProcessor();
+        private final EnigmaEventParser parser;
+
+        private EnigmaLineProcessor(@Nullable MappingsFilter filter) {
+            this.parser = new EnigmaEventParser(builder, filter);
+        }
+
+        @Override
+        public boolean processLine(@NonNull String line) {
+            parseLine(line);
+            return true;
+        }
+
+        private void parseLine(@NonNull String line) {
+            parser.parseLine(line);
+        }
+
+        @Override
+        public Mappings getResult() {
+            return builder.getResult();
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package net.techcable.srglib.format;
+
+import net.techcable.srglib.FieldData;
+import net.techcable.srglib.JavaType;
+import net.techcable.srglib.MethodData;
+import net.techcable.srglib.MethodSignature;
+import net.techcable.srglib.mappings.ImmutableMappings;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.utils.GzipPipe;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Mappings backed by a memory-mapped SRG or compact SRG file, which are only parsed as they're looked up.
+ * <p>
+ * Opening the file takes a single sequential scan, which records the hash of each line's key and the line's offset
+ * in a sorted array of primitives, without creating any objects per entry.
+ * Each lookup binary searches the index, and parses only the candidate lines.
+ * Results are cached, so memory scales with the entries that are actually used, rather than with the size of the file.
+ * Enumerating the mappings, with {@link #classes()} or {@link #snapshot()} for example, parses the whole file once.
+ * This is best suited for short-lived tools that only do a few lookups.
+ * </p>
+ * <p>
+ * The file must not be modified while it's mapped. Indexed mappings are thread-safe.
+ * </p>
+ */
+public final class IndexedMappings implements Mappings {
+    private static final int CLASS = 0, FIELD = 1, METHOD = 2;
+    private final MappingsFormat format;
+    private final ByteBuffer buffer;
+    /**
+     * The sorted index of each kind of record, with the key hash in the high bits and the line offset in the low bits.
+     */
+    private final long[][] index;
+    private final ConcurrentHashMap<JavaType, JavaType> classCache = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<MethodData, MethodData> methodCache = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<FieldData, FieldData> fieldCache = new ConcurrentHashMap<>();
+    @Nullable
+    private volatile ImmutableMappings snapshot;
+
+    private IndexedMappings(MappingsFormat format, ByteBuffer buffer) {
+        this.format = format;
+        this.buffer = buffer;
+        this.index = new Indexer(format == MappingsFormat.SEARGE_FORMAT, buffer).build();
+    }
+
+    /**
+     * Map and index the specified file.
+     *
+     * @param path   the file to open
+     * @param format the format of the file, either SRG or compact SRG
+     * @return the indexed mappings
+     * @throws IOException                   if an error occurs mapping the file, or the file is compressed
+     * @throws IllegalArgumentException      if a line is invalid
+     * @throws UnsupportedOperationException if the format isn't supported
+     */
+    public static IndexedMappings open(Path path, MappingsFormat format) throws IOException {
+        requireNonNull(path, "Null path");
+        requireNonNull(format, "Null format");
+        if (format != MappingsFormat.SEARGE_FORMAT && format != MappingsFormat.COMPACT_SEARGE_FORMAT) {
+            throw new UnsupportedOperationException("Unsupported format: " + format.getClass().getSimpleName());
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("File too large to index: " + path);
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size >= 2 && GzipPipe.isCompressed(new byte[] {buffer.get(0), buffer.get(1)}, 2)) {
+                throw new IOException("Can't index compressed file: " + path);
+            }
+            return new IndexedMappings(format, buffer);
+        }
+    }
+
+    //
+    // Lookup
+    //
+
+    @Override
+    public JavaType getNewClass(JavaType original) {
+        if(!original.isReferenceType()) throw new IllegalArgumentException("Type isn't a reference type: " + original);
+        return classCache.computeIfAbsent(original, type -> {
+            String renamed = findNewClassName(type.getInternalName());
+            return renamed != null ? JavaType.fromInternalName(renamed) : type;
+        });
+    }
+
+    @Override
+    public MethodData getNewMethod(MethodData original) {
+        return methodCache.computeIfAbsent(requireNonNull(original, "Null original"), method -> {
+            String descriptor = method.getSignature().getDescriptor();
+            MethodData renamed = lookup(METHOD, hash(method.getDeclaringType().getInternalName(), method.getName()), record -> {
+                if (!record.matches(method.getDeclaringType().getInternalName(), method.getName(), descriptor)) return null;
+                if (record.renamedOwner != null && record.renamedDescriptor != null) {
+                    return MethodData.create(
+                            JavaType.fromInternalName(record.renamedOwner),
+                            record.renamedName,
+                            MethodSignature.fromDescriptor(record.renamedDescriptor)
+                    );
+                }
+                return method.mapTypes(this::getNewType).withName(record.renamedName);
+            });
+            return renamed != null ? renamed : method.mapTypes(this::getNewType);
+        });
+    }
+
+    @Override
+    public FieldData getNewField(FieldData original) {
+        return fieldCache.computeIfAbsent(requireNonNull(original, "Null original"), field -> {
+            FieldData renamed = lookup(FIELD, hash(field.getDeclaringType().getInternalName(), field.getName()), record -> {
+                if (!record.matches(field.getDeclaringType().getInternalName(), field.getName(), null)) return null;
+                if (record.renamedOwner != null) {
+                    return FieldData.create(JavaType.fromInternalName(record.renamedOwner), record.renamedName);
+                }
+                return field.mapTypes(this::getNewType).withName(record.renamedName);
+            });
+            return renamed != null ? renamed : field.mapTypes(this::getNewType);
+        });
+    }
+
+    @Nullable
+    @Override
+    public String findNewClassName(CharSequence internalName) {
+        return lookup(CLASS, hash(internalName), record -> {
+            if (!record.original.contentEquals(internalName)) return null;
+            return record.renamed.contentEquals(internalName) ? null : record.renamed;
+        });
+    }
+
+    @Nullable
+    @Override
+    public String findNewMethodName(CharSequence owner, CharSequence name, CharSequence descriptor) {
+        return lookup(METHOD, hash(owner, name), record -> {
+            if (!record.matches(owner, name, descriptor)) return null;
+            return record.renamedName.contentEquals(name) ? null : record.renamedName;
+        });
+    }
+
+    @Nullable
+    @Override
+    public String findNewFieldName(CharSequence owner, CharSequence name) {
+        return lookup(FIELD, hash(owner, name), record -> {
+            if (!record.matches(owner, name, null)) return null;
+            return record.renamedName.contentEquals(name) ? null : record.renamedName;
+        });
+    }
+
+    /**
+     * Parse each line with the specified hash, until the matcher returns a result.
+     */
+    @Nullable
+    private <T> T lookup(int kind, int hash, Function<Record, T> matcher) {
+        long[] index = this.index[kind];
+        long key = (long) hash << 32;
+        // Find the first entry with the hash
+        int low = 0, high = index.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (index[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        for (int i = low; i < index.length && (int) (index[i] >>> 32) == hash; i++) {
+            Record record = parseRecord((int) index[i]);
+            T result = matcher.apply(record);
+            if (result != null) return result;
+        }
+        return null;
+    }
+
+    private Record parseRecord(int offset) {
+        int end = offset;
+        int limit = buffer.limit();
+        while (end < limit && buffer.get(end) != '\n') end++;
+        byte[] bytes = new byte[end - offset];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        Record record = new Record();
+        Consumer<String> parser = format == MappingsFormat.SEARGE_FORMAT
+                ? new SrgMappingsFormat.SrgEventParser(record, null)::parseLine
+                : new CompactSrgMappingsFormat.CompactSrgEventParser(record, null)::parseLine;
+        parser.accept(new String(bytes, StandardCharsets.UTF_8));
+        return record;
+    }
+
+    /**
+     * The fields of the last record visited.
+     */
+    private static final class Record implements MappingsVisitor {
+        private String original, renamed, owner, name, renamedName;
+        @Nullable
+        private String descriptor, renamedOwner, renamedDescriptor;
+
+        @Override
+        public void visitClass(String original, String renamed) {
+            this.original = original;
+            this.renamed = renamed;
+        }
+
+        @Override
+        public void visitField(String owner, String name, @Nullable String renamedOwner, String renamedName) {
+            this.owner = owner;
+            this.name = name;
+            this.renamedOwner = renamedOwner;
+            this.renamedName = renamedName;
+        }
+
+        @Override
+        public void visitMethod(
+                String owner,
+                String name,
+                String descriptor,
+                @Nullable String renamedOwner,
+                String renamedName,
+                @Nullable String renamedDescriptor
+        ) {
+            visitField(owner, name, renamedOwner, renamedName);
+            this.descriptor = descriptor;
+            this.renamedDescriptor = renamedDescriptor;
+        }
+
+        private boolean matches(CharSequence owner, CharSequence name, @Nullable CharSequence descriptor) {
+            return this.owner.contentEquals(owner)
+                    && this.name.contentEquals(name)
+                    && (descriptor == null || this.descriptor != null && this.descriptor.contentEquals(descriptor));
+        }
+    }
+
+    //
+    // Enumeration
+    //
+
+    /**
+     * Parse the entire file into immutable mappings.
+     *
+     * @return the fully parsed mappings
+     */
+    @Override
+    public ImmutableMappings snapshot() {
+        ImmutableMappings snapshot = this.snapshot;
+        if (snapshot == null) {
+            synchronized (this) {
+                if ((snapshot = this.snapshot) == null) {
+                    String text = StandardCharsets.UTF_8.decode(buffer.duplicate()).toString();
+                    try (BufferedReader reader = new BufferedReader(new StringReader(text))) {
+                        snapshot = ImmutableMappings.copyOf(format.parse(reader));
+                    } catch (IOException e) {
+                        throw new AssertionError("StringReader doesn't throw", e);
+                    }
+                    this.snapshot = snapshot;
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    @Override
+    public Set<JavaType> classes() {
+        return snapshot().classes();
+    }
+
+    @Override
+    public Set<MethodData> methods() {
+        return snapshot().methods();
+    }
+
+    @Override
+    public Set<FieldData> fields() {
+        return snapshot().fields();
+    }
+
+    //
+    // Hashing
+    //
+
+    /*
+     * Keys are hashed over their UTF-8 bytes, so the index can be built without decoding the file.
+     * Member keys are hashed as "owner/name", which is how they appear in SRG files.
+     */
+
+    private static int hash(CharSequence s) {
+        return hashUtf8(0, s);
+    }
+
+    private static int hash(CharSequence owner, CharSequence name) {
+        return hashUtf8(31 * hashUtf8(0, owner) + '/', name);
+    }
+
+    private static int hashUtf8(int hash, CharSequence s) {
+        for (int i = 0, length = s.length(); i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                hash = 31 * hash + c;
+            } else if (c < 0x800) {
+                hash = 31 * hash + (0xC0 | (c >> 6));
+                hash = 31 * hash + (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                hash = 31 * hash + (0xF0 | (codePoint >> 18));
+                hash = 31 * hash + (0x80 | ((codePoint >> 12) & 0x3F));
+                hash = 31 * hash + (0x80 | ((codePoint >> 6) & 0x3F));
+                hash = 31 * hash + (0x80 | (codePoint & 0x3F));
+            } else {
+                hash = 31 * hash + (0xE0 | (c >> 12));
+                hash = 31 * hash + (0x80 | ((c >> 6) & 0x3F));
+                hash = 31 * hash + (0x80 | (c & 0x3F));
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Scans the file once, recording the hash and offset of every line.
+     */
+    private static final class Indexer {
+        private final boolean srg;
+        private final ByteBuffer buffer;
+        private final long[][] entries = {new long[64], new long[256], new long[256]};
+        private final int[] counts = new int[3];
+
+        private Indexer(boolean srg, ByteBuffer buffer) {
+            this.srg = srg;
+            this.buffer = buffer;
+        }
+
+        private long[][] build() {
+            ByteBuffer buffer = this.buffer;
+            int limit = buffer.limit();
+            int position = 0;
+            while (position < limit) {
+                int end = position;
+                while (end < limit && buffer.get(end) != '\n') end++;
+                indexLine(position, end);
+                position = end + 1;
+            }
+            long[][] result = new long[3][];
+            for (int kind = 0; kind < 3; kind++) {
+                result[kind] = Arrays.copyOf(entries[kind], counts[kind]);
+                Arrays.sort(result[kind]);
+            }
+            return result;
+        }
+
+        private void indexLine(int start, int end) {
+            ByteBuffer buffer = this.buffer;
+            // Trim, like the line parsers
+            while (start < end && (buffer.get(start) & 0xFF) <= ' ') start++;
+            while (end > start && (buffer.get(end - 1) & 0xFF) <= ' ') end--;
+            if (start == end || buffer.get(start) == '#') return;
+            if (srg) {
+                if (end - start < 4) throw invalidLine(start, end);
+                int kind;
+                switch (buffer.get(start)) {
+                    case 'C':
+                        kind = CLASS;
+                        break;
+                    case 'F':
+                        kind = FIELD;
+                        break;
+                    case 'M':
+                        kind = METHOD;
+                        break;
+                    case 'P':
+                        return; // Packages aren't indexed
+                    default:
+                        throw invalidLine(start, end);
+                }
+                // The first token is the class name, or "owner/name", which is how members are hashed
+                add(kind, hashBytes(0, start + 4, tokenEnd(start + 4, end)), start);
+            } else {
+                int firstEnd = tokenEnd(start, end);
+                int spaces = 0;
+                for (int i = firstEnd; i < end; i++) {
+                    if (buffer.get(i) == ' ') spaces++;
+                }
+                if (spaces == 1) {
+                    add(CLASS, hashBytes(0, start, firstEnd), start);
+                } else if (spaces == 2 || spaces == 3) {
+                    int hash = 31 * hashBytes(0, start, firstEnd) + '/';
+                    hash = hashBytes(hash, firstEnd + 1, tokenEnd(firstEnd + 1, end));
+                    add(spaces == 2 ? FIELD : METHOD, hash, start);
+                } else {
+                    throw invalidLine(start, end);
+                }
+            }
+        }
+
+        private int tokenEnd(int start, int end) {
+            while (start < end && buffer.get(start) != ' ') start++;
+            return start;
+        }
+
+        private int hashBytes(int hash, int start, int end) {
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + (buffer.get(i) & 0xFF);
+            }
+            return hash;
+        }
+
+        private void add(int kind, int hash, int offset) {
+            long[] entries = this.entries[kind];
+            int count = counts[kind];
+            if (count == entries.length) {
+                this.entries[kind] = entries = Arrays.copyOf(entries, count * 2);
+            }
+            entries[count] = ((long) hash << 32) | offset;
+            counts[kind] = count + 1;
+        }
+
+        private IllegalArgumentException invalidLine(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buffer.get(start + i);
+            }
+            return new IllegalArgumentException("Invalid line: " + new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package net.techcable.srglib.format;
+
+import net.techcable.srglib.MethodData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The line number ranges of obfuscated methods, from a ProGuard mappings file.
+ * <p>
+ * Each range maps lines of an obfuscated method to lines of an original method.
+ * Several ranges with the same obfuscated lines form an inlining stack, innermost method first,
+ * and inlined methods may come from other classes.
+ * </p>
+ * <p>
+ * Ranges are stored in flat primitive arrays, sorted by obfuscated owner and name,
+ * and refer to their original methods by index into a table of distinct methods,
+ * so even huge release mappings cost a few words per range.
+ * Tables are immutable and thread-safe.
+ * </p>
+ *
+ * @see ProGuardMappingsFormat#parseWithLineNumbers(java.io.BufferedReader, Builder)
+ */
+public final class LineNumberTable {
+    private static final int OBFUSCATED_START = 0, OBFUSCATED_END = 1, ORIGINAL_START = 2, ORIGINAL_END = 3, METHOD = 4;
+    private static final int RANGE_SIZE = 5;
+    /**
+     * The distinct obfuscated methods, as "owner/name", in sorted order.
+     */
+    private final String[] keys;
+    /**
+     * The index of each key's first range, followed by the total number of ranges.
+     */
+    private final int[] keyStarts;
+    private final int[] ranges;
+    /**
+     * The distinct original methods, indexed by the ranges.
+     */
+    private final MethodData[] methods;
+
+    private LineNumberTable(String[] keys, int[] keyStarts, int[] ranges, MethodData[] methods) {
+        this.keys = keys;
+        this.keyStarts = keyStarts;
+        this.ranges = ranges;
+        this.methods = methods;
+    }
+
+    /**
+     * Return the number of ranges in this table.
+     *
+     * @return the number of ranges
+     */
+    public int size() {
+        return ranges.length / RANGE_SIZE;
+    }
+
+    /**
+     * Return the original methods and lines of the specified obfuscated line.
+     * <p>
+     * If the line was inlined, the result is the inlining stack, innermost method first.
+     * If the line isn't in any range of the method, the result is empty.
+     * </p>
+     *
+     * @param owner the internal name of the obfuscated class
+     * @param name  the obfuscated name of the method
+     * @param line  the obfuscated line number
+     * @return the original frames of the line
+     */
+    public List<Frame> lookup(String owner, String name, int line) {
+        int key = Arrays.binarySearch(keys, requireNonNull(owner, "Null owner") + '/' + requireNonNull(name, "Null name"));
+        if (key < 0) return Collections.emptyList();
+        List<Frame> result = null;
+        for (int i = keyStarts[key], end = keyStarts[key + 1]; i < end; i++) {
+            int offset = i * RANGE_SIZE;
+            int obfuscatedStart = ranges[offset + OBFUSCATED_START], obfuscatedEnd = ranges[offset + OBFUSCATED_END];
+            if (line < obfuscatedStart || line > obfuscatedEnd) continue;
+            int originalStart = ranges[offset + ORIGINAL_START], originalEnd = ranges[offset + ORIGINAL_END];
+            // Ranges of the same length map line by line, and anything else maps to the start of the original
+            int originalLine = originalEnd - originalStart == obfuscatedEnd - obfuscatedStart
+                    ? originalStart + (line - obfuscatedStart)
+                    : originalStart;
+            if (result == null) result = new ArrayList<>(2);
+            result.add(new Frame(methods[ranges[offset + METHOD]], originalLine));
+        }
+        return result != null ? result : Collections.emptyList();
+    }
+
+    /**
+     * An original method and line of an obfuscated line.
+     */
+    public static final class Frame {
+        private final MethodData method;
+        private final int line;
+
+        private Frame(MethodData method, int line) {
+            this.method = method;
+            this.line = line;
+        }
+
+        /**
+         * Return the original method.
+         *
+         * @return the original method
+         */
+        public MethodData getMethod() {
+            return method;
+        }
+
+        /**
+         * Return the original line number.
+         *
+         * @return the original line
+         */
+        public int getLine() {
+            return line;
+        }
+
+        @Override
+        public int hashCode() {
+            return method.hashCode() * 31 + line;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj == this || obj instanceof Frame
+                    && ((Frame) obj).method.equals(this.method)
+                    && ((Frame) obj).line == this.line;
+        }
+
+        @Override
+        public String toString() {
+            return method + ":" + line;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Collects line number ranges in file order.
+     */
+    public static final class Builder {
+        private String[] keys = new String[64];
+        private int[] ranges = new int[64 * RANGE_SIZE];
+        private final List<MethodData> methods = new ArrayList<>();
+        private final Map<MethodData, Integer> methodIndexes = new HashMap<>();
+        private int size;
+
+        private Builder() {}
+
+        /**
+         * Add a range of lines of an obfuscated method.
+         *
+         * @param owner           the internal name of the obfuscated class
+         * @param name            the obfuscated name of the method
+         * @param obfuscatedStart the first obfuscated line
+         * @param obfuscatedEnd   the last obfuscated line
+         * @param original        the original method
+         * @param originalStart   the first original line
+         * @param originalEnd     the last original line
+         * @return this builder
+         */
+        public Builder addRange(
+                String owner,
+                String name,
+                int obfuscatedStart,
+                int obfuscatedEnd,
+                MethodData original,
+                int originalStart,
+                int originalEnd
+        ) {
+            String key = requireNonNull(owner, "Null owner") + '/' + requireNonNull(name, "Null name");
+            // Consecutive ranges usually belong to the same method
+            if (size > 0 && key.equals(keys[size - 1])) key = keys[size - 1];
+            requireNonNull(original, "Null original");
+            if (size == keys.length) {
+                int capacity = size * 2;
+                keys = Arrays.copyOf(keys, capacity);
+                ranges = Arrays.copyOf(ranges, capacity * RANGE_SIZE);
+            }
+            // Consecutive ranges usually have the same original method too, so only look up new ones
+            int method = size > 0 ? ranges[(size - 1) * RANGE_SIZE + METHOD] : -1;
+            if (method < 0 || !methods.get(method).equals(original)) {
+                method = methodIndexes.computeIfAbsent(original, ignored -> {
+                    methods.add(original);
+                    return methods.size() - 1;
+                });
+            }
+            keys[size] = key;
+            int offset = size * RANGE_SIZE;
+            ranges[offset + OBFUSCATED_START] = obfuscatedStart;
+            ranges[offset + OBFUSCATED_END] = obfuscatedEnd;
+            ranges[offset + ORIGINAL_START] = originalStart;
+            ranges[offset + ORIGINAL_END] = originalEnd;
+            ranges[offset + METHOD] = method;
+            size++;
+            return this;
+        }
+
+        public LineNumberTable build() {
+            // Sort stably by key, so inlining stacks keep their order
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            String[] keys = this.keys;
+            Arrays.sort(order, (first, second) -> keys[first].compareTo(keys[second]));
+            int[] ranges = new int[size * RANGE_SIZE];
+            List<String> distinctKeys = new ArrayList<>();
+            int[] keyStarts = new int[size + 1];
+            for (int i = 0; i < size; i++) {
+                int index = order[i];
+                if (distinctKeys.isEmpty() || !distinctKeys.get(distinctKeys.size() - 1).equals(keys[index])) {
+                    keyStarts[distinctKeys.size()] = i;
+                    distinctKeys.add(keys[index]);
+                }
+                System.arraycopy(this.ranges, index * RANGE_SIZE, ranges, i * RANGE_SIZE, RANGE_SIZE);
+            }
+            keyStarts[distinctKeys.size()] = size;
+            return new LineNumberTable(
+                    distinctKeys.toArray(new String[0]),
+                    Arrays.copyOf(keyStarts, distinctKeys.size() + 1),
+                    ranges,
+                    methods.toArray(new MethodData[0])
+            );
+        }
+    }
+}
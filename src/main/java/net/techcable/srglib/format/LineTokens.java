@@ -0,0 +1,34 @@
+package net.techcable.srglib.format;
+
+/**
+ * Splits mappings lines on single spaces, without regular expressions or intermediate arrays.
+ */
+/* package */ final class LineTokens {
+    private LineTokens() {}
+
+    /**
+     * Split the specified line into tokens, starting at the specified index.
+     * <p>
+     * Adjacent spaces produce empty tokens, like {@link String#split(String)} with a single space.
+     * If the line has more tokens than fit in the array, the extra tokens are skipped,
+     * but still counted in the result.
+     * </p>
+     *
+     * @param line   the line to split
+     * @param start  the index to start at
+     * @param tokens the array to store the tokens in
+     * @return the number of tokens in the line
+     */
+    /* package */ static int split(String line, int start, String[] tokens) {
+        int count = 0;
+        int length = line.length();
+        while (true) {
+            int end = line.indexOf(' ', start);
+            if (end < 0) end = length;
+            if (count < tokens.length) tokens[count] = line.substring(start, end);
+            count++;
+            if (end == length) return count;
+            start = end + 1;
+        }
+    }
+}
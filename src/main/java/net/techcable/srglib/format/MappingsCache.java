@@ -0,0 +1,159 @@
+package net.techcable.srglib.format;
+
+import net.techcable.srglib.mappings.BinaryMappings;
+import net.techcable.srglib.mappings.ImmutableMappings;
+import net.techcable.srglib.utils.ByteStreams;
+import net.techcable.srglib.utils.DiskCache;
+import net.techcable.srglib.utils.GzipPipe;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A cache of parsed mappings files, stored in a local directory in {@link BinaryMappings binary form}.
+ * <p>
+ * The first time a file is loaded it's parsed as usual, and the result is cached.
+ * Later loads of the same file just read the cached mappings, which is much faster than parsing them again.
+ * Files are first looked up by their path, size and modification time, without reading them.
+ * If that misses, they're looked up by a digest of their contents,
+ * so touched, copied or restored files still hit the cache.
+ * Modifying a file changes its key, so stale entries are never used,
+ * and are eventually evicted along with the least recently used entries once the cache is full.
+ * </p>
+ * <p>
+ * Caches are thread-safe, and several processes may share the same directory.
+ * </p>
+ */
+public final class MappingsCache {
+    /**
+     * Mixed into every key, so a change in the binary form invalidates existing entries.
+     */
+    private static final String VERSION = "srglib-mappings-1";
+    /**
+     * How recently a file may have been modified and still be looked up by its modification time.
+     * <p>
+     * A file modified again within the resolution of its timestamp could keep the same size and time,
+     * so recently modified files are always looked up by content.
+     * </p>
+     */
+    private static final long RACY_MILLIS = TimeUnit.SECONDS.toMillis(2);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private final DiskCache cache;
+
+    /**
+     * Create a cache in the specified directory.
+     *
+     * @param directory the directory to store the cache in
+     * @param maxSize   the maximum total size of the cache, in bytes
+     */
+    public MappingsCache(Path directory, long maxSize) {
+        this.cache = new DiskCache(requireNonNull(directory, "Null directory"), maxSize);
+    }
+
+    /**
+     * Load the specified mappings file, returning the cached mappings if it's unchanged since it was last loaded.
+     * <p>
+     * Gzip compressed files are detected and decompressed transparently, like {@link MappingsFormat#parseFile(Path)}.
+     * </p>
+     *
+     * @param path   the file to load
+     * @param format the format of the file
+     * @return the mappings
+     * @throws IOException              if an error occurs reading the file or accessing the cache
+     * @throws IllegalArgumentException if the file is invalid
+     */
+    public ImmutableMappings load(Path path, MappingsFormat format) throws IOException {
+        requireNonNull(path, "Null path");
+        requireNonNull(format, "Null format");
+        String formatName = format.getClass().getName();
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long modified = attributes.lastModifiedTime().toMillis();
+        // Look up by path, size and modification time
+        MessageDigest pathDigest = newDigest();
+        pathDigest.update((VERSION + '\0' + formatName + '\0' + path.toAbsolutePath().normalize() + '\0'
+                + attributes.size() + '\0' + modified).getBytes(StandardCharsets.UTF_8));
+        String pathKey = DiskCache.toKey(pathDigest.digest());
+        byte[] pointer = cache.getBytes(pathKey);
+        if (pointer != null) {
+            ImmutableMappings cached = read(new String(pointer, StandardCharsets.US_ASCII));
+            if (cached != null) return cached;
+        }
+        // Look up by content
+        byte[] data;
+        try (InputStream in = Files.newInputStream(path)) {
+            data = ByteStreams.readFully(in, attributes.size());
+        }
+        MessageDigest contentDigest = newDigest();
+        contentDigest.update((VERSION + '\0' + formatName + '\0').getBytes(StandardCharsets.UTF_8));
+        contentDigest.update(data);
+        String contentKey = DiskCache.toKey(contentDigest.digest());
+        ImmutableMappings result = read(contentKey);
+        if (result == null) {
+            result = parse(data, format);
+            ImmutableMappings mappings = result;
+            cache.put(contentKey, temp -> {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+                    BinaryMappings.write(mappings, out);
+                }
+            });
+        }
+        if (System.currentTimeMillis() - modified > RACY_MILLIS) {
+            cache.put(pathKey, contentKey.getBytes(StandardCharsets.US_ASCII));
+        }
+        return result;
+    }
+
+    /**
+     * Read the cached mappings with the specified key, or null if they aren't cached or the entry is unreadable.
+     */
+    @Nullable
+    private ImmutableMappings read(String key) throws IOException {
+        if (key.length() < 3) return null; // Invalid pointer
+        for (int i = 0; i < key.length(); i++) {
+            if (Character.digit(key.charAt(i), 16) < 0) return null;
+        }
+        Path file = cache.get(key);
+        if (file == null) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            return BinaryMappings.read(in);
+        } catch (IOException | IllegalArgumentException e) {
+            // Evicted concurrently, or corrupt, so parse it again and overwrite it
+            return null;
+        }
+    }
+
+    private static ImmutableMappings parse(byte[] data, MappingsFormat format) throws IOException {
+        InputStream in = new ByteArrayInputStream(data);
+        if (GzipPipe.isCompressed(data, data.length)) {
+            in = GzipPipe.decompress(in);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            return format.parse(reader).snapshot();
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-256 is always supported", e);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package net.techcable.srglib.format;
+
+import net.techcable.srglib.JavaType;
+import net.techcable.srglib.mappings.ImmutableMappings;
+import net.techcable.srglib.remap.SignatureRemapper;
+import net.techcable.srglib.utils.ChannelWriter;
+import net.techcable.srglib.utils.Exceptions;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Converts mappings files between {@link MappingsFormat#SEARGE_FORMAT} and {@link MappingsFormat#COMPACT_SEARGE_FORMAT},
+ * streaming records straight from the input to the output, without building {@link net.techcable.srglib.mappings.Mappings}.
+ * <p>
+ * Converting to the compact format only drops information, so it takes a single pass in constant memory.
+ * Converting from the compact format needs the class table to compute the renamed owners and descriptors,
+ * so it reads the input twice, and only keeps the class table in memory.
+ * In that case the class records are written first, so the output can be parsed back in a single pass.
+ * </p>
+ */
+public final class MappingsConverter {
+    private MappingsConverter() {}
+
+    /**
+     * Convert the specified mappings file between formats.
+     *
+     * @param input        the file to convert
+     * @param inputFormat  the format of the input
+     * @param output       the file to write, replacing any existing contents
+     * @param outputFormat the format of the output
+     * @throws IOException                   if an error occurs reading or writing
+     * @throws IllegalArgumentException      if the input is invalid, or is the same file as the output
+     * @throws UnsupportedOperationException if either format isn't supported
+     */
+    public static void convert(Path input, MappingsFormat inputFormat, Path output, MappingsFormat outputFormat) throws IOException {
+        requireNonNull(input, "Null input");
+        requireNonNull(output, "Null output");
+        // Check everything before the output is truncated
+        checkSupported(inputFormat);
+        checkSupported(outputFormat);
+        if (Files.exists(output) && Files.isSameFile(input, output)) {
+            throw new IllegalArgumentException("Can't convert a file in place: " + output);
+        }
+        try (ChannelWriter out = MappingsFiles.newWriter(output)) {
+            convert(input, inputFormat, out, outputFormat);
+        }
+    }
+
+    /**
+     * Convert the specified mappings file between formats, appending the result to the specified output.
+     *
+     * @param input        the file to convert
+     * @param inputFormat  the format of the input
+     * @param output       the output to append to
+     * @param outputFormat the format of the output
+     * @throws IOException                   if an error occurs reading or writing
+     * @throws IllegalArgumentException      if the input is invalid
+     * @throws UnsupportedOperationException if either format isn't supported
+     */
+    public static void convert(Path input, MappingsFormat inputFormat, Appendable output, MappingsFormat outputFormat) throws IOException {
+        requireNonNull(input, "Null input");
+        requireNonNull(output, "Null output");
+        checkSupported(inputFormat);
+        checkSupported(outputFormat);
+        if (inputFormat == MappingsFormat.COMPACT_SEARGE_FORMAT && outputFormat == MappingsFormat.SEARGE_FORMAT) {
+            // First pass: write the classes and collect the class table
+            Map<JavaType, JavaType> classes = new HashMap<>();
+            SrgWriter classWriter = new SrgWriter(output, null);
+            parse(input, inputFormat, new MappingsVisitor() {
+                @Override
+                public void visitClass(String original, String renamed) {
+                    classes.put(JavaType.fromInternalName(original), JavaType.fromInternalName(renamed));
+                    classWriter.visitClass(original, renamed);
+                }
+            });
+            // Second pass: stream the members, remapping their owners and descriptors
+            SignatureRemapper remapper = new SignatureRemapper(ImmutableMappings.copyOf(
+                    classes,
+                    Collections.emptyMap(),
+                    Collections.emptyMap()
+            ));
+            SrgWriter memberWriter = new SrgWriter(output, remapper);
+            parse(input, inputFormat, new MappingsVisitor() {
+                @Override
+                public void visitField(String owner, String name, @Nullable String renamedOwner, String renamedName) {
+                    memberWriter.visitField(owner, name, renamedOwner, renamedName);
+                }
+
+                @Override
+                public void visitMethod(
+                        String owner,
+                        String name,
+                        String descriptor,
+                        @Nullable String renamedOwner,
+                        String renamedName,
+                        @Nullable String renamedDescriptor
+                ) {
+                    memberWriter.visitMethod(owner, name, descriptor, renamedOwner, renamedName, renamedDescriptor);
+                }
+            });
+        } else {
+            // Everything the output needs is in each line
+            MappingsVisitor writer = outputFormat == MappingsFormat.SEARGE_FORMAT ? new SrgWriter(output, null) : new CompactSrgWriter(output);
+            parse(input, inputFormat, writer);
+        }
+    }
+
+    private static void checkSupported(MappingsFormat format) {
+        requireNonNull(format, "Null format");
+        if (format != MappingsFormat.SEARGE_FORMAT && format != MappingsFormat.COMPACT_SEARGE_FORMAT) {
+            throw new UnsupportedOperationException("Unsupported format: " + format.getClass().getSimpleName());
+        }
+    }
+
+    private static void parse(Path input, MappingsFormat format, MappingsVisitor visitor) throws IOException {
+        try (BufferedReader reader = MappingsFiles.newReader(input)) {
+            format.parse(reader, visitor);
+        }
+    }
+
+    /**
+     * Writes SRG lines for the visited records.
+     * <p>
+     * If a record doesn't include the renamed owner or descriptor, they're computed with the remapper.
+     * </p>
+     */
+    private static final class SrgWriter implements MappingsVisitor {
+        private final Appendable output;
+        @Nullable
+        private final SignatureRemapper remapper;
+
+        private SrgWriter(Appendable output, @Nullable SignatureRemapper remapper) {
+            this.output = output;
+            this.remapper = remapper;
+        }
+
+        @Override
+        public void visitPackage(String original, String renamed) {
+            try {
+                output.append("PK: ").append(original).append(' ').append(renamed).append('\n');
+            } catch (IOException e) {
+                throw Exceptions.sneakyThrow(e);
+            }
+        }
+
+        @Override
+        public void visitClass(String original, String renamed) {
+            try {
+                output.append("CL: ").append(original).append(' ').append(renamed).append('\n');
+            } catch (IOException e) {
+                throw Exceptions.sneakyThrow(e);
+            }
+        }
+
+        @Override
+        public void visitField(String owner, String name, @Nullable String renamedOwner, String renamedName) {
+            try {
+                output.append("FD: ").append(owner).append('/').append(name).append(' ')
+                        .append(renamedOwner != null ? renamedOwner : remapper().remapClassName(owner))
+                        .append('/').append(renamedName).append('\n');
+            } catch (IOException e) {
+                throw Exceptions.sneakyThrow(e);
+            }
+        }
+
+        @Override
+        public void visitMethod(
+                String owner,
+                String name,
+                String descriptor,
+                @Nullable String renamedOwner,
+                String renamedName,
+                @Nullable String renamedDescriptor
+        ) {
+            try {
+                output.append("MD: ").append(owner).append('/').append(name).append(' ').append(descriptor).append(' ')
+                        .append(renamedOwner != null ? renamedOwner : remapper().remapClassName(owner))
+                        .append('/').append(renamedName).append(' ')
+                        .append(renamedDescriptor != null ? renamedDescriptor : remapper().remapDescriptor(descriptor))
+                        .append('\n');
+            } catch (IOException e) {
+                throw Exceptions.sneakyThrow(e);
+            }
+        }
+
+        private SignatureRemapper remapper() {
+            if (remapper == null) throw new IllegalStateException("No class table to compute renamed types with");
+            return remapper;
+        }
+    }
+
+    /**
+     * Writes compact SRG lines for the visited records.
+     */
+    private static final class CompactSrgWriter implements MappingsVisitor {
+        private final Appendable output;
+
+        private CompactSrgWriter(Appendable output) {
+            this.output = output;
+        }
+
+        @Override
+        public void visitClass(String original, String renamed) {
+            try {
+                output.append(original).append(' ').append(renamed).append('\n');
+            } catch (IOException e) {
+                throw Exceptions.sneakyThrow(e);
+            }
+        }
+
+        @Override
+        public void visitField(String owner, String name, @Nullable String renamedOwner, String renamedName) {
+            try {
+                output.append(owner).append(' ').append(name).append(' ').append(renamedName).append('\n');
+            } catch (IOException e) {
+                throw Exceptions.sneakyThrow(e);
+            }
+        }
+
+        @Override
+        public void visitMethod(
+                String owner,
+                String name,
+                String descriptor,
+                @Nullable String renamedOwner,
+                String renamedName,
+                @Nullable String renamedDescriptor
+        ) {
+            try {
+                output.append(owner).append(' ').append(name).append(' ').append(descriptor).append(' ')
+                        .append(renamedName).append('\n');
+            } catch (IOException e) {
+                throw Exceptions.sneakyThrow(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package net.techcable.srglib.format;
+
+import net.techcable.srglib.utils.ChannelWriter;
+import net.techcable.srglib.utils.GzipPipe;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Opens mappings files for reading and writing, transparently handling gzip compression.
+ * <p>
+ * Compressed files are detected by their magic bytes when reading,
+ * and by a {@code .gz} extension when writing.
+ * </p>
+ */
+/* package */ final class MappingsFiles {
+    private MappingsFiles() {}
+
+    /* package */ static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int MAGIC_LENGTH = 2;
+
+    /**
+     * Open the specified file for reading, decompressing it if it's gzipped.
+     */
+    /* package */ static BufferedReader newReader(Path path) throws IOException {
+        PushbackInputStream in = new PushbackInputStream(Files.newInputStream(path), MAGIC_LENGTH);
+        InputStream result = in;
+        try {
+            byte[] header = new byte[MAGIC_LENGTH];
+            int length = readHeader(in, header);
+            in.unread(header, 0, length);
+            if (GzipPipe.isCompressed(header, length)) {
+                result = GzipPipe.decompress(in);
+            }
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+        return new BufferedReader(new InputStreamReader(result, StandardCharsets.UTF_8), READ_BUFFER_SIZE);
+    }
+
+    /**
+     * Return if the specified file starts with the gzip magic bytes.
+     */
+    /* package */ static boolean isCompressed(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            byte[] header = new byte[MAGIC_LENGTH];
+            int length = readHeader(in, header);
+            return GzipPipe.isCompressed(header, length);
+        }
+    }
+
+    private static int readHeader(InputStream in, byte[] header) throws IOException {
+        int length = 0, read;
+        while (length < header.length && (read = in.read(header, length, header.length - length)) >= 0) {
+            length += read;
+        }
+        return length;
+    }
+
+    /**
+     * Open the specified file for writing, replacing any existing contents,
+     * and compressing the output if the file name ends with {@code .gz}.
+     */
+    /* package */ static ChannelWriter newWriter(Path path) throws IOException {
+        Path fileName = path.getFileName();
+        if (fileName != null && fileName.toString().endsWith(".gz")) {
+            return new ChannelWriter(Channels.newChannel(GzipPipe.compress(Files.newOutputStream(path))));
+        }
+        return new ChannelWriter(FileChannel.open(
+                path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE
+        ));
+    }
+}
@@ -0,0 +1,100 @@
+package net.techcable.srglib.format;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A predicate on the original owner class of a mappings record, used to load only part of a mappings file.
+ * <p>
+ * Filters are tested on the owner's internal name as it appears in the line,
+ * before the rest of the line is parsed, so rejected lines cost little more than reading them.
+ * The name is a reused view into the line, and must not be retained.
+ * Class records are filtered by their original name, and member records by their original declaring class.
+ * </p>
+ *
+ * @see MappingsFormat#parse(java.io.BufferedReader, MappingsFilter)
+ */
+@FunctionalInterface
+public interface MappingsFilter {
+    /**
+     * Return if records owned by the specified class should be loaded.
+     *
+     * @param owner the original internal name of the class
+     * @return if the records should be loaded
+     */
+    boolean test(CharSequence owner);
+
+    /**
+     * Return a filter accepting classes whose internal names start with any of the specified prefixes.
+     *
+     * @param prefixes the internal name prefixes to accept
+     * @return a prefix filter
+     */
+    static MappingsFilter prefixes(String... prefixes) {
+        return prefixes(Arrays.asList(prefixes));
+    }
+
+    /**
+     * Return a filter accepting classes whose internal names start with any of the specified prefixes.
+     *
+     * @param prefixes the internal name prefixes to accept
+     * @return a prefix filter
+     */
+    static MappingsFilter prefixes(Collection<String> prefixes) {
+        String[] sorted = prefixes.toArray(new String[0]);
+        for (String prefix : sorted) {
+            requireNonNull(prefix, "Null prefix");
+        }
+        // Check the longest prefixes first, since they're the most specific
+        Arrays.sort(sorted, Comparator.comparingInt(String::length).reversed());
+        return owner -> {
+            int length = owner.length();
+            outer:
+            for (String prefix : sorted) {
+                int prefixLength = prefix.length();
+                if (prefixLength > length) continue;
+                for (int i = 0; i < prefixLength; i++) {
+                    if (owner.charAt(i) != prefix.charAt(i)) continue outer;
+                }
+                return true;
+            }
+            return false;
+        };
+    }
+
+    /**
+     * Return a filter accepting classes in any of the specified packages, or their subpackages.
+     * <p>
+     * Package names may be given with either '.' or '/' separators.
+     * An empty name accepts the default package only.
+     * </p>
+     *
+     * @param packages the packages to accept
+     * @return a package filter
+     */
+    static MappingsFilter packages(String... packages) {
+        String[] prefixes = new String[packages.length];
+        boolean defaultPackage = false;
+        for (int i = 0; i < packages.length; i++) {
+            String packageName = requireNonNull(packages[i], "Null package").replace('.', '/');
+            if (packageName.isEmpty()) {
+                defaultPackage = true;
+                prefixes[i] = "/"; // Can never match
+            } else {
+                prefixes[i] = packageName.endsWith("/") ? packageName : packageName + "/";
+            }
+        }
+        MappingsFilter prefixFilter = prefixes(prefixes);
+        if (!defaultPackage) return prefixFilter;
+        return owner -> {
+            if (prefixFilter.test(owner)) return true;
+            for (int i = 0, length = owner.length(); i < length; i++) {
+                if (owner.charAt(i) == '/') return false;
+            }
+            return true; // In the default package
+        };
+    }
+}
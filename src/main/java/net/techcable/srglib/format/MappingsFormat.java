@@ -1,6 +1,7 @@
 package net.techcable.srglib.format;
 
 import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.utils.ChannelWriter;
 import net.techcable.srglib.utils.Exceptions;
 import net.techcable.srglib.utils.LineProcessor;
 
@@ -8,11 +9,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.StringWriter;
-import java.io.Writer;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
@@ -27,6 +24,10 @@ import static net.techcable.srglib.utils.Exceptions.sneakyThrowing;
 public interface MappingsFormat {
     MappingsFormat SEARGE_FORMAT = SrgMappingsFormat.INSTANCE;
     MappingsFormat COMPACT_SEARGE_FORMAT = CompactSrgMappingsFormat.INSTANCE;
+    MappingsFormat TSRG_FORMAT = TsrgMappingsFormat.INSTANCE;
+    TinyMappingsFormat TINY_V2_FORMAT = TinyMappingsFormat.INSTANCE;
+    ProGuardMappingsFormat PROGUARD_FORMAT = ProGuardMappingsFormat.INSTANCE;
+    EnigmaMappingsFormat ENIGMA_FORMAT = EnigmaMappingsFormat.INSTANCE;
 
     default Mappings parse(BufferedReader readable) throws IOException {
         LineProcessor<Mappings> lineProcessor = createLineProcessor();
@@ -39,12 +40,70 @@ public interface MappingsFormat {
         return lineProcessor.getResult();
     }
 
+    /**
+     * Parse the specified mappings, passing each record to the specified visitor as it's read.
+     * <p>
+     * Nothing is retained between lines, so arbitrarily large files can be processed in constant memory.
+     * </p>
+     *
+     * @param reader  the reader to parse from
+     * @param visitor the visitor to receive the records
+     * @throws IOException                   if an error occurs reading
+     * @throws IllegalArgumentException      if a line is invalid
+     * @throws UnsupportedOperationException if this format doesn't support streaming
+     */
+    default void parse(BufferedReader reader, MappingsVisitor visitor) throws IOException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " doesn't support streaming");
+    }
+
+    /**
+     * Parse only the records accepted by the specified filter.
+     * <p>
+     * Rejected lines are skipped after reading their owner, without parsing any types or signatures.
+     * Classes rejected by the filter aren't renamed, even in the signatures of accepted members.
+     * </p>
+     *
+     * @param reader the reader to parse from
+     * @param filter the filter on the records' original owners
+     * @return the accepted mappings
+     * @throws IOException                   if an error occurs reading
+     * @throws IllegalArgumentException      if an accepted line is invalid
+     * @throws UnsupportedOperationException if this format doesn't support filtering
+     */
+    default Mappings parse(BufferedReader reader, MappingsFilter filter) throws IOException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " doesn't support filtering");
+    }
+
+    /**
+     * Parse only the records in the specified file accepted by the specified filter.
+     * <p>
+     * Like all the {@code parseFile} methods, gzip compressed files are detected and decompressed transparently.
+     * </p>
+     *
+     * @param path   the file to parse
+     * @param filter the filter on the records' original owners
+     * @return the accepted mappings
+     * @throws IOException if an error occurs reading
+     * @see #parse(BufferedReader, MappingsFilter)
+     */
+    default Mappings parseFile(Path path, MappingsFilter filter) throws IOException {
+        try (BufferedReader in = MappingsFiles.newReader(path)) {
+            return parse(in, filter);
+        }
+    }
+
+    default void parseFile(Path path, MappingsVisitor visitor) throws IOException {
+        try (BufferedReader in = MappingsFiles.newReader(path)) {
+            parse(in, visitor);
+        }
+    }
+
     default Mappings parseFile(File file) throws IOException {
         return parseFile(file.toPath());
     }
 
     default Mappings parseFile(Path path) throws IOException {
-        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+        try (BufferedReader in = MappingsFiles.newReader(path)) {
             return parse(in);
         }
     }
@@ -65,18 +124,69 @@ public interface MappingsFormat {
 
     LineProcessor<Mappings> createLineProcessor();
 
+    /**
+     * Write the specified mappings to the specified output.
+     * <p>
+     * Not every format can be written from plain mappings:
+     * {@link #TINY_V2_FORMAT}, {@link #PROGUARD_FORMAT} and {@link #ENIGMA_FORMAT} need the types of fields,
+     * which mappings don't have, so they always throw.
+     * </p>
+     *
+     * @param mappings the mappings to write
+     * @param output   the output to write to
+     * @throws IOException                   if an error occurs writing
+     * @throws UnsupportedOperationException if this format can't be written from plain mappings
+     */
     void write(Mappings mappings, Appendable output) throws IOException;
 
+    /**
+     * Write the specified mappings in a deterministic order.
+     * <p>
+     * Classes are sorted by internal name, fields by declaring type and name,
+     * and methods by declaring type, name and descriptor,
+     * so equal mappings always produce byte-identical output, regardless of how they were built.
+     * Large mappings are sorted and formatted in parallel.
+     * </p>
+     *
+     * @param mappings the mappings to write
+     * @param output   the output to write to
+     * @throws IOException                   if an error occurs writing
+     * @throws UnsupportedOperationException if this format doesn't support sorted output
+     */
+    default void writeSorted(Mappings mappings, Appendable output) throws IOException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " doesn't support sorted output");
+    }
+
     default void writeToFile(Mappings mappings, File file) throws IOException {
         writeToFile(mappings, file.toPath());
     }
 
+    /**
+     * Write the specified mappings to the specified file, replacing any existing contents.
+     * <p>
+     * The output is encoded as UTF-8 directly into a reusable buffer,
+     * and written to the file in large chunks.
+     * If the file name ends with {@code .gz}, the output is gzip compressed on a separate thread.
+     * </p>
+     *
+     * @param mappings the mappings to write
+     * @param path     the file to write to
+     * @throws IOException                   if an error occurs writing
+     * @throws UnsupportedOperationException if this format can't be written, as with {@link #write(Mappings, Appendable)}
+     */
     default void writeToFile(Mappings mappings, Path path) throws IOException {
-        try (Writer out = Files.newBufferedWriter(path, StandardOpenOption.WRITE)) {
+        try (ChannelWriter out = MappingsFiles.newWriter(path)) {
             write(mappings, out);
         }
     }
 
+    /**
+     * Write the specified mappings as a list of lines.
+     *
+     * @param mappings the mappings to write
+     * @return the lines of the written mappings
+     * @throws UnsupportedOperationException if this format can't be written, as with {@link #write(Mappings, Appendable)}
+     */
     default List<String> toLines(Mappings mappings) {
         StringWriter result = new StringWriter();
         return sneakyThrowing(() -> {
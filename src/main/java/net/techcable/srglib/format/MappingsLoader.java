@@ -0,0 +1,133 @@
+package net.techcable.srglib.format;
+
+import net.techcable.srglib.mappings.Mappings;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Loads mappings files asynchronously, so several files can be read and parsed at once.
+ * <p>
+ * Each file is read through an {@link java.nio.channels.AsynchronousFileChannel},
+ * which reads the next chunk of the file while the current one is parsed,
+ * and is parsed on the loader's executor.
+ * Gzip compressed files are inflated on a separate thread instead.
+ * By default, files are parsed on virtual threads where they're available,
+ * and otherwise on a shared pool bounded by the number of processors.
+ * </p>
+ */
+public final class MappingsLoader {
+    private final Executor executor;
+
+    /**
+     * Create a loader that parses on the default executor.
+     */
+    public MappingsLoader() {
+        this(DefaultExecutor.INSTANCE);
+    }
+
+    /**
+     * Create a loader that parses on the specified executor.
+     *
+     * @param executor the executor to parse on
+     */
+    public MappingsLoader(Executor executor) {
+        this.executor = requireNonNull(executor, "Null executor");
+    }
+
+    /**
+     * Asynchronously load the specified file.
+     *
+     * @param path   the file to load
+     * @param format the format of the file
+     * @return a future of the mappings, which completes exceptionally if reading or parsing fails
+     */
+    public CompletableFuture<Mappings> load(Path path, MappingsFormat format) {
+        requireNonNull(path, "Null path");
+        requireNonNull(format, "Null format");
+        return CompletableFuture.supplyAsync(() -> {
+            try (BufferedReader reader = MappingsFiles.isCompressed(path)
+                    ? MappingsFiles.newReader(path) // Already inflated on a separate thread
+                    : new BufferedReader(PrefetchingReader.open(path), MappingsFiles.READ_BUFFER_SIZE)) {
+                return format.parse(reader);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Asynchronously load all the specified files at once.
+     *
+     * @param paths  the files to load
+     * @param format the format of the files
+     * @return a future of the mappings, in the same order as the files
+     */
+    public CompletableFuture<List<Mappings>> loadAll(List<Path> paths, MappingsFormat format) {
+        List<CompletableFuture<Mappings>> futures = new ArrayList<>(paths.size());
+        for (Path path : paths) {
+            futures.add(load(path, format));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            List<Mappings> result = new ArrayList<>(futures.size());
+            for (CompletableFuture<Mappings> future : futures) {
+                result.add(future.join());
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Asynchronously load all the specified files at once, and {@link Mappings#chain(Mappings...) chain} them in order.
+     * <p>
+     * Adjacent mappings are chained as soon as both have loaded,
+     * so chaining overlaps with loading the remaining files.
+     * </p>
+     *
+     * @param paths  the files to load, in chaining order
+     * @param format the format of the files
+     * @return a future of the chained mappings
+     * @throws IllegalArgumentException if there are no files
+     */
+    public CompletableFuture<Mappings> loadChained(List<Path> paths, MappingsFormat format) {
+        if (paths.isEmpty()) throw new IllegalArgumentException("No files to load");
+        CompletableFuture<Mappings> result = null;
+        for (Path path : paths) {
+            CompletableFuture<Mappings> future = load(path, format);
+            result = result == null ? future : result.thenCombineAsync(future, (first, second) -> Mappings.chain(first, second), executor);
+        }
+        return result;
+    }
+
+    private static final class DefaultExecutor {
+        private static final Executor INSTANCE = create();
+
+        private static Executor create() {
+            try {
+                // Java 21+
+                Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) method.invoke(null);
+            } catch (ReflectiveOperationException ignored) {
+                // Fall back to platform threads
+            }
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), task -> {
+                Thread thread = new Thread(task, "SrgLib mappings loader #" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
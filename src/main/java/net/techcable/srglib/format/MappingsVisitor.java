@@ -0,0 +1,63 @@
+package net.techcable.srglib.format;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Receives the records of a mappings file as they're parsed, without building any {@link net.techcable.srglib.mappings.Mappings}.
+ * <p>
+ * Events are delivered in file order, with all names given as internal names,
+ * so visitors can count, filter, index or convert entries in constant memory.
+ * Names are passed through as they appear in the file, and aren't validated.
+ * Formats that don't record some part of a renamed member pass null for it,
+ * since it has to be derived from the class records.
+ * All events are ignored by default.
+ * </p>
+ *
+ * @see MappingsFormat#parse(java.io.BufferedReader, MappingsVisitor)
+ */
+public interface MappingsVisitor {
+    /**
+     * Visit a package mapping.
+     *
+     * @param original the original package name
+     * @param renamed  the new package name
+     */
+    default void visitPackage(String original, String renamed) {}
+
+    /**
+     * Visit a class mapping.
+     *
+     * @param original the original internal name
+     * @param renamed  the new internal name
+     */
+    default void visitClass(String original, String renamed) {}
+
+    /**
+     * Visit a field mapping.
+     *
+     * @param owner        the internal name of the original declaring class
+     * @param name         the original name
+     * @param renamedOwner the internal name of the new declaring class, or null if the format doesn't record it
+     * @param renamedName  the new name
+     */
+    default void visitField(String owner, String name, @Nullable String renamedOwner, String renamedName) {}
+
+    /**
+     * Visit a method mapping.
+     *
+     * @param owner             the internal name of the original declaring class
+     * @param name              the original name
+     * @param descriptor        the original descriptor
+     * @param renamedOwner      the internal name of the new declaring class, or null if the format doesn't record it
+     * @param renamedName       the new name
+     * @param renamedDescriptor the new descriptor, or null if the format doesn't record it
+     */
+    default void visitMethod(
+            String owner,
+            String name,
+            String descriptor,
+            @Nullable String renamedOwner,
+            String renamedName,
+            @Nullable String renamedDescriptor
+    ) {}
+}
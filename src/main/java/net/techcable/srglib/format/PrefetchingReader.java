@@ -0,0 +1,128 @@
+package net.techcable.srglib.format;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Reads a UTF-8 file through an {@link AsynchronousFileChannel}, reading the next chunk while the current one is decoded.
+ * <p>
+ * Two buffers trade places: while the caller consumes one, the channel fills the other,
+ * so disk reads overlap with decoding and parsing.
+ * Malformed input is replaced, like {@link java.io.InputStreamReader}.
+ * </p>
+ */
+/* package */ final class PrefetchingReader extends Reader {
+    private static final int CHUNK_SIZE = 256 * 1024;
+    /**
+     * Room in front of each chunk, for the incomplete character left over from the previous chunk.
+     */
+    private static final int SLACK = 8;
+    private final AsynchronousFileChannel channel;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharBuffer chars = CharBuffer.allocate(16 * 1024);
+    private ByteBuffer current, next;
+    private Future<Integer> pending;
+    private long position;
+    private boolean endOfInput, flushed;
+
+    private PrefetchingReader(AsynchronousFileChannel channel) {
+        this.channel = channel;
+        this.current = ByteBuffer.allocate(SLACK + CHUNK_SIZE);
+        this.next = ByteBuffer.allocate(SLACK + CHUNK_SIZE);
+        current.position(SLACK).limit(SLACK); // Empty
+        chars.limit(0);
+        startRead();
+    }
+
+    /* package */ static PrefetchingReader open(Path path) throws IOException {
+        return new PrefetchingReader(AsynchronousFileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    private void startRead() {
+        next.clear().position(SLACK);
+        pending = channel.read(next, position);
+    }
+
+    /**
+     * Wait for the pending read, and make it the current chunk, keeping any leftover bytes in front of it.
+     */
+    private void awaitRead() throws IOException {
+        int read;
+        try {
+            read = pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted reading file");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IOException(cause);
+        }
+        int leftover = current.remaining();
+        assert leftover <= SLACK;
+        int start = SLACK - leftover;
+        for (int i = 0; i < leftover; i++) {
+            next.put(start + i, current.get(current.position() + i));
+        }
+        int end = read > 0 ? SLACK + read : SLACK;
+        next.limit(end).position(start);
+        ByteBuffer temp = current;
+        current = next;
+        next = temp;
+        if (read < 0) {
+            endOfInput = true;
+        } else {
+            position += read;
+            startRead();
+        }
+    }
+
+    private boolean fill() throws IOException {
+        if (flushed) return false;
+        chars.clear();
+        while (true) {
+            CoderResult result = decoder.decode(current, chars, endOfInput);
+            if (endOfInput && result.isUnderflow()) {
+                decoder.flush(chars);
+                flushed = true;
+            }
+            if (chars.position() > 0 || flushed) {
+                chars.flip();
+                return chars.hasRemaining();
+            }
+            awaitRead();
+        }
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        if (pending == null) throw new IOException("Reader closed");
+        if (length == 0) return 0;
+        if (!chars.hasRemaining() && !fill()) return -1;
+        int count = Math.min(length, chars.remaining());
+        chars.get(buffer, offset, count);
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (pending == null) return;
+        pending.cancel(false);
+        pending = null;
+        channel.close();
+    }
+}
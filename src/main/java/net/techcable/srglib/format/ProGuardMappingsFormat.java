@@ -0,0 +1,366 @@
+package net.techcable.srglib.format;
+
+import net.techcable.srglib.JavaType;
+import net.techcable.srglib.MethodData;
+import net.techcable.srglib.MethodSignature;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.utils.CharSlice;
+import net.techcable.srglib.utils.LineProcessor;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The ProGuard (and R8) {@code mapping.txt} format, mapping source names to obfuscated names.
+ * <p>
+ * Classes are listed as {@code com.example.Foo -> a.b:}, followed by their indented members,
+ * which use Java source types, like {@code int compute(int,java.lang.String[]) -> c}.
+ * The parsed mappings map the original source names to the obfuscated names, just like the file,
+ * so use {@link Mappings#inverted()} to deobfuscate.
+ * </p>
+ * <p>
+ * Methods may be prefixed with the range of obfuscated lines they cover, and followed by the original lines.
+ * When several methods share the same obfuscated range, the line was inlined,
+ * and only the last (outermost) method is the actual obfuscated method.
+ * The ranges can optionally be kept in a {@link LineNumberTable}, for retracing stack traces.
+ * Comments, including R8's metadata, and constructors, which are never renamed, are skipped.
+ * </p>
+ * <p>
+ * Writing isn't supported, since mappings don't know the types of fields.
+ * </p>
+ *
+ * @see MappingsFormat#PROGUARD_FORMAT
+ */
+public final class ProGuardMappingsFormat implements MappingsFormat {
+    /* package */ static final ProGuardMappingsFormat INSTANCE = new ProGuardMappingsFormat();
+    private static final String ARROW = " -> ";
+
+    private ProGuardMappingsFormat() {}
+
+    /**
+     * Parse the specified mappings, collecting the line number ranges of the methods into the specified builder.
+     *
+     * @param reader      the reader to parse from
+     * @param lineNumbers the builder to add the line number ranges to
+     * @return the mappings
+     * @throws IOException              if an error occurs reading
+     * @throws IllegalArgumentException if a line is invalid
+     */
+    public Mappings parseWithLineNumbers(BufferedReader reader, LineNumberTable.Builder lineNumbers) throws IOException {
+        ProGuardLineProcessor processor = new ProGuardLineProcessor(null, requireNonNull(lineNumbers, "Null line numbers"));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            processor.parseLine(line);
+        }
+        return processor.getResult();
+    }
+
+    @Override
+    public LineProcessor<Mappings> createLineProcessor() {
+        return new ProGuardLineProcessor(null, null);
+    }
+
+    @Override
+    public void parse(BufferedReader reader, MappingsVisitor visitor) throws IOException {
+        ProGuardEventParser parser = new ProGuardEventParser(requireNonNull(visitor, "Null visitor"), null, null);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            parser.parseLine(line);
+        }
+        parser.finish();
+    }
+
+    @Override
+    public Mappings parse(BufferedReader reader, MappingsFilter filter) throws IOException {
+        ProGuardLineProcessor processor = new ProGuardLineProcessor(requireNonNull(filter, "Null filter"), null);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            processor.parseLine(line);
+        }
+        return processor.getResult();
+    }
+
+    @Override
+    public void write(Mappings mappings, Appendable output) throws IOException {
+        throw new UnsupportedOperationException("ProGuard mappings need field types, which mappings don't have");
+    }
+
+    /**
+     * Convert the specified Java source type, like {@code java.lang.String[]}, to a descriptor.
+     */
+    private static void appendDescriptor(String type, int start, int end, StringBuilder output) {
+        while (end - start > 2 && type.charAt(end - 1) == ']' && type.charAt(end - 2) == '[') {
+            output.append('[');
+            end -= 2;
+        }
+        char primitive = primitiveDescriptor(type, start, end);
+        if (primitive != 0) {
+            output.append(primitive);
+            return;
+        }
+        output.append('L');
+        for (int i = start; i < end; i++) {
+            char c = type.charAt(i);
+            output.append(c == '.' ? '/' : c);
+        }
+        output.append(';');
+    }
+
+    private static char primitiveDescriptor(String type, int start, int end) {
+        switch (end - start) {
+            case 3:
+                if (type.startsWith("int", start)) return 'I';
+                break;
+            case 4:
+                if (type.startsWith("void", start)) return 'V';
+                if (type.startsWith("byte", start)) return 'B';
+                if (type.startsWith("char", start)) return 'C';
+                if (type.startsWith("long", start)) return 'J';
+                break;
+            case 5:
+                if (type.startsWith("short", start)) return 'S';
+                if (type.startsWith("float", start)) return 'F';
+                break;
+            case 6:
+                if (type.startsWith("double", start)) return 'D';
+                break;
+            case 7:
+                if (type.startsWith("boolean", start)) return 'Z';
+                break;
+        }
+        return 0;
+    }
+
+    /**
+     * Parses ProGuard lines into {@link MappingsVisitor} events.
+     * <p>
+     * Each method line is held back until the next line,
+     * since it's only an inlined frame if the next method has the same obfuscated range and name.
+     * Call {@link #finish()} after the last line.
+     * </p>
+     */
+    /* package */ static final class ProGuardEventParser {
+        private final MappingsVisitor visitor;
+        @Nullable
+        private final MappingsFilter filter;
+        /**
+         * The line number ranges, or null to skip them.
+         */
+        private final LineNumberTable.@Nullable Builder lineNumbers;
+        private final CharSlice ownerSlice = new CharSlice();
+        private final StringBuilder descriptorBuilder = new StringBuilder();
+        @Nullable
+        private String owner, renamedOwner;
+        private boolean skipping;
+        // The method waiting for the next line
+        @Nullable
+        private String pendingName, pendingDescriptor, pendingRenamedName;
+        private int pendingStart = -1, pendingEnd = -1;
+        // The last original method of a line range, and its descriptor
+        @Nullable
+        private MethodData lastOriginal;
+        @Nullable
+        private String lastOriginalDescriptor;
+
+        /* package */ ProGuardEventParser(
+                MappingsVisitor visitor,
+                @Nullable MappingsFilter filter,
+                LineNumberTable.@Nullable Builder lineNumbers
+        ) {
+            this.visitor = visitor;
+            this.filter = filter;
+            this.lineNumbers = lineNumbers;
+        }
+
+        public void parseLine(@NonNull String line) {
+            int length = line.length();
+            int start = 0;
+            while (start < length && Character.isWhitespace(line.charAt(start))) {
+                start++;
+            }
+            if (start == length || line.charAt(start) == '#') return;
+            if (start == 0) {
+                parseClass(line.trim());
+            } else {
+                if (owner == null) throw new IllegalArgumentException("Member before any class: " + line);
+                if (!skipping) parseMember(line.trim());
+            }
+        }
+
+        private void parseClass(String line) {
+            flush();
+            int arrow = line.indexOf(ARROW);
+            if (arrow <= 0 || !line.endsWith(":")) throw new IllegalArgumentException("Invalid class line: " + line);
+            String owner = line.substring(0, arrow).replace('.', '/');
+            this.owner = owner;
+            if (filter != null && !filter.test(ownerSlice.set(owner, 0, owner.length()))) {
+                skipping = true;
+                return;
+            }
+            skipping = false;
+            renamedOwner = line.substring(arrow + ARROW.length(), line.length() - 1).replace('.', '/');
+            visitor.visitClass(owner, renamedOwner);
+        }
+
+        private void parseMember(String line) {
+            int arrow = line.lastIndexOf(ARROW);
+            if (arrow <= 0) throw new IllegalArgumentException("Invalid member line: " + line);
+            String renamedName = line.substring(arrow + ARROW.length());
+            // Optional obfuscated line range, like "12:14:"
+            int index = 0, obfuscatedStart = -1, obfuscatedEnd = -1;
+            if (Character.isDigit(line.charAt(0))) {
+                int colon = line.indexOf(':');
+                obfuscatedStart = obfuscatedEnd = parseInt(line, 0, colon);
+                index = colon + 1;
+                if (Character.isDigit(line.charAt(index))) {
+                    colon = line.indexOf(':', index);
+                    obfuscatedEnd = parseInt(line, index, colon);
+                    index = colon + 1;
+                }
+            }
+            int typeEnd = line.indexOf(' ', index);
+            if (typeEnd < 0 || typeEnd > arrow) throw new IllegalArgumentException("Invalid member line: " + line);
+            int paren = line.indexOf('(', typeEnd);
+            if (paren < 0 || paren > arrow) {
+                // Field
+                flush();
+                visitor.visitField(owner, line.substring(typeEnd + 1, arrow), renamedOwner, renamedName);
+                return;
+            }
+            int close = line.indexOf(')', paren);
+            if (close < 0 || close > arrow) throw new IllegalArgumentException("Invalid member line: " + line);
+            StringBuilder descriptor = descriptorBuilder;
+            descriptor.setLength(0);
+            descriptor.append('(');
+            for (int parameter = paren + 1; parameter < close; ) {
+                int end = line.indexOf(',', parameter);
+                if (end < 0 || end > close) end = close;
+                appendDescriptor(line, parameter, end, descriptor);
+                parameter = end + 1;
+            }
+            descriptor.append(')');
+            appendDescriptor(line, index, typeEnd, descriptor);
+            String name = line.substring(typeEnd + 1, paren);
+            String methodDescriptor = descriptor.toString();
+            // Optional original line range, like ":100:102"
+            int originalStart = obfuscatedStart, originalEnd = obfuscatedEnd;
+            if (close + 1 < arrow && line.charAt(close + 1) == ':') {
+                int colon = line.indexOf(':', close + 2);
+                if (colon < 0 || colon > arrow) {
+                    originalStart = originalEnd = parseInt(line, close + 2, arrow);
+                } else {
+                    originalStart = parseInt(line, close + 2, colon);
+                    originalEnd = parseInt(line, colon + 1, arrow);
+                }
+            }
+            if (pendingName != null && (obfuscatedStart < 0 || obfuscatedStart != pendingStart
+                    || obfuscatedEnd != pendingEnd || !renamedName.equals(pendingRenamedName))) {
+                flush(); // Not an inlining stack
+            }
+            pendingName = null; // Inlined into this method, if any
+            if (name.charAt(0) == '<') return; // Constructors and initializers are never renamed
+            if (lineNumbers != null && obfuscatedStart >= 0) {
+                assert renamedOwner != null;
+                MethodData original = originalMethod(name, methodDescriptor);
+                lineNumbers.addRange(renamedOwner, renamedName, obfuscatedStart, obfuscatedEnd, original, originalStart, originalEnd);
+            }
+            if (name.indexOf('.') >= 0) return; // Only in the line numbers
+            pendingName = name;
+            pendingDescriptor = methodDescriptor;
+            pendingRenamedName = renamedName;
+            pendingStart = obfuscatedStart;
+            pendingEnd = obfuscatedEnd;
+        }
+
+        /**
+         * Return the original method with the specified name, which is qualified if it was inlined from another class.
+         * <p>
+         * Consecutive ranges usually belong to the same method, so the last method is reused if it matches.
+         * </p>
+         */
+        private MethodData originalMethod(String name, String descriptor) {
+            String methodOwner = owner;
+            int dot = name.lastIndexOf('.');
+            if (dot >= 0) {
+                // Inlined from another class
+                methodOwner = name.substring(0, dot).replace('.', '/');
+                name = name.substring(dot + 1);
+            }
+            assert methodOwner != null;
+            MethodData last = this.lastOriginal;
+            if (last != null && last.getName().equals(name)
+                    && last.getDeclaringType().getInternalName().equals(methodOwner)
+                    && descriptor.equals(lastOriginalDescriptor)) {
+                return last;
+            }
+            last = MethodData.create(JavaType.fromInternalName(methodOwner), name, MethodSignature.fromDescriptor(descriptor));
+            this.lastOriginal = last;
+            this.lastOriginalDescriptor = descriptor;
+            return last;
+        }
+
+        private void flush() {
+            if (pendingName != null) {
+                assert pendingDescriptor != null && pendingRenamedName != null;
+                visitor.visitMethod(owner, pendingName, pendingDescriptor, renamedOwner, pendingRenamedName, null);
+                pendingName = null;
+            }
+        }
+
+        /**
+         * Finish parsing, visiting the last method.
+         */
+        /* package */ void finish() {
+            flush();
+        }
+
+        private static int parseInt(String line, int start, int end) {
+            if (start >= end) throw new IllegalArgumentException("Invalid line number in " + line);
+            int result = 0;
+            for (int i = start; i < end; i++) {
+                int digit = line.charAt(i) - '0';
+                if (digit < 0 || digit > 9 || result > (Integer.MAX_VALUE - digit) / 10) {
+                    throw new IllegalArgumentException("Invalid line number in " + line);
+                }
+                result = result * 10 + digit;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Builds mappings from ProGuard lines.
+     * <p>
+     * The renamed signatures aren't known until all the classes are read, so they're remapped at the end,
+     * just like the compact SRG format.
+     * </p>
+     */
+    private static final class ProGuardLineProcessor implements LineProcessor<Mappings> {
+        private final CompactSrgMappingsFormat.SrgLineProcessor builder = new CompactSrgMappingsFormat.SrgLineProcessor();
+        private final ProGuardEventParser parser;
+
+        private ProGuardLineProcessor(@Nullable MappingsFilter filter, LineNumberTable.@Nullable Builder lineNumbers) {
+            this.parser = new ProGuardEventParser(builder, filter, lineNumbers);
+        }
+
+        @Override
+        public boolean processLine(@NonNull String line) {
+            parseLine(line);
+            return true;
+        }
+
+        private void parseLine(@NonNull String line) {
+            parser.parseLine(line);
+        }
+
+        @Override
+        public Mappings getResult() {
+            parser.finish();
+            return builder.getResult();
+        }
+    }
+}
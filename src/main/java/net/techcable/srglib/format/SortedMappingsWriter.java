@@ -0,0 +1,100 @@
+package net.techcable.srglib.format;
+
+import net.techcable.srglib.FieldData;
+import net.techcable.srglib.JavaType;
+import net.techcable.srglib.MethodData;
+import net.techcable.srglib.mappings.Mappings;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Writes mappings in a deterministic order, sorting and formatting large sections in parallel.
+ * <p>
+ * Classes are sorted by internal name, fields by declaring type and name,
+ * and methods by declaring type, name and descriptor.
+ * Each section is split into chunks, which are formatted into separate buffers on the common pool,
+ * and then appended to the output in order.
+ * </p>
+ */
+/* package */ final class SortedMappingsWriter {
+    private SortedMappingsWriter() {}
+
+    /**
+     * Sections smaller than this are formatted on the calling thread.
+     */
+    private static final int MIN_CHUNK_SIZE = 4096;
+    /* package */ static final Comparator<JavaType> CLASS_ORDER = Comparator.comparing(JavaType::getInternalName);
+    /* package */ static final Comparator<FieldData> FIELD_ORDER = Comparator
+            .comparing((FieldData field) -> field.getDeclaringType().getInternalName())
+            .thenComparing(FieldData::getName);
+    /* package */ static final Comparator<MethodData> METHOD_ORDER = Comparator
+            .comparing((MethodData method) -> method.getDeclaringType().getInternalName())
+            .thenComparing(MethodData::getName)
+            .thenComparing(method -> method.getSignature().getDescriptor());
+
+    /* package */ interface RecordWriter<T> {
+        void write(T original, T renamed, Appendable output) throws IOException;
+    }
+
+    /* package */ static void write(
+            Mappings mappings,
+            Appendable output,
+            RecordWriter<JavaType> classWriter,
+            RecordWriter<FieldData> fieldWriter,
+            RecordWriter<MethodData> methodWriter
+    ) throws IOException {
+        JavaType[] classes = mappings.classes().toArray(new JavaType[0]);
+        FieldData[] fields = mappings.fields().toArray(new FieldData[0]);
+        MethodData[] methods = mappings.methods().toArray(new MethodData[0]);
+        Arrays.parallelSort(classes, CLASS_ORDER);
+        Arrays.parallelSort(fields, FIELD_ORDER);
+        Arrays.parallelSort(methods, METHOD_ORDER);
+        writeSection(classes, mappings::getNewType, classWriter, output);
+        writeSection(fields, mappings::getNewField, fieldWriter, output);
+        writeSection(methods, mappings::getNewMethod, methodWriter, output);
+    }
+
+    private static <T> void writeSection(
+            T[] originals,
+            Function<T, T> renamer,
+            RecordWriter<T> writer,
+            Appendable output
+    ) throws IOException {
+        if (originals.length < MIN_CHUNK_SIZE * 2) {
+            for (T original : originals) {
+                writer.write(original, renamer.apply(original), output);
+            }
+            return;
+        }
+        // Make a few chunks per thread, so uneven chunks still balance out
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, originals.length / (ForkJoinPool.getCommonPoolParallelism() * 4) + 1);
+        int chunks = (originals.length + chunkSize - 1) / chunkSize;
+        StringBuilder[] buffers;
+        try {
+            buffers = IntStream.range(0, chunks).parallel().mapToObj(chunk -> {
+                int start = chunk * chunkSize, end = Math.min(originals.length, start + chunkSize);
+                StringBuilder buffer = new StringBuilder((end - start) * 64);
+                try {
+                    for (int i = start; i < end; i++) {
+                        T original = originals[i];
+                        writer.write(original, renamer.apply(original), buffer);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return buffer;
+            }).toArray(StringBuilder[]::new);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        for (StringBuilder buffer : buffers) {
+            output.append(buffer);
+        }
+    }
+}
@@ -6,13 +6,18 @@ import net.techcable.srglib.MethodData;
 import net.techcable.srglib.MethodSignature;
 import net.techcable.srglib.mappings.Mappings;
 import net.techcable.srglib.mappings.MutableMappings;
+import net.techcable.srglib.utils.CharSlice;
 import net.techcable.srglib.utils.Exceptions;
 import net.techcable.srglib.utils.LineProcessor;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 
+import static java.util.Objects.requireNonNull;
+
 /* package */ class SrgMappingsFormat implements MappingsFormat {
     public static final SrgMappingsFormat INSTANCE = new SrgMappingsFormat();
 
@@ -24,89 +29,231 @@ import java.io.UncheckedIOException;
         return new SrgLineProcessor();
     }
 
+    @Override
+    public void parse(BufferedReader reader, MappingsVisitor visitor) throws IOException {
+        SrgEventParser parser = new SrgEventParser(requireNonNull(visitor, "Null visitor"), null);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            parser.parseLine(line);
+        }
+    }
+
+    @Override
+    public Mappings parse(BufferedReader reader, MappingsFilter filter) throws IOException {
+        SrgLineProcessor processor = new SrgLineProcessor(requireNonNull(filter, "Null filter"));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            processor.parseLine(line);
+        }
+        return processor.getResult();
+    }
+
     @Override
     public void write(Mappings mappings, Appendable output) throws IOException {
         try {
-            mappings.forEachClass(Exceptions.sneakyThrowing((original, renamed) -> {
-                output.append("CL: ");
-                output.append(original.getInternalName());
-                output.append(' ');
-                output.append(renamed.getInternalName());
-                output.append('\n');
-            }));
-            mappings.forEachField(Exceptions.sneakyThrowing((original, renamed) -> {
-                output.append("FD: ");
-                output.append(original.getInternalName());
-                output.append(' ');
-                output.append(renamed.getInternalName());
-                output.append('\n');
-            }));
-            mappings.forEachMethod(Exceptions.sneakyThrowing((original, renamed) -> {
-                output.append("MD: ");
-                output.append(original.getInternalName());
-                output.append(' ');
-                output.append(original.getSignature().getDescriptor());
-                output.append(' ');
-                output.append(renamed.getInternalName());
-                output.append(' ');
-                output.append(renamed.getSignature().getDescriptor());
-                output.append('\n');
-            }));
+            mappings.forEachClass(Exceptions.sneakyThrowing((original, renamed) -> writeClass(original, renamed, output)));
+            mappings.forEachField(Exceptions.sneakyThrowing((original, renamed) -> writeField(original, renamed, output)));
+            mappings.forEachMethod(Exceptions.sneakyThrowing((original, renamed) -> writeMethod(original, renamed, output)));
         } catch (UncheckedIOException e) {
             throw e.getCause();
         }
     }
 
-    /* package */ static class SrgLineProcessor implements LineProcessor<Mappings> {
-        private final MutableMappings result = MutableMappings.create();
+    @Override
+    public void writeSorted(Mappings mappings, Appendable output) throws IOException {
+        SortedMappingsWriter.write(
+                mappings,
+                output,
+                SrgMappingsFormat::writeClass,
+                SrgMappingsFormat::writeField,
+                SrgMappingsFormat::writeMethod
+        );
+    }
 
-        @Override
-        public boolean processLine(@NonNull String line) throws IOException {
-            parseLine(line);
-            return true;
+    private static void writeClass(JavaType original, JavaType renamed, Appendable output) throws IOException {
+        output.append("CL: ");
+        original.appendInternalName(output);
+        output.append(' ');
+        renamed.appendInternalName(output);
+        output.append('\n');
+    }
+
+    private static void writeField(FieldData original, FieldData renamed, Appendable output) throws IOException {
+        output.append("FD: ");
+        original.appendInternalName(output);
+        output.append(' ');
+        renamed.appendInternalName(output);
+        output.append('\n');
+    }
+
+    private static void writeMethod(MethodData original, MethodData renamed, Appendable output) throws IOException {
+        output.append("MD: ");
+        original.appendInternalName(output);
+        output.append(' ');
+        original.getSignature().appendDescriptor(output);
+        output.append(' ');
+        renamed.appendInternalName(output);
+        output.append(' ');
+        renamed.getSignature().appendDescriptor(output);
+        output.append('\n');
+    }
+
+    /**
+     * Parses SRG lines into {@link MappingsVisitor} events.
+     */
+    /* package */ static final class SrgEventParser {
+        private final MappingsVisitor visitor;
+        @Nullable
+        private final MappingsFilter filter;
+        private final String[] tokens = new String[4];
+        private final CharSlice owner = new CharSlice();
+
+        /* package */ SrgEventParser(MappingsVisitor visitor, @Nullable MappingsFilter filter) {
+            this.visitor = visitor;
+            this.filter = filter;
         }
 
         public void parseLine(@NonNull String line) {
             line = line.trim(); // Strip whitespace
             if (line.startsWith("#") || line.isEmpty()) return;
             if(line.length() < 4) throw new IllegalArgumentException("Invalid line: " + line);
-            String id = line.substring(0, 2);
-            String[] args = line.substring(4).split(" ");
-            final String originalInternalName, renamedInternalName;
-            switch (id) {
+            if (filter != null && !acceptOwner(line)) return;
+            String[] tokens = this.tokens;
+            int count = LineTokens.split(line, 4, tokens);
+            int separator;
+            switch (line.substring(0, 2)) {
                 case "MD":
-                    if(args.length != 4) throw new IllegalArgumentException("Invalid line: " + line);
-                    originalInternalName = args[0];
-                    MethodSignature originalSignature = MethodSignature.fromDescriptor(args[1]);
-                    renamedInternalName = args[2];
-                    MethodSignature renamedSignature = MethodSignature.fromDescriptor(args[3]);
-                    MethodData originalMethodData = MethodData.fromInternalName(originalInternalName, originalSignature);
-                    MethodData renamedMethodData = MethodData.fromInternalName(renamedInternalName, renamedSignature);
-                    result.putMethod(originalMethodData, renamedMethodData);
+                    if(count != 4) throw new IllegalArgumentException("Invalid line: " + line);
+                    int renamedSeparator;
+                    if ((separator = tokens[0].lastIndexOf('/')) < 0 || (renamedSeparator = tokens[2].lastIndexOf('/')) < 0) {
+                        throw new IllegalArgumentException("Invalid line: " + line);
+                    }
+                    visitor.visitMethod(
+                            tokens[0].substring(0, separator),
+                            tokens[0].substring(separator + 1),
+                            tokens[1],
+                            tokens[2].substring(0, renamedSeparator),
+                            tokens[2].substring(renamedSeparator + 1),
+                            tokens[3]
+                    );
                     return;
                 case "FD":
-                    if(args.length != 2) throw new IllegalArgumentException("Invalid line: " + line);
-                    originalInternalName = args[0];
-                    renamedInternalName = args[1];
-                    FieldData originalFieldData = FieldData.fromInternalName(originalInternalName);
-                    FieldData renamedFieldData = FieldData.fromInternalName(renamedInternalName);
-                    result.putField(originalFieldData, renamedFieldData);
+                    if(count != 2) throw new IllegalArgumentException("Invalid line: " + line);
+                    if ((separator = tokens[0].lastIndexOf('/')) < 0 || (renamedSeparator = tokens[1].lastIndexOf('/')) < 0) {
+                        throw new IllegalArgumentException("Invalid line: " + line);
+                    }
+                    visitor.visitField(
+                            tokens[0].substring(0, separator),
+                            tokens[0].substring(separator + 1),
+                            tokens[1].substring(0, renamedSeparator),
+                            tokens[1].substring(renamedSeparator + 1)
+                    );
                     return;
                 case "CL":
-                    if(args.length != 2) throw new IllegalArgumentException("Invalid line: " + line);
-                    originalInternalName = args[0];
-                    renamedInternalName = args[1];
-                    JavaType originalType = JavaType.fromInternalName(originalInternalName);
-                    JavaType renamedType = JavaType.fromInternalName(renamedInternalName);
-                    result.putClass(originalType, renamedType);
+                    if(count != 2) throw new IllegalArgumentException("Invalid line: " + line);
+                    visitor.visitClass(tokens[0], tokens[1]);
                     return;
                 case "PK":
-                    return; // Ignore packages, because they are stupid
+                    if (count == 2) visitor.visitPackage(tokens[0], tokens[1]);
+                    return;
                 default:
                     throw new IllegalArgumentException("Invalid line: " + line);
             }
         }
 
+        /**
+         * Test the filter on the owner of the specified line, without splitting it.
+         */
+        private boolean acceptOwner(String line) {
+            assert filter != null;
+            int end = line.indexOf(' ', 4);
+            if (end < 0) end = line.length();
+            switch (line.charAt(0)) {
+                case 'C':
+                    return filter.test(owner.set(line, 4, end));
+                case 'F':
+                case 'M':
+                    int separator = line.lastIndexOf('/', end - 1);
+                    // Let invalid lines through, so they still get reported
+                    return separator < 4 || filter.test(owner.set(line, 4, separator));
+                default:
+                    return true;
+            }
+        }
+    }
+
+    /* package */ static class SrgLineProcessor implements LineProcessor<Mappings>, MappingsVisitor {
+        private final MutableMappings result = MutableMappings.create();
+        private final SrgEventParser parser;
+        /**
+         * If the renamed members shouldn't be checked against the class table, since it's incomplete.
+         */
+        private final boolean filtered;
+
+        /* package */ SrgLineProcessor() {
+            this(null);
+        }
+
+        /* package */ SrgLineProcessor(@Nullable MappingsFilter filter) {
+            this.parser = new SrgEventParser(this, filter);
+            this.filtered = filter != null;
+        }
+
+        @Override
+        public boolean processLine(@NonNull String line) throws IOException {
+            parseLine(line);
+            return true;
+        }
+
+        public void parseLine(@NonNull String line) {
+            parser.parseLine(line);
+        }
+
+        @Override
+        public void visitClass(String original, String renamed) {
+            result.putClass(JavaType.fromInternalName(original), JavaType.fromInternalName(renamed));
+        }
+
+        @Override
+        public void visitField(String owner, String name, @Nullable String renamedOwner, String renamedName) {
+            if (filtered) {
+                result.putField(FieldData.create(JavaType.fromInternalName(owner), name), renamedName);
+                return;
+            }
+            result.putField(
+                    FieldData.create(JavaType.fromInternalName(owner), name),
+                    FieldData.create(JavaType.fromInternalName(requireNonNull(renamedOwner)), renamedName)
+            );
+        }
+
+        @Override
+        public void visitMethod(
+                String owner,
+                String name,
+                String descriptor,
+                @Nullable String renamedOwner,
+                String renamedName,
+                @Nullable String renamedDescriptor
+        ) {
+            if (filtered) {
+                result.putMethod(
+                        MethodData.create(JavaType.fromInternalName(owner), name, MethodSignature.fromDescriptor(descriptor)),
+                        renamedName
+                );
+                return;
+            }
+            result.putMethod(
+                    MethodData.create(JavaType.fromInternalName(owner), name, MethodSignature.fromDescriptor(descriptor)),
+                    MethodData.create(
+                            JavaType.fromInternalName(requireNonNull(renamedOwner)),
+                            renamedName,
+                            MethodSignature.fromDescriptor(requireNonNull(renamedDescriptor))
+                    )
+            );
+        }
+
+        // Packages are ignored, because they are stupid
+
         @Override
         public Mappings getResult() {
             return result;
@@ -0,0 +1,460 @@
+package net.techcable.srglib.format;
+
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.mappings.NamespacedMappings;
+import net.techcable.srglib.utils.LineProcessor;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The Tiny v2 format, which has a column of names for each of any number of namespaces.
+ * <p>
+ * Files are read in a single pass into {@link NamespacedMappings}, keeping every namespace.
+ * When used as a plain {@link MappingsFormat}, the result maps the first namespace to the second.
+ * Parameters, local variables and comments are skipped.
+ * </p>
+ * <p>
+ * Tiny files need the type of every field, which plain {@link Mappings} don't have,
+ * so only namespaced mappings can be written.
+ * </p>
+ *
+ * @see MappingsFormat#TINY_V2_FORMAT
+ */
+public final class TinyMappingsFormat implements MappingsFormat {
+    /* package */ static final TinyMappingsFormat INSTANCE = new TinyMappingsFormat();
+
+    private TinyMappingsFormat() {}
+
+    /**
+     * Parse namespaced mappings, keeping the names in every namespace.
+     *
+     * @param reader the reader to parse from
+     * @return the namespaced mappings
+     * @throws IOException              if an error occurs reading
+     * @throws IllegalArgumentException if the input is invalid
+     */
+    public NamespacedMappings parseNamespaced(BufferedReader reader) throws IOException {
+        TinyLineProcessor processor = new TinyLineProcessor();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            processor.parseLine(line);
+        }
+        return processor.getNamespacedResult();
+    }
+
+    /**
+     * Parse the specified namespaced mappings file, keeping the names in every namespace.
+     *
+     * @param path the file to parse
+     * @return the namespaced mappings
+     * @throws IOException              if an error occurs reading
+     * @throws IllegalArgumentException if the file is invalid
+     */
+    public NamespacedMappings parseNamespacedFile(Path path) throws IOException {
+        try (BufferedReader in = MappingsFiles.newReader(path)) {
+            return parseNamespaced(in);
+        }
+    }
+
+    /**
+     * Write the specified namespaced mappings.
+     * <p>
+     * If any name has a backslash or a control char that can't be written as is,
+     * the names are escaped and the header says so.
+     * </p>
+     *
+     * @param mappings the mappings to write
+     * @param output   the output to write to
+     * @throws IOException if an error occurs writing
+     */
+    public void writeNamespaced(NamespacedMappings mappings, Appendable output) throws IOException {
+        boolean escaped = needsEscaping(mappings);
+        output.append("tiny\t2\t0");
+        for (String namespace : mappings.getNamespaces()) {
+            output.append('\t').append(namespace);
+        }
+        output.append('\n');
+        if (escaped) output.append("\tescaped-names\n");
+        try {
+            mappings.accept(new NamespacedMappings.Visitor() {
+                @Override
+                public void visitClass(String[] names) {
+                    writeLine("c", null, names);
+                }
+
+                @Override
+                public void visitField(String descriptor, String[] names) {
+                    writeLine("\tf", descriptor, names);
+                }
+
+                @Override
+                public void visitMethod(String descriptor, String[] names) {
+                    writeLine("\tm", descriptor, names);
+                }
+
+                private void writeLine(String kind, @Nullable String descriptor, String[] names) {
+                    try {
+                        output.append(kind);
+                        if (descriptor != null) output.append('\t').append(descriptor);
+                        for (String name : names) {
+                            output.append('\t').append(escaped ? escape(name) : name);
+                        }
+                        output.append('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static boolean needsEscaping(NamespacedMappings mappings) {
+        boolean[] result = new boolean[1];
+        mappings.accept(new NamespacedMappings.Visitor() {
+            @Override
+            public void visitClass(String[] names) {
+                check(names);
+            }
+
+            @Override
+            public void visitField(String descriptor, String[] names) {
+                check(names);
+            }
+
+            @Override
+            public void visitMethod(String descriptor, String[] names) {
+                check(names);
+            }
+
+            private void check(String[] names) {
+                if (result[0]) return;
+                for (String name : names) {
+                    if (escapeIndex(name) >= 0) {
+                        result[0] = true;
+                        return;
+                    }
+                }
+            }
+        });
+        return result[0];
+    }
+
+    @Override
+    public LineProcessor<Mappings> createLineProcessor() {
+        return new TinyLineProcessor();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the first two namespaces are visited.
+     * The renamed descriptors aren't known until all the classes are read, so they're always null.
+     * </p>
+     */
+    @Override
+    public void parse(BufferedReader reader, MappingsVisitor visitor) throws IOException {
+        requireNonNull(visitor, "Null visitor");
+        TinyEventParser parser = new TinyEventParser(new TinyVisitor() {
+            @Override
+            public void visitNamespaces(List<String> namespaces) {}
+
+            @Override
+            public void visitClass(String[] names) {
+                visitor.visitClass(names[0], names[1]);
+            }
+
+            @Override
+            public void visitField(String owner, String renamedOwner, String descriptor, String[] names) {
+                visitor.visitField(owner, names[0], renamedOwner, names[1]);
+            }
+
+            @Override
+            public void visitMethod(String owner, String renamedOwner, String descriptor, String[] names) {
+                visitor.visitMethod(owner, names[0], descriptor, renamedOwner, names[1], null);
+            }
+        });
+        String line;
+        while ((line = reader.readLine()) != null) {
+            parser.parseLine(line);
+        }
+    }
+
+    @Override
+    public void write(Mappings mappings, Appendable output) throws IOException {
+        throw new UnsupportedOperationException("Tiny needs field types, so only namespaced mappings can be written");
+    }
+
+    /**
+     * Receives the entries of a Tiny file, as the names in each namespace.
+     * <p>
+     * The names array is reused between calls, and must not be retained.
+     * </p>
+     */
+    private interface TinyVisitor {
+        void visitNamespaces(List<String> namespaces);
+
+        void visitClass(String[] names);
+
+        void visitField(String owner, String renamedOwner, String descriptor, String[] names);
+
+        void visitMethod(String owner, String renamedOwner, String descriptor, String[] names);
+    }
+
+    /**
+     * Parses Tiny v2 lines, keeping the current class between lines.
+     */
+    private static final class TinyEventParser {
+        private final TinyVisitor visitor;
+        private String[] names;
+        private String[] tokens;
+        private boolean escapedNames;
+        @Nullable
+        private String owner, renamedOwner;
+        private int lineNumber;
+
+        private TinyEventParser(TinyVisitor visitor) {
+            this.visitor = visitor;
+        }
+
+        private void parseLine(@NonNull String line) {
+            lineNumber++;
+            if (lineNumber == 1) {
+                parseHeader(line);
+                return;
+            }
+            if (line.isEmpty()) return;
+            int depth = 0;
+            while (depth < line.length() && line.charAt(depth) == '\t') {
+                depth++;
+            }
+            if (depth > 1) return; // Parameters, variables and their comments
+            String[] tokens = this.tokens;
+            int count = split(line, depth, tokens);
+            String kind = tokens[0];
+            if (depth == 0) {
+                if (!kind.equals("c")) throw invalidLine(line);
+                readNames(line, count, 1);
+                owner = names[0];
+                renamedOwner = names[1];
+                visitor.visitClass(names);
+            } else if (owner == null) {
+                // A property in the header
+                if (kind.equals("escaped-names")) escapedNames = true;
+            } else if (kind.equals("f") || kind.equals("m")) {
+                if (count < 2) throw invalidLine(line);
+                String descriptor = tokens[1];
+                readNames(line, count, 2);
+                assert renamedOwner != null;
+                if (kind.equals("f")) {
+                    visitor.visitField(owner, renamedOwner, descriptor, names);
+                } else {
+                    visitor.visitMethod(owner, renamedOwner, descriptor, names);
+                }
+            } else if (!kind.equals("c")) {
+                throw invalidLine(line);
+            }
+        }
+
+        private void parseHeader(String line) {
+            String[] header = line.split("\t", -1);
+            if (header.length < 5 || !header[0].equals("tiny") || !header[1].equals("2")) {
+                throw new IllegalArgumentException("Not a Tiny v2 header: " + line);
+            }
+            List<String> namespaces = Arrays.asList(Arrays.copyOfRange(header, 3, header.length));
+            this.names = new String[namespaces.size()];
+            this.tokens = new String[namespaces.size() + 2];
+            visitor.visitNamespaces(namespaces);
+        }
+
+        /**
+         * Read the names starting at the specified token, unescaping them if needed.
+         */
+        private void readNames(String line, int count, int start) {
+            if (count - start > names.length) throw invalidLine(line);
+            for (int i = 0; i < names.length; i++) {
+                int token = start + i;
+                // Trailing empty names may be left out entirely
+                String name = token < count ? tokens[token] : "";
+                names[i] = escapedNames ? unescape(name) : name;
+            }
+            if (names[0].isEmpty()) throw invalidLine(line);
+            for (int i = 1; i < names.length; i++) {
+                if (names[i].isEmpty()) names[i] = names[0];
+            }
+        }
+
+        /**
+         * Split the specified line on tabs, like {@link LineTokens#split(String, int, String[])}.
+         */
+        private int split(String line, int start, String[] tokens) {
+            int count = 0;
+            int length = line.length();
+            while (true) {
+                int end = line.indexOf('\t', start);
+                if (end < 0) end = length;
+                if (count < tokens.length) tokens[count] = line.substring(start, end);
+                count++;
+                if (end == length) return count;
+                start = end + 1;
+            }
+        }
+
+        private IllegalArgumentException invalidLine(String line) {
+            return new IllegalArgumentException("Invalid line " + lineNumber + ": " + line);
+        }
+    }
+
+    /**
+     * Return the index of the first char of the specified name that has to be escaped, or -1 if there isn't one.
+     */
+    private static int escapeIndex(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            switch (name.charAt(i)) {
+                case '\\':
+                case '\n':
+                case '\r':
+                case '\t':
+                case '\0':
+                    return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Escape the specified name, the inverse of {@link #unescape(String)}.
+     */
+    private static String escape(String name) {
+        int index = escapeIndex(name);
+        if (index < 0) return name;
+        StringBuilder result = new StringBuilder(name.length() + 8);
+        result.append(name, 0, index);
+        for (; index < name.length(); index++) {
+            char c = name.charAt(index);
+            switch (c) {
+                case '\\':
+                    result.append("\\\\");
+                    break;
+                case '\n':
+                    result.append("\\n");
+                    break;
+                case '\r':
+                    result.append("\\r");
+                    break;
+                case '\t':
+                    result.append("\\t");
+                    break;
+                case '\0':
+                    result.append("\\0");
+                    break;
+                default:
+                    result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    private static String unescape(String name) {
+        int index = name.indexOf('\\');
+        if (index < 0) return name;
+        StringBuilder result = new StringBuilder(name.length());
+        result.append(name, 0, index);
+        while (index < name.length()) {
+            char c = name.charAt(index++);
+            if (c != '\\') {
+                result.append(c);
+                continue;
+            }
+            if (index == name.length()) throw new IllegalArgumentException("Invalid escape in " + name);
+            char escaped = name.charAt(index++);
+            switch (escaped) {
+                case '\\':
+                    result.append('\\');
+                    break;
+                case 'n':
+                    result.append('\n');
+                    break;
+                case 'r':
+                    result.append('\r');
+                    break;
+                case 't':
+                    result.append('\t');
+                    break;
+                case '0':
+                    result.append('\0');
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid escape in " + name);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Builds namespaced mappings from Tiny lines.
+     */
+    private static final class TinyLineProcessor implements LineProcessor<Mappings>, TinyVisitor {
+        private final TinyEventParser parser = new TinyEventParser(this);
+        /**
+         * The builder, or null until the header is read.
+         */
+        private NamespacedMappings.@Nullable Builder builder;
+
+        @Override
+        public boolean processLine(@NonNull String line) {
+            parseLine(line);
+            return true;
+        }
+
+        private void parseLine(@NonNull String line) {
+            parser.parseLine(line);
+        }
+
+        @Override
+        public void visitNamespaces(List<String> namespaces) {
+            builder = NamespacedMappings.builder(namespaces);
+        }
+
+        @Override
+        public void visitClass(String[] names) {
+            builder().addClass(names);
+        }
+
+        @Override
+        public void visitField(String owner, String renamedOwner, String descriptor, String[] names) {
+            builder().addField(owner, descriptor, names);
+        }
+
+        @Override
+        public void visitMethod(String owner, String renamedOwner, String descriptor, String[] names) {
+            builder().addMethod(owner, descriptor, names);
+        }
+
+        private NamespacedMappings.Builder builder() {
+            if (builder == null) throw new IllegalArgumentException("Missing Tiny header");
+            return builder;
+        }
+
+        private NamespacedMappings getNamespacedResult() {
+            return builder().build();
+        }
+
+        @Override
+        public Mappings getResult() {
+            NamespacedMappings result = getNamespacedResult();
+            List<String> namespaces = result.getNamespaces();
+            return result.getMappings(namespaces.get(0), namespaces.get(1));
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package net.techcable.srglib.format;
+
+import net.techcable.srglib.FieldData;
+import net.techcable.srglib.JavaType;
+import net.techcable.srglib.MethodData;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.utils.CharSlice;
+import net.techcable.srglib.utils.LineProcessor;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The TSRG format, which groups members under their class instead of repeating the owner on every line.
+ * <p>
+ * Each class has an unindented header line with its original and renamed names,
+ * followed by its members, indented by a tab.
+ * Fields have their original and renamed names, and methods have their original name, descriptor and renamed name,
+ * like the compact SRG format without the owner.
+ * Members of classes that aren't renamed are written under a header mapping the class to itself.
+ * </p>
+ */
+/* package */ class TsrgMappingsFormat implements MappingsFormat {
+    public static final TsrgMappingsFormat INSTANCE = new TsrgMappingsFormat();
+
+    private TsrgMappingsFormat() {}
+
+    @Override
+    public LineProcessor<Mappings> createLineProcessor() {
+        return new TsrgLineProcessor(null);
+    }
+
+    @Override
+    public void parse(BufferedReader reader, MappingsVisitor visitor) throws IOException {
+        TsrgEventParser parser = new TsrgEventParser(requireNonNull(visitor, "Null visitor"), null);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            parser.parseLine(line);
+        }
+    }
+
+    @Override
+    public Mappings parse(BufferedReader reader, MappingsFilter filter) throws IOException {
+        TsrgLineProcessor processor = new TsrgLineProcessor(requireNonNull(filter, "Null filter"));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            processor.parseLine(line);
+        }
+        return processor.getResult();
+    }
+
+    @Override
+    public void write(Mappings mappings, Appendable output) throws IOException {
+        // Group the members by owner, keeping the classes' order
+        Map<JavaType, ClassGroup> groups = new LinkedHashMap<>();
+        for (JavaType type : mappings.classes()) {
+            groups.put(type, new ClassGroup());
+        }
+        for (FieldData field : mappings.fields()) {
+            groups.computeIfAbsent(field.getDeclaringType(), owner -> new ClassGroup()).fields.add(field);
+        }
+        for (MethodData method : mappings.methods()) {
+            groups.computeIfAbsent(method.getDeclaringType(), owner -> new ClassGroup()).methods.add(method);
+        }
+        for (Map.Entry<JavaType, ClassGroup> entry : groups.entrySet()) {
+            JavaType owner = entry.getKey();
+            writeClass(owner, mappings.getNewType(owner), output);
+            for (FieldData field : entry.getValue().fields) {
+                writeField(field, mappings.getNewField(field), output);
+            }
+            for (MethodData method : entry.getValue().methods) {
+                writeMethod(method, mappings.getNewMethod(method), output);
+            }
+        }
+    }
+
+    @Override
+    public void writeSorted(Mappings mappings, Appendable output) throws IOException {
+        JavaType[] classes = mappings.classes().toArray(new JavaType[0]);
+        FieldData[] fields = mappings.fields().toArray(new FieldData[0]);
+        MethodData[] methods = mappings.methods().toArray(new MethodData[0]);
+        Arrays.parallelSort(classes, SortedMappingsWriter.CLASS_ORDER);
+        Arrays.parallelSort(fields, SortedMappingsWriter.FIELD_ORDER);
+        Arrays.parallelSort(methods, SortedMappingsWriter.METHOD_ORDER);
+        // Members are sorted by owner first, so each class's members are contiguous
+        int classIndex = 0, fieldIndex = 0, methodIndex = 0;
+        while (classIndex < classes.length || fieldIndex < fields.length || methodIndex < methods.length) {
+            JavaType owner = null;
+            if (classIndex < classes.length) {
+                owner = classes[classIndex];
+            }
+            if (fieldIndex < fields.length) {
+                owner = first(owner, fields[fieldIndex].getDeclaringType());
+            }
+            if (methodIndex < methods.length) {
+                owner = first(owner, methods[methodIndex].getDeclaringType());
+            }
+            assert owner != null;
+            if (classIndex < classes.length && classes[classIndex].equals(owner)) {
+                classIndex++;
+            }
+            writeClass(owner, mappings.getNewType(owner), output);
+            for (; fieldIndex < fields.length && fields[fieldIndex].getDeclaringType().equals(owner); fieldIndex++) {
+                writeField(fields[fieldIndex], mappings.getNewField(fields[fieldIndex]), output);
+            }
+            for (; methodIndex < methods.length && methods[methodIndex].getDeclaringType().equals(owner); methodIndex++) {
+                writeMethod(methods[methodIndex], mappings.getNewMethod(methods[methodIndex]), output);
+            }
+        }
+    }
+
+    private static JavaType first(@Nullable JavaType current, JavaType candidate) {
+        return current == null || SortedMappingsWriter.CLASS_ORDER.compare(candidate, current) < 0 ? candidate : current;
+    }
+
+    private static void writeClass(JavaType original, JavaType renamed, Appendable output) throws IOException {
+        original.appendInternalName(output);
+        output.append(' ');
+        renamed.appendInternalName(output);
+        output.append('\n');
+    }
+
+    private static void writeField(FieldData original, FieldData renamed, Appendable output) throws IOException {
+        output.append('\t');
+        output.append(original.getName());
+        output.append(' ');
+        output.append(renamed.getName());
+        output.append('\n');
+    }
+
+    private static void writeMethod(MethodData original, MethodData renamed, Appendable output) throws IOException {
+        output.append('\t');
+        output.append(original.getName());
+        output.append(' ');
+        original.getSignature().appendDescriptor(output);
+        output.append(' ');
+        output.append(renamed.getName());
+        output.append('\n');
+    }
+
+    private static final class ClassGroup {
+        private final List<FieldData> fields = new ArrayList<>();
+        private final List<MethodData> methods = new ArrayList<>();
+    }
+
+    /**
+     * Parses TSRG lines into {@link MappingsVisitor} events.
+     * <p>
+     * The owner of the current class is kept between lines,
+     * and passed to the visitor as the same instance for each of its members.
+     * If the class is rejected by the filter, its members are skipped without being split.
+     * </p>
+     */
+    /* package */ static final class TsrgEventParser {
+        private final MappingsVisitor visitor;
+        @Nullable
+        private final MappingsFilter filter;
+        private final String[] tokens = new String[3];
+        private final CharSlice ownerSlice = new CharSlice();
+        @Nullable
+        private String owner;
+        private boolean skipping;
+
+        /* package */ TsrgEventParser(MappingsVisitor visitor, @Nullable MappingsFilter filter) {
+            this.visitor = visitor;
+            this.filter = filter;
+        }
+
+        public void parseLine(@NonNull String line) {
+            int length = line.length();
+            int start = 0;
+            while (start < length && (line.charAt(start) == '\t' || line.charAt(start) == ' ')) {
+                start++;
+            }
+            int end = length;
+            while (end > start && Character.isWhitespace(line.charAt(end - 1))) {
+                end--;
+            }
+            if (start == end || line.charAt(start) == '#') return;
+            if (end != length) line = line.substring(0, end);
+            String[] tokens = this.tokens;
+            if (start == 0) {
+                // Class header
+                if (line.startsWith("tsrg2 ")) throw new IllegalArgumentException("TSRG v2 isn't supported");
+                int firstEnd = line.indexOf(' ');
+                if (firstEnd > 0 && line.charAt(firstEnd - 1) == '/') {
+                    // Package line, which always passes the filter like in SRG
+                    if (LineTokens.split(line, 0, tokens) != 2) throw new IllegalArgumentException("Invalid package line: " + line);
+                    owner = null;
+                    skipping = false;
+                    visitor.visitPackage(tokens[0], tokens[1]);
+                    return;
+                }
+                if (filter != null) {
+                    skipping = firstEnd > 0 && !filter.test(ownerSlice.set(line, 0, firstEnd));
+                    if (skipping) {
+                        owner = line; // Only checked for null
+                        return;
+                    }
+                }
+                if (LineTokens.split(line, 0, tokens) != 2) throw new IllegalArgumentException("Invalid class line: " + line);
+                owner = tokens[0];
+                visitor.visitClass(tokens[0], tokens[1]);
+            } else {
+                String owner = this.owner;
+                if (owner == null) throw new IllegalArgumentException("Member before any class: " + line);
+                if (skipping) return;
+                switch (LineTokens.split(line, start, tokens)) {
+                    case 2:
+                        visitor.visitField(owner, tokens[0], null, tokens[1]);
+                        break;
+                    case 3:
+                        visitor.visitMethod(owner, tokens[0], tokens[1], null, tokens[2], null);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Invalid member line: " + line);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds mappings from TSRG lines.
+     * <p>
+     * The members don't have their renamed owners or descriptors, so they're remapped once all the classes are known,
+     * just like the compact SRG format.
+     * </p>
+     */
+    /* package */ static final class TsrgLineProcessor implements LineProcessor<Mappings> {
+        private final CompactSrgMappingsFormat.SrgLineProcessor builder;
+        private final TsrgEventParser parser;
+
+        /* package */ TsrgLineProcessor(@Nullable MappingsFilter filter) {
+            this.builder = new CompactSrgMappingsFormat.SrgLineProcessor();
+            this.parser = new TsrgEventParser(builder, filter);
+        }
+
+        @Override
+        public boolean processLine(@NonNull String line) {
+            parseLine(line);
+            return true;
+        }
+
+        public void parseLine(@NonNull String line) {
+            parser.parseLine(line);
+        }
+
+        @Override
+        public Mappings getResult() {
+            return builder.getResult();
+        }
+    }
+}
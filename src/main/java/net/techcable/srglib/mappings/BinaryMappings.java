@@ -0,0 +1,214 @@
+package net.techcable.srglib.mappings;
+
+import net.techcable.srglib.FieldData;
+import net.techcable.srglib.JavaType;
+import net.techcable.srglib.MethodData;
+import net.techcable.srglib.MethodSignature;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary form of mappings, which is much faster to read than any text format.
+ * <p>
+ * Every distinct name and descriptor is written once, in a string table,
+ * and the entries refer to them by index.
+ * When reading, each distinct type and signature is only parsed once, and shared between all the entries using it.
+ * The entries are trusted to be consistent, since they were written from existing mappings,
+ * so this is meant for caches and other data written by this library, not for exchanging mappings.
+ * The form may change between versions of this library.
+ * </p>
+ */
+public final class BinaryMappings {
+    private BinaryMappings() {}
+
+    private static final int MAGIC = 0x53524742; // SRGB
+    private static final int VERSION = 1;
+
+    /**
+     * Write the specified mappings in binary form.
+     *
+     * @param mappings the mappings to write
+     * @param out      the output to write to
+     * @throws IOException if an error occurs writing
+     */
+    public static void write(Mappings mappings, DataOutput out) throws IOException {
+        StringTable strings = new StringTable();
+        mappings.forEachClass((original, renamed) -> {
+            strings.add(original.getInternalName());
+            strings.add(renamed.getInternalName());
+        });
+        mappings.forEachField((original, renamed) -> {
+            strings.add(original.getDeclaringType().getInternalName());
+            strings.add(original.getName());
+            strings.add(renamed.getDeclaringType().getInternalName());
+            strings.add(renamed.getName());
+        });
+        mappings.forEachMethod((original, renamed) -> {
+            strings.add(original.getDeclaringType().getInternalName());
+            strings.add(original.getName());
+            strings.add(original.getSignature().getDescriptor());
+            strings.add(renamed.getDeclaringType().getInternalName());
+            strings.add(renamed.getName());
+            strings.add(renamed.getSignature().getDescriptor());
+        });
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeVarInt(out, strings.values.size());
+        for (String value : strings.values) {
+            out.writeUTF(value);
+        }
+        writeVarInt(out, mappings.classes().size());
+        for (JavaType original : mappings.classes()) {
+            writeVarInt(out, strings.indexOf(original.getInternalName()));
+            writeVarInt(out, strings.indexOf(mappings.getNewClass(original).getInternalName()));
+        }
+        writeVarInt(out, mappings.fields().size());
+        for (FieldData original : mappings.fields()) {
+            FieldData renamed = mappings.getNewField(original);
+            writeVarInt(out, strings.indexOf(original.getDeclaringType().getInternalName()));
+            writeVarInt(out, strings.indexOf(original.getName()));
+            writeVarInt(out, strings.indexOf(renamed.getDeclaringType().getInternalName()));
+            writeVarInt(out, strings.indexOf(renamed.getName()));
+        }
+        writeVarInt(out, mappings.methods().size());
+        for (MethodData original : mappings.methods()) {
+            MethodData renamed = mappings.getNewMethod(original);
+            writeVarInt(out, strings.indexOf(original.getDeclaringType().getInternalName()));
+            writeVarInt(out, strings.indexOf(original.getName()));
+            writeVarInt(out, strings.indexOf(original.getSignature().getDescriptor()));
+            writeVarInt(out, strings.indexOf(renamed.getDeclaringType().getInternalName()));
+            writeVarInt(out, strings.indexOf(renamed.getName()));
+            writeVarInt(out, strings.indexOf(renamed.getSignature().getDescriptor()));
+        }
+        out.writeInt(MAGIC); // Detect truncation
+    }
+
+    /**
+     * Read mappings in binary form.
+     *
+     * @param in the input to read from
+     * @return the mappings
+     * @throws IOException if an error occurs reading, or the input isn't valid binary mappings
+     */
+    public static ImmutableMappings read(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) throw new IOException("Not binary mappings");
+        int version = in.readInt();
+        if (version != VERSION) throw new IOException("Unsupported binary mappings version: " + version);
+        String[] strings = new String[readCount(in)];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+        Table table = new Table(strings);
+        int classCount = readCount(in);
+        Map<JavaType, JavaType> classes = new HashMap<>(capacity(classCount));
+        for (int i = 0; i < classCount; i++) {
+            classes.put(table.type(in), table.type(in));
+        }
+        int fieldCount = readCount(in);
+        Map<FieldData, FieldData> fields = new HashMap<>(capacity(fieldCount));
+        for (int i = 0; i < fieldCount; i++) {
+            FieldData original = FieldData.create(table.type(in), table.string(in));
+            fields.put(original, FieldData.create(table.type(in), table.string(in)));
+        }
+        int methodCount = readCount(in);
+        Map<MethodData, MethodData> methods = new HashMap<>(capacity(methodCount));
+        for (int i = 0; i < methodCount; i++) {
+            MethodData original = MethodData.create(table.type(in), table.string(in), table.signature(in));
+            methods.put(original, MethodData.create(table.type(in), table.string(in), table.signature(in)));
+        }
+        if (in.readInt() != MAGIC) throw new IOException("Corrupt binary mappings");
+        return ImmutableMappings.wrap(classes, methods, fields);
+    }
+
+    private static int capacity(int size) {
+        return (int) (size / 0.75f) + 1;
+    }
+
+    private static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return result;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static int readCount(DataInput in) throws IOException {
+        int count = readVarInt(in);
+        if (count < 0) throw new IOException("Invalid count: " + count);
+        return count;
+    }
+
+    private static final class StringTable {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        private void add(String value) {
+            if (indexes.putIfAbsent(value, values.size()) == null) {
+                values.add(value);
+            }
+        }
+
+        private int indexOf(String value) {
+            return indexes.get(value);
+        }
+    }
+
+    /**
+     * The string table being read, and the types and signatures parsed from it so far.
+     */
+    private static final class Table {
+        private final String[] strings;
+        private final JavaType[] types;
+        private final MethodSignature[] signatures;
+
+        private Table(String[] strings) {
+            this.strings = strings;
+            this.types = new JavaType[strings.length];
+            this.signatures = new MethodSignature[strings.length];
+        }
+
+        private int index(DataInput in) throws IOException {
+            int index = readVarInt(in);
+            if (index < 0 || index >= strings.length) throw new IOException("Invalid string index: " + index);
+            return index;
+        }
+
+        private String string(DataInput in) throws IOException {
+            return strings[index(in)];
+        }
+
+        private JavaType type(DataInput in) throws IOException {
+            int index = index(in);
+            JavaType type = types[index];
+            if (type == null) {
+                types[index] = type = JavaType.fromInternalName(strings[index]);
+            }
+            return type;
+        }
+
+        private MethodSignature signature(DataInput in) throws IOException {
+            int index = index(in);
+            MethodSignature signature = signatures[index];
+            if (signature == null) {
+                signatures[index] = signature = MethodSignature.fromDescriptor(strings[index]);
+            }
+            return signature;
+        }
+    }
+}
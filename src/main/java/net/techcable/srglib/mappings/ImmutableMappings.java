@@ -5,6 +5,7 @@ import net.techcable.srglib.JavaType;
 import net.techcable.srglib.MethodData;
 import net.techcable.srglib.SrgLib;
 import net.techcable.srglib.utils.ImmutableMaps;
+import net.techcable.srglib.utils.NameTable;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.util.Collections;
@@ -57,6 +58,68 @@ public final class ImmutableMappings implements Mappings {
         }
     }
 
+    @Nullable
+    @Override
+    public String findNewClassName(CharSequence internalName) {
+        return nameIndex().classes.get(requireNonNull(internalName, "Null internal name"));
+    }
+
+    @Nullable
+    @Override
+    public String findNewMethodName(CharSequence owner, CharSequence name, CharSequence descriptor) {
+        return nameIndex().methods.get(
+                requireNonNull(owner, "Null owner"),
+                requireNonNull(name, "Null name"),
+                requireNonNull(descriptor, "Null descriptor")
+        );
+    }
+
+    @Nullable
+    @Override
+    public String findNewFieldName(CharSequence owner, CharSequence name) {
+        return nameIndex().fields.get(requireNonNull(owner, "Null owner"), requireNonNull(name, "Null name"));
+    }
+
+    @Nullable
+    private volatile NameIndex nameIndex;
+    private NameIndex nameIndex() {
+        NameIndex nameIndex = this.nameIndex;
+        return nameIndex != null ? nameIndex : (this.nameIndex = new NameIndex(this));
+    }
+
+    /**
+     * String-keyed tables of the renamed entries, used to answer lookups by internal name and descriptor.
+     */
+    private static final class NameIndex {
+        private final NameTable classes, methods, fields;
+
+        private NameIndex(ImmutableMappings mappings) {
+            classes = new NameTable(1, mappings.classes.size());
+            methods = new NameTable(3, mappings.methods.size());
+            fields = new NameTable(2, mappings.fields.size());
+            mappings.classes.forEach((original, renamed) -> {
+                if (!original.equals(renamed)) {
+                    classes.put(original.getInternalName(), renamed.getInternalName());
+                }
+            });
+            mappings.methods.forEach((original, renamed) -> {
+                if (!original.getName().equals(renamed.getName())) {
+                    methods.put(
+                            original.getDeclaringType().getInternalName(),
+                            original.getName(),
+                            original.getSignature().getDescriptor(),
+                            renamed.getName()
+                    );
+                }
+            });
+            mappings.fields.forEach((original, renamed) -> {
+                if (!original.getName().equals(renamed.getName())) {
+                    fields.put(original.getDeclaringType().getInternalName(), original.getName(), renamed.getName());
+                }
+            });
+        }
+    }
+
     @Override
     public Set<JavaType> classes() {
         return classes.keySet();
@@ -143,6 +206,20 @@ public final class ImmutableMappings implements Mappings {
         return result;
     }
 
+    /**
+     * Create new ImmutableMappings with the specified data, without checking its consistency.
+     * <p>
+     * The maps are used directly, so the caller must never modify them afterwards.
+     * </p>
+     */
+    /* package */ static ImmutableMappings wrap(
+            Map<JavaType, JavaType> classes,
+            Map<MethodData, MethodData> methods,
+            Map<FieldData, FieldData> fields
+    ) {
+        return new ImmutableMappings(Collections.unmodifiableMap(classes), Collections.unmodifiableMap(methods), Collections.unmodifiableMap(fields));
+    }
+
     public static ImmutableMappings copyOf(Mappings other) {
         if (other instanceof ImmutableMappings) {
             return (ImmutableMappings) other;
@@ -172,9 +249,44 @@ public final class ImmutableMappings implements Mappings {
         fields.forEach(action);
     }
 
+    /**
+     * The number of entries above which digests are computed in parallel.
+     */
+    private static final int PARALLEL_DIGEST_THRESHOLD = 8192;
+    @Nullable
+    private volatile MappingsDigest digest;
+
+    /**
+     * Return a 128-bit digest of the content of these mappings.
+     * <p>
+     * The digest is computed on first use, in parallel for large mappings, and then cached.
+     * </p>
+     *
+     * @return the content digest
+     */
+    @Override
+    public MappingsDigest digest() {
+        MappingsDigest digest = this.digest;
+        return digest != null ? digest : (this.digest = computeDigest());
+    }
+
+    private MappingsDigest computeDigest() {
+        boolean parallel = classes.size() + methods.size() + fields.size() > PARALLEL_DIGEST_THRESHOLD;
+        MappingsDigest classDigest = (parallel ? classes.entrySet().parallelStream() : classes.entrySet().stream())
+                .map(entry -> MappingsDigest.ofClass(entry.getKey(), entry.getValue()))
+                .reduce(MappingsDigest.ZERO, MappingsDigest::add);
+        MappingsDigest methodDigest = (parallel ? methods.entrySet().parallelStream() : methods.entrySet().stream())
+                .map(entry -> MappingsDigest.ofMethod(entry.getKey(), entry.getValue()))
+                .reduce(MappingsDigest.ZERO, MappingsDigest::add);
+        MappingsDigest fieldDigest = (parallel ? fields.entrySet().parallelStream() : fields.entrySet().stream())
+                .map(entry -> MappingsDigest.ofField(entry.getKey(), entry.getValue()))
+                .reduce(MappingsDigest.ZERO, MappingsDigest::add);
+        return classDigest.add(methodDigest).add(fieldDigest);
+    }
+
     @Override
     public int hashCode() {
-        return classes.hashCode() ^ methods.hashCode() ^ fields.hashCode();
+        return digest().hashCode();
     }
 
     @Override
@@ -184,6 +296,8 @@ public final class ImmutableMappings implements Mappings {
         } else if (obj == null) {
             return false;
         } else if (obj.getClass() == ImmutableMappings.class) {
+            MappingsDigest digest = this.digest, otherDigest = ((ImmutableMappings) obj).digest;
+            if (digest != null && otherDigest != null && !digest.equals(otherDigest)) return false;
             return this.classes.equals(((ImmutableMappings) obj).classes)
                     && this.methods.equals(((ImmutableMappings) obj).methods)
                     && this.fields.equals(((ImmutableMappings) obj).fields);
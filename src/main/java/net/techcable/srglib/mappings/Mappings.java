@@ -3,6 +3,7 @@ package net.techcable.srglib.mappings;
 import net.techcable.srglib.FieldData;
 import net.techcable.srglib.JavaType;
 import net.techcable.srglib.MethodData;
+import net.techcable.srglib.MethodSignature;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.util.Arrays;
@@ -84,6 +85,82 @@ public interface Mappings {
      */
     FieldData getNewField(FieldData original);
 
+    /**
+     * Find the new internal name of the class with the specified original internal name.
+     * <p>
+     * Unlike {@link #getNewClass(JavaType)}, this never needs to parse the name,
+     * and returns null if the class isn't renamed, so callers can keep their existing name.
+     * Immutable mappings answer this with a direct string-keyed lookup, without creating any objects.
+     * Names which aren't valid class names are never renamed.
+     * </p>
+     *
+     * @param internalName the original internal name, like {@code java/lang/String}
+     * @return the new internal name, or null if unchanged
+     */
+    @Nullable
+    default String findNewClassName(CharSequence internalName) {
+        final JavaType original;
+        try {
+            original = JavaType.fromInternalName(internalName.toString());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (!original.isReferenceType()) return null;
+        JavaType renamed = getNewClass(original);
+        return renamed.equals(original) ? null : renamed.getInternalName();
+    }
+
+    /**
+     * Find the new name of the method with the specified owner, name and descriptor.
+     * <p>
+     * The owner and descriptor are the original internal name and bytecode descriptor,
+     * exactly as they appear in a class file.
+     * Like {@link #findNewClassName(CharSequence)}, this returns null if the method isn't renamed.
+     * </p>
+     *
+     * @param owner      the internal name of the original declaring class
+     * @param name       the original method name
+     * @param descriptor the original method descriptor
+     * @return the new method name, or null if unchanged
+     */
+    @Nullable
+    default String findNewMethodName(CharSequence owner, CharSequence name, CharSequence descriptor) {
+        final MethodData original;
+        try {
+            original = MethodData.create(
+                    JavaType.fromInternalName(owner.toString()),
+                    name.toString(),
+                    MethodSignature.fromDescriptor(descriptor.toString())
+            );
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        String renamed = getNewMethod(original).getName();
+        return renamed.equals(original.getName()) ? null : renamed;
+    }
+
+    /**
+     * Find the new name of the field with the specified owner and name.
+     * <p>
+     * Like {@link #findNewClassName(CharSequence)}, this returns null if the field isn't renamed.
+     * </p>
+     *
+     * @param owner the internal name of the original declaring class
+     * @param name  the original field name
+     * @return the new field name, or null if unchanged
+     */
+    @Nullable
+    default String findNewFieldName(CharSequence owner, CharSequence name) {
+        final FieldData original;
+        try {
+            original = FieldData.create(JavaType.fromInternalName(owner.toString()), name.toString());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        String renamed = getNewField(original).getName();
+        return renamed.equals(original.getName()) ? null : renamed;
+    }
+
     /**
      * Return an immutable snapshot of these mappings.
      *
@@ -93,6 +170,20 @@ public interface Mappings {
         return ImmutableMappings.copyOf(this);
     }
 
+    /**
+     * Return a 128-bit digest of the content of these mappings.
+     * <p>
+     * Equal mappings always have equal digests, regardless of their implementation or iteration order.
+     * Unless these mappings are immutable, this takes a new snapshot every time.
+     * </p>
+     *
+     * @return the content digest
+     * @see ImmutableMappings#digest()
+     */
+    default MappingsDigest digest() {
+        return snapshot().digest();
+    }
+
     /**
      * Return an inverted copy of the mappings, switching the original and renamed.
      * <p>
@@ -0,0 +1,103 @@
+package net.techcable.srglib.mappings;
+
+import net.techcable.srglib.FieldData;
+import net.techcable.srglib.JavaType;
+import net.techcable.srglib.MethodData;
+import net.techcable.srglib.utils.Hashing;
+
+/**
+ * A 128-bit digest of the content of a set of mappings.
+ * <p>
+ * Digests are order-independent: each entry is hashed on its own,
+ * and the entry hashes are summed, so the digest doesn't depend on iteration order.
+ * Equal mappings always have equal digests,
+ * and different mappings have different digests with overwhelming probability,
+ * which makes them suitable as cache keys and for quick equality checks.
+ * Digests are not cryptographically secure.
+ * </p>
+ *
+ * @see ImmutableMappings#digest()
+ */
+public final class MappingsDigest {
+    /* package */ static final MappingsDigest ZERO = new MappingsDigest(0, 0);
+    private static final int CLASS = 'C', METHOD = 'M', FIELD = 'F';
+    private final long high, low;
+
+    private MappingsDigest(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    public long getLow() {
+        return low;
+    }
+
+    /**
+     * Add the specified digest to this one, as a 128-bit integer.
+     *
+     * @param other the digest to add
+     * @return the sum
+     */
+    /* package */ MappingsDigest add(MappingsDigest other) {
+        long low = this.low + other.low;
+        long carry = Long.compareUnsigned(low, this.low) < 0 ? 1 : 0;
+        return new MappingsDigest(this.high + other.high + carry, low);
+    }
+
+    /* package */ static MappingsDigest ofClass(JavaType original, JavaType renamed) {
+        Hashing.Hasher128 hasher = new Hashing.Hasher128()
+                .putInt(CLASS)
+                .putString(original.getInternalName())
+                .putString(renamed.getInternalName());
+        return new MappingsDigest(hasher.high(), hasher.low());
+    }
+
+    /* package */ static MappingsDigest ofMethod(MethodData original, MethodData renamed) {
+        Hashing.Hasher128 hasher = new Hashing.Hasher128()
+                .putInt(METHOD)
+                .putString(original.getDeclaringType().getInternalName())
+                .putString(original.getName())
+                .putString(original.getSignature().getDescriptor())
+                .putString(renamed.getDeclaringType().getInternalName())
+                .putString(renamed.getName())
+                .putString(renamed.getSignature().getDescriptor());
+        return new MappingsDigest(hasher.high(), hasher.low());
+    }
+
+    /* package */ static MappingsDigest ofField(FieldData original, FieldData renamed) {
+        Hashing.Hasher128 hasher = new Hashing.Hasher128()
+                .putInt(FIELD)
+                .putString(original.getDeclaringType().getInternalName())
+                .putString(original.getName())
+                .putString(renamed.getDeclaringType().getInternalName())
+                .putString(renamed.getName());
+        return new MappingsDigest(hasher.high(), hasher.low());
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (low ^ (low >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj == this || obj != null
+                && obj.getClass() == MappingsDigest.class
+                && ((MappingsDigest) obj).high == this.high
+                && ((MappingsDigest) obj).low == this.low;
+    }
+
+    /**
+     * Return this digest as a 32 digit lowercase hex string.
+     *
+     * @return the hex string
+     */
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+}
@@ -0,0 +1,137 @@
+package net.techcable.srglib.mappings;
+
+import net.techcable.srglib.FieldData;
+import net.techcable.srglib.JavaType;
+import net.techcable.srglib.MethodData;
+import net.techcable.srglib.MethodSignature;
+import net.techcable.srglib.utils.Hashing;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A pool of canonical names, types, signatures and members, shared between several mappings.
+ * <p>
+ * Mappings for adjacent versions of the same program mostly contain the same names,
+ * so interning them lets every version share a single copy.
+ * Canonical instances are only weakly referenced by the pool,
+ * and are collected once no interned mappings use them anymore.
+ * </p>
+ * <p>
+ * Interners are thread-safe. The pool is split into stripes, so concurrent interning rarely contends.
+ * </p>
+ */
+public final class MappingsInterner {
+    private static final int STRIPES = 32;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public MappingsInterner() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public String intern(String name) {
+        return intern0(requireNonNull(name, "Null name"));
+    }
+
+    public JavaType intern(JavaType type) {
+        switch (requireNonNull(type, "Null type").getSort()) {
+            case PRIMITIVE_TYPE:
+                return type; // Already canonical
+            case ARRAY_TYPE:
+                // Arrays are cached by their innermost type, so just intern that
+                int dimensions = 0;
+                JavaType innermostType = type;
+                while (innermostType.isArrayType()) {
+                    innermostType = innermostType.getElementType();
+                    dimensions++;
+                }
+                return JavaType.createArray(dimensions, intern(innermostType));
+            default:
+                return intern0(type);
+        }
+    }
+
+    public MethodSignature intern(MethodSignature signature) {
+        MethodSignature existing = get(requireNonNull(signature, "Null signature"));
+        if (existing != null) return existing;
+        List<JavaType> parameterTypes = new ArrayList<>(signature.getParameterTypes().size());
+        for (JavaType parameterType : signature.getParameterTypes()) {
+            parameterTypes.add(intern(parameterType));
+        }
+        return intern0(MethodSignature.create(parameterTypes, intern(signature.getReturnType())));
+    }
+
+    public MethodData intern(MethodData method) {
+        MethodData existing = get(requireNonNull(method, "Null method"));
+        if (existing != null) return existing;
+        return intern0(MethodData.create(
+                intern(method.getDeclaringType()),
+                intern(method.getName()),
+                intern(method.getSignature())
+        ));
+    }
+
+    public FieldData intern(FieldData field) {
+        FieldData existing = get(requireNonNull(field, "Null field"));
+        if (existing != null) return existing;
+        return intern0(FieldData.create(intern(field.getDeclaringType()), intern(field.getName())));
+    }
+
+    /**
+     * Return a copy of the specified mappings, made up of interned names, types and members.
+     *
+     * @param mappings the mappings to intern
+     * @return the interned mappings
+     */
+    public ImmutableMappings intern(Mappings mappings) {
+        Map<JavaType, JavaType> classes = new HashMap<>();
+        Map<MethodData, MethodData> methods = new HashMap<>();
+        Map<FieldData, FieldData> fields = new HashMap<>();
+        mappings.forEachClass((original, renamed) -> classes.put(intern(original), intern(renamed)));
+        mappings.forEachMethod((original, renamed) -> methods.put(intern(original), intern(renamed)));
+        mappings.forEachField((original, renamed) -> fields.put(intern(original), intern(renamed)));
+        // Interning doesn't change any of the entries, so they're still consistent
+        return ImmutableMappings.wrap(classes, methods, fields);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(T value) {
+        return (T) stripe(value).get(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T intern0(T value) {
+        return (T) stripe(value).intern(value);
+    }
+
+    private Stripe stripe(Object value) {
+        return stripes[Hashing.mix(value.hashCode()) & (STRIPES - 1)];
+    }
+
+    private static final class Stripe {
+        private final WeakHashMap<Object, WeakReference<Object>> pool = new WeakHashMap<>();
+
+        private synchronized Object get(Object value) {
+            WeakReference<Object> reference = pool.get(value);
+            return reference != null ? reference.get() : null;
+        }
+
+        private synchronized Object intern(Object value) {
+            WeakReference<Object> reference = pool.get(value);
+            Object existing;
+            if (reference != null && (existing = reference.get()) != null) {
+                return existing;
+            }
+            pool.put(value, new WeakReference<>(value));
+            return value;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package net.techcable.srglib.mappings;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A cache of mappings for many versions of a program, loaded on demand.
+ * <p>
+ * Mappings are identified by a version and a namespace, like {@code ("1.12.2", "srg")},
+ * and are loaded the first time they're requested.
+ * If several threads request the same mappings at once, only one of them loads it and the rest wait for the result.
+ * </p>
+ * <p>
+ * All loaded mappings are interned in a shared {@link MappingsInterner},
+ * so names and types common to several versions are only kept in memory once.
+ * Once the estimated size of the loaded mappings exceeds the repository's budget,
+ * the least recently used mappings are evicted, and will be loaded again if they're requested later.
+ * </p>
+ */
+public final class MappingsRepository {
+    /**
+     * The estimated size of a single entry in the mappings, in bytes.
+     * <p>
+     * This accounts for the hash map entry, and the renamed object in the entry.
+     * Most names are shared with other versions, so they aren't counted.
+     * </p>
+     */
+    private static final long CLASS_WEIGHT = 96, FIELD_WEIGHT = 112, METHOD_WEIGHT = 144;
+    private final Loader loader;
+    private final long maxWeight;
+    private final MappingsInterner interner;
+    private final ConcurrentHashMap<Key, CompletableFuture<ImmutableMappings>> loaded = new ConcurrentHashMap<>();
+    /**
+     * The weights of the loaded mappings, in access order.
+     */
+    private final LinkedHashMap<Key, Long> weights = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight;
+
+    /**
+     * Create a repository that loads mappings with the specified loader,
+     * and keeps them in memory until their estimated size exceeds the specified number of bytes.
+     *
+     * @param loader    the loader of the mappings
+     * @param maxWeight the maximum estimated size of the loaded mappings, in bytes
+     * @throws IllegalArgumentException if the maximum size is negative
+     */
+    public MappingsRepository(Loader loader, long maxWeight) {
+        this(loader, maxWeight, new MappingsInterner());
+    }
+
+    /**
+     * Create a repository that loads mappings with the specified loader, and interns them with the specified interner.
+     *
+     * @param loader    the loader of the mappings
+     * @param maxWeight the maximum estimated size of the loaded mappings, in bytes
+     * @param interner  the interner to share between the loaded mappings
+     * @throws IllegalArgumentException if the maximum size is negative
+     */
+    public MappingsRepository(Loader loader, long maxWeight, MappingsInterner interner) {
+        if (maxWeight < 0) throw new IllegalArgumentException("Negative maximum weight: " + maxWeight);
+        this.loader = requireNonNull(loader, "Null loader");
+        this.maxWeight = maxWeight;
+        this.interner = requireNonNull(interner, "Null interner");
+    }
+
+    /**
+     * Return the mappings for the specified version and namespace, loading them if they aren't already loaded.
+     * <p>
+     * If the mappings are currently being loaded by another thread, this waits for that load to finish.
+     * </p>
+     *
+     * @param version   the version of the mappings
+     * @param namespace the namespace of the mappings
+     * @return the mappings
+     * @throws IOException if an error occurs loading the mappings
+     */
+    public ImmutableMappings get(String version, String namespace) throws IOException {
+        Key key = new Key(version, namespace);
+        CompletableFuture<ImmutableMappings> future = loaded.get(key);
+        if (future == null) {
+            CompletableFuture<ImmutableMappings> created = new CompletableFuture<>();
+            future = loaded.putIfAbsent(key, created);
+            if (future == null) {
+                load(key, created);
+                future = created;
+            }
+        }
+        ImmutableMappings result;
+        try {
+            result = future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) throw ((UncheckedIOException) cause).getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+        synchronized (weights) {
+            weights.get(key); // Mark as recently used
+        }
+        return result;
+    }
+
+    /**
+     * Return the mappings for the specified version and namespace, if they're currently loaded.
+     *
+     * @param version   the version of the mappings
+     * @param namespace the namespace of the mappings
+     * @return the mappings, or null if they aren't loaded
+     */
+    @Nullable
+    public ImmutableMappings getIfLoaded(String version, String namespace) {
+        CompletableFuture<ImmutableMappings> future = loaded.get(new Key(version, namespace));
+        return future != null && future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
+    }
+
+    private void load(Key key, CompletableFuture<ImmutableMappings> future) {
+        ImmutableMappings mappings;
+        try {
+            Mappings result = loader.load(key.version, key.namespace);
+            if (result == null) throw new NullPointerException("Null mappings for " + key);
+            mappings = interner.intern(result);
+        } catch (IOException e) {
+            loaded.remove(key, future); // Try again next time
+            future.completeExceptionally(new UncheckedIOException(e));
+            return;
+        } catch (Throwable t) {
+            loaded.remove(key, future);
+            future.completeExceptionally(t);
+            return;
+        }
+        long weight = weigh(mappings);
+        synchronized (weights) {
+            // Invalidated while loading, so the waiting callers get the result, but it isn't kept
+            if (loaded.get(key) == future) {
+                weights.put(key, weight);
+                totalWeight += weight;
+                evict(key);
+            }
+        }
+        future.complete(mappings);
+    }
+
+    /**
+     * Evict the least recently used mappings until the total weight is within the budget, keeping the specified mappings.
+     */
+    private void evict(Key retained) {
+        assert Thread.holdsLock(weights);
+        Iterator<Map.Entry<Key, Long>> iterator = weights.entrySet().iterator();
+        while (totalWeight > maxWeight && iterator.hasNext()) {
+            Map.Entry<Key, Long> entry = iterator.next();
+            if (entry.getKey().equals(retained)) continue;
+            iterator.remove();
+            totalWeight -= entry.getValue();
+            loaded.remove(entry.getKey());
+        }
+    }
+
+    /**
+     * Evict the mappings for the specified version and namespace, if they're loaded or being loaded.
+     * <p>
+     * A load in progress still completes for the callers already waiting for it, but its result isn't kept.
+     * </p>
+     *
+     * @param version   the version of the mappings
+     * @param namespace the namespace of the mappings
+     */
+    public void invalidate(String version, String namespace) {
+        Key key = new Key(version, namespace);
+        synchronized (weights) {
+            Long weight = weights.remove(key);
+            if (weight != null) totalWeight -= weight;
+            loaded.remove(key);
+        }
+    }
+
+    /**
+     * Evict all loaded mappings, and forget any loads in progress.
+     */
+    public void invalidateAll() {
+        synchronized (weights) {
+            loaded.clear();
+            weights.clear();
+            totalWeight = 0;
+        }
+    }
+
+    /**
+     * Return the estimated size of all the currently loaded mappings, in bytes.
+     *
+     * @return the total weight
+     */
+    public long getTotalWeight() {
+        synchronized (weights) {
+            return totalWeight;
+        }
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public MappingsInterner getInterner() {
+        return interner;
+    }
+
+    private static long weigh(Mappings mappings) {
+        return mappings.classes().size() * CLASS_WEIGHT
+                + mappings.fields().size() * FIELD_WEIGHT
+                + mappings.methods().size() * METHOD_WEIGHT;
+    }
+
+    /**
+     * Loads the mappings for a version and namespace.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * Load the mappings for the specified version and namespace.
+         *
+         * @param version   the version of the mappings
+         * @param namespace the namespace of the mappings
+         * @return the mappings
+         * @throws IOException if an error occurs loading the mappings
+         */
+        Mappings load(String version, String namespace) throws IOException;
+    }
+
+    private static final class Key {
+        private final String version, namespace;
+
+        private Key(String version, String namespace) {
+            this.version = requireNonNull(version, "Null version");
+            this.namespace = requireNonNull(namespace, "Null namespace");
+        }
+
+        @Override
+        public int hashCode() {
+            return version.hashCode() * 31 + namespace.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return version.equals(other.version) && namespace.equals(other.namespace);
+        }
+
+        @Override
+        public String toString() {
+            return version + "/" + namespace;
+        }
+    }
+}
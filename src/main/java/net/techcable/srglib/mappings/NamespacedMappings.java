@@ -0,0 +1,481 @@
+package net.techcable.srglib.mappings;
+
+import net.techcable.srglib.FieldData;
+import net.techcable.srglib.JavaType;
+import net.techcable.srglib.MethodData;
+import net.techcable.srglib.MethodSignature;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Mappings between any number of namespaces, like {@code official}, {@code intermediary} and {@code named}.
+ * <p>
+ * Every class, field and method has a name in each namespace,
+ * and the mappings between any two namespaces are available as a {@link Mappings} view,
+ * without chaining or copying anything.
+ * Each namespace is indexed once, when the mappings are built, so creating a view is constant time,
+ * and lookups in a view are a single hash lookup.
+ * </p>
+ * <p>
+ * Members are declared with their owner and descriptor in the first namespace,
+ * and their owners and signatures in the other namespaces are derived from the class names.
+ * Namespaced mappings are immutable and thread-safe.
+ * </p>
+ */
+public final class NamespacedMappings {
+    private final List<String> namespaces;
+    private final ClassEntry[] classes;
+    private final Map<JavaType, ClassEntry>[] classIndexes;
+    private final Map<FieldData, FieldEntry>[] fieldIndexes;
+    private final Map<MethodData, MethodEntry>[] methodIndexes;
+    /**
+     * The views between each pair of namespaces, created on demand.
+     * Racing threads create equivalent views, so no synchronization is needed.
+     */
+    private final Projection[] projections;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private NamespacedMappings(List<String> namespaces, ClassEntry[] classes) {
+        this.namespaces = namespaces;
+        this.classes = classes;
+        int count = namespaces.size();
+        this.classIndexes = new Map[count];
+        this.fieldIndexes = new Map[count];
+        this.methodIndexes = new Map[count];
+        int fieldCount = 0, methodCount = 0;
+        for (ClassEntry entry : classes) {
+            fieldCount += entry.fields.length;
+            methodCount += entry.methods.length;
+        }
+        for (int namespace = 0; namespace < count; namespace++) {
+            Map<JavaType, ClassEntry> classIndex = new HashMap<>(capacity(classes.length));
+            Map<FieldData, FieldEntry> fieldIndex = new HashMap<>(capacity(fieldCount));
+            Map<MethodData, MethodEntry> methodIndex = new HashMap<>(capacity(methodCount));
+            for (ClassEntry entry : classes) {
+                if (entry.declared) classIndex.put(entry.names[namespace], entry);
+                for (FieldEntry field : entry.fields) {
+                    fieldIndex.put(field.names[namespace], field);
+                }
+                for (MethodEntry method : entry.methods) {
+                    methodIndex.put(method.names[namespace], method);
+                }
+            }
+            classIndexes[namespace] = classIndex;
+            fieldIndexes[namespace] = fieldIndex;
+            methodIndexes[namespace] = methodIndex;
+        }
+        this.projections = new Projection[count * count];
+    }
+
+    private static int capacity(int size) {
+        return (int) (size / 0.75f) + 1;
+    }
+
+    /**
+     * Return the names of the namespaces, in order.
+     *
+     * @return the namespaces
+     */
+    public List<String> getNamespaces() {
+        return namespaces;
+    }
+
+    /**
+     * Return the mappings from one namespace to another.
+     * <p>
+     * The result is a view of these mappings, so this is constant time.
+     * Inverting the view just returns the view in the opposite direction.
+     * </p>
+     *
+     * @param from the namespace of the original names
+     * @param to   the namespace of the renamed names
+     * @return the mappings between the namespaces
+     * @throws IllegalArgumentException if either namespace is unknown
+     */
+    public Mappings getMappings(String from, String to) {
+        return getMappings(indexOf(from), indexOf(to));
+    }
+
+    private Mappings getMappings(int from, int to) {
+        int index = from * namespaces.size() + to;
+        Projection projection = projections[index];
+        if (projection == null) {
+            projections[index] = projection = new Projection(from, to);
+        }
+        return projection;
+    }
+
+    private int indexOf(String namespace) {
+        int index = namespaces.indexOf(requireNonNull(namespace, "Null namespace"));
+        if (index < 0) throw new IllegalArgumentException("Unknown namespace " + namespace + " not in " + namespaces);
+        return index;
+    }
+
+    /**
+     * Pass every class and member to the specified visitor, with their names in every namespace.
+     * <p>
+     * Each class is visited before its members.
+     * Classes that were never declared, but own members, are visited with their name in every namespace.
+     * </p>
+     *
+     * @param visitor the visitor to receive the entries
+     */
+    public void accept(Visitor visitor) {
+        int count = namespaces.size();
+        String[] names = new String[count];
+        for (ClassEntry entry : classes) {
+            for (int namespace = 0; namespace < count; namespace++) {
+                names[namespace] = entry.names[namespace].getInternalName();
+            }
+            visitor.visitClass(names);
+            for (FieldEntry field : entry.fields) {
+                for (int namespace = 0; namespace < count; namespace++) {
+                    names[namespace] = field.names[namespace].getName();
+                }
+                visitor.visitField(field.descriptor, names);
+            }
+            for (MethodEntry method : entry.methods) {
+                for (int namespace = 0; namespace < count; namespace++) {
+                    names[namespace] = method.names[namespace].getName();
+                }
+                visitor.visitMethod(method.names[0].getSignature().getDescriptor(), names);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "NamespacedMappings{namespaces=" + namespaces + ", classes=" + classIndexes[0].size()
+                + ", fields=" + fieldIndexes[0].size() + ", methods=" + methodIndexes[0].size() + "}";
+    }
+
+    /**
+     * Create a builder for mappings between the specified namespaces.
+     *
+     * @param namespaces the names of the namespaces
+     * @return a new builder
+     * @throws IllegalArgumentException if there are fewer than two namespaces, or a namespace is duplicated
+     */
+    public static Builder builder(String... namespaces) {
+        return builder(Arrays.asList(namespaces));
+    }
+
+    /**
+     * Create a builder for mappings between the specified namespaces.
+     *
+     * @param namespaces the names of the namespaces
+     * @return a new builder
+     * @throws IllegalArgumentException if there are fewer than two namespaces, or a namespace is duplicated
+     */
+    public static Builder builder(List<String> namespaces) {
+        return new Builder(namespaces);
+    }
+
+    /**
+     * Receives the entries of namespaced mappings, with a name for each namespace.
+     * <p>
+     * The names array is reused between calls, and must not be retained.
+     * </p>
+     */
+    public interface Visitor {
+        void visitClass(String[] names);
+
+        void visitField(String descriptor, String[] names);
+
+        void visitMethod(String descriptor, String[] names);
+    }
+
+    /**
+     * Builds namespaced mappings.
+     * <p>
+     * Missing names, given as null or empty strings, default to the name in the first namespace.
+     * </p>
+     */
+    public static final class Builder {
+        private final List<String> namespaces;
+        private final Map<String, ClassBuilder> classes = new LinkedHashMap<>();
+        @Nullable
+        private String lastOwner;
+        @Nullable
+        private ClassBuilder lastClass;
+
+        private Builder(List<String> namespaces) {
+            List<String> copy = new ArrayList<>(namespaces);
+            if (copy.size() < 2) throw new IllegalArgumentException("Need at least two namespaces: " + copy);
+            for (String namespace : copy) {
+                requireNonNull(namespace, "Null namespace");
+                if (copy.indexOf(namespace) != copy.lastIndexOf(namespace)) {
+                    throw new IllegalArgumentException("Duplicate namespace: " + namespace);
+                }
+            }
+            this.namespaces = Collections.unmodifiableList(copy);
+        }
+
+        public List<String> getNamespaces() {
+            return namespaces;
+        }
+
+        /**
+         * Add a class with the specified internal names.
+         *
+         * @param names the internal names of the class, in each namespace
+         * @return this builder
+         * @throws IllegalArgumentException if there isn't a name for each namespace, or the first name is missing
+         */
+        public Builder addClass(String... names) {
+            String[] copy = checkNames(names);
+            ClassBuilder builder = owner(copy[0]);
+            builder.names = copy;
+            builder.declared = true;
+            return this;
+        }
+
+        /**
+         * Add a field to the specified class.
+         *
+         * @param owner      the internal name of the class in the first namespace
+         * @param descriptor the descriptor of the field's type in the first namespace
+         * @param names      the names of the field, in each namespace
+         * @return this builder
+         * @throws IllegalArgumentException if there isn't a name for each namespace, or the first name is missing
+         */
+        public Builder addField(String owner, String descriptor, String... names) {
+            requireNonNull(descriptor, "Null descriptor");
+            owner(requireNonNull(owner, "Null owner")).fields.add(new MemberBuilder(descriptor, checkNames(names)));
+            return this;
+        }
+
+        /**
+         * Add a method to the specified class.
+         *
+         * @param owner      the internal name of the class in the first namespace
+         * @param descriptor the descriptor of the method in the first namespace
+         * @param names      the names of the method, in each namespace
+         * @return this builder
+         * @throws IllegalArgumentException if there isn't a name for each namespace, or the first name is missing
+         */
+        public Builder addMethod(String owner, String descriptor, String... names) {
+            requireNonNull(descriptor, "Null descriptor");
+            owner(requireNonNull(owner, "Null owner")).methods.add(new MemberBuilder(descriptor, checkNames(names)));
+            return this;
+        }
+
+        private ClassBuilder owner(String owner) {
+            // Members are usually added right after their class
+            if (owner.equals(lastOwner)) {
+                assert lastClass != null;
+                return lastClass;
+            }
+            ClassBuilder builder = classes.get(owner);
+            if (builder == null) {
+                builder = new ClassBuilder(owner, namespaces.size());
+                classes.put(owner, builder);
+            }
+            lastOwner = owner;
+            lastClass = builder;
+            return builder;
+        }
+
+        private String[] checkNames(String[] names) {
+            if (names.length != namespaces.size()) {
+                throw new IllegalArgumentException("Expected " + namespaces.size() + " names, but got " + Arrays.toString(names));
+            }
+            String[] copy = names.clone();
+            if (copy[0] == null || copy[0].isEmpty()) throw new IllegalArgumentException("Missing name in " + namespaces.get(0));
+            for (int i = 1; i < copy.length; i++) {
+                if (copy[i] == null || copy[i].isEmpty()) copy[i] = copy[0];
+            }
+            return copy;
+        }
+
+        public NamespacedMappings build() {
+            int count = namespaces.size();
+            // Map the types in the first namespace to every other namespace, for the members' signatures
+            Map<JavaType, JavaType[]> types = new HashMap<>(capacity(classes.size()));
+            List<ClassBuilder> builders = new ArrayList<>(classes.values());
+            ClassEntry[] entries = new ClassEntry[builders.size()];
+            for (int i = 0; i < entries.length; i++) {
+                ClassBuilder builder = builders.get(i);
+                JavaType[] names = new JavaType[count];
+                names[0] = JavaType.fromInternalName(builder.names[0]);
+                for (int namespace = 1; namespace < count; namespace++) {
+                    String name = builder.names[namespace];
+                    names[namespace] = name.equals(builder.names[0]) ? names[0] : JavaType.fromInternalName(name);
+                }
+                types.put(names[0], names);
+                entries[i] = new ClassEntry(names, builder.declared);
+            }
+            for (int i = 0; i < entries.length; i++) {
+                ClassBuilder builder = builders.get(i);
+                ClassEntry entry = entries[i];
+                entry.fields = new FieldEntry[builder.fields.size()];
+                for (int j = 0; j < entry.fields.length; j++) {
+                    MemberBuilder field = builder.fields.get(j);
+                    FieldData[] names = new FieldData[count];
+                    for (int namespace = 0; namespace < count; namespace++) {
+                        names[namespace] = FieldData.create(entry.names[namespace], field.names[namespace]);
+                    }
+                    entry.fields[j] = new FieldEntry(field.descriptor, names);
+                }
+                entry.methods = new MethodEntry[builder.methods.size()];
+                for (int j = 0; j < entry.methods.length; j++) {
+                    MemberBuilder method = builder.methods.get(j);
+                    MethodSignature signature = MethodSignature.fromDescriptor(method.descriptor);
+                    MethodData[] names = new MethodData[count];
+                    for (int namespace = 0; namespace < count; namespace++) {
+                        int target = namespace;
+                        MethodSignature mapped = namespace == 0 ? signature : signature.mapTypes(type -> {
+                            JavaType[] renamed = types.get(type);
+                            return renamed != null ? renamed[target] : type;
+                        });
+                        names[namespace] = MethodData.create(entry.names[namespace], method.names[namespace], mapped);
+                    }
+                    entry.methods[j] = new MethodEntry(names);
+                }
+            }
+            return new NamespacedMappings(namespaces, entries);
+        }
+    }
+
+    private static final class ClassBuilder {
+        private String[] names;
+        private boolean declared;
+        private final List<MemberBuilder> fields = new ArrayList<>();
+        private final List<MemberBuilder> methods = new ArrayList<>();
+
+        private ClassBuilder(String owner, int namespaces) {
+            this.names = new String[namespaces];
+            Arrays.fill(names, owner); // Until it's declared
+        }
+    }
+
+    private static final class MemberBuilder {
+        private final String descriptor;
+        private final String[] names;
+
+        private MemberBuilder(String descriptor, String[] names) {
+            this.descriptor = descriptor;
+            this.names = names;
+        }
+    }
+
+    private static final class ClassEntry {
+        private final JavaType[] names;
+        /**
+         * If the class was declared, rather than just owning members.
+         */
+        private final boolean declared;
+        private FieldEntry[] fields;
+        private MethodEntry[] methods;
+
+        private ClassEntry(JavaType[] names, boolean declared) {
+            this.names = names;
+            this.declared = declared;
+        }
+    }
+
+    private static final class FieldEntry {
+        private final String descriptor;
+        private final FieldData[] names;
+
+        private FieldEntry(String descriptor, FieldData[] names) {
+            this.descriptor = descriptor;
+            this.names = names;
+        }
+    }
+
+    private static final class MethodEntry {
+        private final MethodData[] names;
+
+        private MethodEntry(MethodData[] names) {
+            this.names = names;
+        }
+    }
+
+    /**
+     * A view of the mappings between two namespaces.
+     */
+    private final class Projection implements Mappings {
+        private final int from, to;
+        @Nullable
+        private volatile ImmutableMappings snapshot;
+
+        private Projection(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public JavaType getNewClass(JavaType original) {
+            if(!original.isReferenceType()) throw new IllegalArgumentException("Type isn't a reference type: " + original);
+            ClassEntry entry = classIndexes[from].get(original);
+            return entry != null ? entry.names[to] : original;
+        }
+
+        @Override
+        public MethodData getNewMethod(MethodData original) {
+            MethodEntry entry = methodIndexes[from].get(requireNonNull(original));
+            return entry != null ? entry.names[to] : original.mapTypes(this::getNewType);
+        }
+
+        @Override
+        public FieldData getNewField(FieldData original) {
+            FieldEntry entry = fieldIndexes[from].get(requireNonNull(original));
+            return entry != null ? entry.names[to] : original.mapTypes(this::getNewType);
+        }
+
+        @Override
+        public Set<JavaType> classes() {
+            return Collections.unmodifiableSet(classIndexes[from].keySet());
+        }
+
+        @Override
+        public Set<MethodData> methods() {
+            return Collections.unmodifiableSet(methodIndexes[from].keySet());
+        }
+
+        @Override
+        public Set<FieldData> fields() {
+            return Collections.unmodifiableSet(fieldIndexes[from].keySet());
+        }
+
+        @Override
+        public Mappings inverted() {
+            return getMappings(to, from);
+        }
+
+        @Override
+        public ImmutableMappings snapshot() {
+            ImmutableMappings snapshot = this.snapshot;
+            if (snapshot == null) {
+                this.snapshot = snapshot = ImmutableMappings.copyOf(this);
+            }
+            return snapshot;
+        }
+
+        @Override
+        public int hashCode() {
+            return snapshot().hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj == this || obj instanceof Mappings && snapshot().equals(obj);
+        }
+
+        @Override
+        public String toString() {
+            return "Mappings{" + namespaces.get(from) + " -> " + namespaces.get(to) + "}";
+        }
+    }
+}
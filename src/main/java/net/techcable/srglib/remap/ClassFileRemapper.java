@@ -0,0 +1,536 @@
+package net.techcable.srglib.remap;
+
+import net.techcable.srglib.mappings.Mappings;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+import static net.techcable.srglib.remap.ConstantPool.*;
+
+/**
+ * Remaps class files at the constant pool level, without parsing or rebuilding any code.
+ * <p>
+ * Class entries, member references, method types and dynamic call sites are remapped in the constant pool,
+ * along with the names and descriptors of the declared fields and methods,
+ * generic signatures, local variable tables, inner class names, enclosing methods,
+ * record components and annotation types.
+ * The names of lambda methods are remapped through their functional interface.
+ * </p>
+ * <p>
+ * Existing constant pool entries are never modified in place, since they may be shared with unrelated constants.
+ * Instead, the references are redirected to new entries appended to the end of the pool.
+ * Since every redirected reference keeps its size, the rest of the class file is copied verbatim.
+ * Type annotations and annotation element names are not remapped.
+ * </p>
+ * <p>
+ * Remappers reuse their internal buffers, and so aren't thread-safe.
+ * Use a separate remapper for each thread.
+ * </p>
+ */
+public final class ClassFileRemapper {
+    private static final String LAMBDA_METAFACTORY = "java/lang/invoke/LambdaMetafactory";
+    private final Mappings mappings;
+    private final SignatureRemapper signatureRemapper;
+    // State of the class being remapped
+    private ConstantPool pool;
+    private byte[] input;
+    @Nullable
+    private byte[] output;
+    private String className;
+    private int bootstrapMethodsOffset;
+    @Nullable
+    private int[] bootstrapMethodOffsets;
+    // New constant pool entries
+    private byte[] extra = new byte[256];
+    private int extraLength;
+    private int nextIndex;
+    @Nullable
+    private Map<String, Integer> utf8Indices;
+    @Nullable
+    private Map<Integer, Integer> nameAndTypeIndices;
+
+    public ClassFileRemapper(Mappings mappings) {
+        this.mappings = requireNonNull(mappings, "Null mappings");
+        this.signatureRemapper = new SignatureRemapper(mappings);
+    }
+
+    public Mappings getMappings() {
+        return mappings;
+    }
+
+    /**
+     * Remap the specified class name, which may be an array descriptor.
+     *
+     * @param name the original class name
+     * @return the new class name
+     * @see SignatureRemapper#remapClassName(String)
+     */
+    public String remapClassName(String name) {
+        return signatureRemapper.remapClassName(name);
+    }
+
+    /**
+     * Remap the specified class file.
+     *
+     * @param classFile the bytes of the original class file
+     * @return the bytes of the remapped class file, or the input if nothing changed
+     * @throws IllegalArgumentException if the class file is invalid
+     */
+    public byte[] remap(byte[] classFile) {
+        this.input = requireNonNull(classFile, "Null class file");
+        this.pool = new ConstantPool(classFile);
+        this.nextIndex = pool.count();
+        try {
+            int offset = pool.end();
+            this.className = requireNonNull(pool.className(u2(classFile, offset + 2)), "Null class name");
+            offset += 6;
+            offset += 2 + 2 * u2(classFile, offset); // Interfaces
+            int fieldsOffset = offset;
+            offset = skipMembers(offset);
+            int methodsOffset = offset;
+            offset = skipMembers(offset);
+            int attributesOffset = offset;
+            findBootstrapMethods(attributesOffset);
+
+            remapConstantPool();
+            remapMembers(fieldsOffset, true);
+            remapMembers(methodsOffset, false);
+            remapAttributes(attributesOffset);
+            return result();
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated class file");
+        } finally {
+            this.pool = null;
+            this.input = null;
+            this.output = null;
+            this.className = null;
+            this.bootstrapMethodOffsets = null;
+            this.extraLength = 0;
+            this.utf8Indices = null;
+            this.nameAndTypeIndices = null;
+        }
+    }
+
+    private byte[] result() {
+        byte[] output = this.output;
+        if (output == null) {
+            assert extraLength == 0;
+            return input;
+        }
+        int poolEnd = pool.end();
+        byte[] result = new byte[output.length + extraLength];
+        System.arraycopy(output, 0, result, 0, poolEnd);
+        System.arraycopy(extra, 0, result, poolEnd, extraLength);
+        System.arraycopy(output, poolEnd, result, poolEnd + extraLength, output.length - poolEnd);
+        putU2(result, 8, nextIndex);
+        return result;
+    }
+
+    //
+    // Constant pool
+    //
+
+    private void remapConstantPool() {
+        ConstantPool pool = this.pool;
+        byte[] input = this.input;
+        for (int index = 1, count = pool.count(); index < count; index++) {
+            int offset = pool.offset(index);
+            switch (pool.tag(index)) {
+                case CLASS:
+                    String name = pool.utf8(u2(input, offset + 1));
+                    String newName = signatureRemapper.remapClassName(name);
+                    if (newName != name) patch(offset + 1, utf8Index(newName));
+                    break;
+                case FIELD_REF:
+                case METHOD_REF:
+                case INTERFACE_METHOD_REF:
+                    remapMemberRef(index);
+                    break;
+                case METHOD_TYPE:
+                    remapDescriptorAt(offset + 1);
+                    break;
+                case DYNAMIC:
+                case INVOKE_DYNAMIC:
+                    remapDynamic(index);
+                    break;
+            }
+        }
+    }
+
+    private void remapMemberRef(int index) {
+        int offset = pool.offset(index);
+        String owner = requireNonNull(pool.className(u2(input, offset + 1)));
+        int nameAndType = u2(input, offset + 3);
+        int nameAndTypeOffset = pool.offset(nameAndType);
+        int nameIndex = u2(input, nameAndTypeOffset + 1);
+        int descriptorIndex = u2(input, nameAndTypeOffset + 3);
+        String name = pool.utf8(nameIndex);
+        String descriptor = pool.utf8(descriptorIndex);
+        final String newName;
+        if (owner.startsWith("[")) {
+            newName = null; // Array methods like clone() are never renamed
+        } else if (pool.tag(index) == FIELD_REF) {
+            newName = mappings.findNewFieldName(owner, name);
+        } else {
+            newName = mappings.findNewMethodName(owner, name, descriptor);
+        }
+        String newDescriptor = signatureRemapper.remapDescriptor(descriptor);
+        if (newName != null || newDescriptor != descriptor) {
+            patch(offset + 3, nameAndTypeIndex(
+                    newName != null ? utf8Index(newName) : nameIndex,
+                    newDescriptor != descriptor ? utf8Index(newDescriptor) : descriptorIndex
+            ));
+        }
+    }
+
+    private void remapDynamic(int index) {
+        int offset = pool.offset(index);
+        int nameAndType = u2(input, offset + 3);
+        int nameAndTypeOffset = pool.offset(nameAndType);
+        int nameIndex = u2(input, nameAndTypeOffset + 1);
+        int descriptorIndex = u2(input, nameAndTypeOffset + 3);
+        String descriptor = pool.utf8(descriptorIndex);
+        String newName = null;
+        if (pool.tag(index) == INVOKE_DYNAMIC) {
+            newName = findNewLambdaName(u2(input, offset + 1), pool.utf8(nameIndex), descriptor);
+        }
+        String newDescriptor = signatureRemapper.remapDescriptor(descriptor);
+        if (newName != null || newDescriptor != descriptor) {
+            patch(offset + 3, nameAndTypeIndex(
+                    newName != null ? utf8Index(newName) : nameIndex,
+                    newDescriptor != descriptor ? utf8Index(newDescriptor) : descriptorIndex
+            ));
+        }
+    }
+
+    /**
+     * Find the new name of the functional interface method implemented by a lambda call site.
+     *
+     * @param bootstrapMethod the index of the call site's bootstrap method
+     * @param name            the name of the interface method
+     * @param descriptor      the call site's descriptor, returning the functional interface
+     * @return the new name, or null if unchanged or not a lambda
+     */
+    @Nullable
+    private String findNewLambdaName(int bootstrapMethod, String name, String descriptor) {
+        int[] bootstrapMethodOffsets = this.bootstrapMethodOffsets;
+        if (bootstrapMethodOffsets == null || bootstrapMethod >= bootstrapMethodOffsets.length) return null;
+        int offset = bootstrapMethodOffsets[bootstrapMethod];
+        int handleOffset = pool.offset(u2(input, offset));
+        int factoryRef = u2(input, handleOffset + 2);
+        if (!LAMBDA_METAFACTORY.equals(pool.className(u2(input, pool.offset(factoryRef) + 1)))) return null;
+        if (u2(input, offset + 2) < 1) return null;
+        int samType = u2(input, offset + 4);
+        if (pool.tag(samType) != METHOD_TYPE) return null;
+        String samDescriptor = pool.utf8(u2(input, pool.offset(samType) + 1));
+        int returnType = descriptor.lastIndexOf(')') + 1;
+        if (returnType >= descriptor.length() || descriptor.charAt(returnType) != 'L') return null;
+        String owner = descriptor.substring(returnType + 1, descriptor.length() - 1);
+        return mappings.findNewMethodName(owner, name, samDescriptor);
+    }
+
+    private void findBootstrapMethods(int offset) {
+        int count = u2(input, offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            int length = u4(input, offset + 2);
+            if (pool.utf8(u2(input, offset)).equals("BootstrapMethods")) {
+                int start = offset + 6;
+                int[] offsets = new int[u2(input, start)];
+                int methodOffset = start + 2;
+                for (int method = 0; method < offsets.length; method++) {
+                    offsets[method] = methodOffset;
+                    methodOffset += 4 + 2 * u2(input, methodOffset + 2);
+                }
+                this.bootstrapMethodOffsets = offsets;
+                return;
+            }
+            offset += 6 + length;
+        }
+    }
+
+    //
+    // Members
+    //
+
+    private int skipMembers(int offset) {
+        int count = u2(input, offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            offset = skipAttributes(offset + 6);
+        }
+        return offset;
+    }
+
+    private int skipAttributes(int offset) {
+        int count = u2(input, offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            offset += 6 + u4(input, offset + 2);
+        }
+        return offset;
+    }
+
+    private void remapMembers(int offset, boolean fields) {
+        int count = u2(input, offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            String name = pool.utf8(u2(input, offset + 2));
+            final String newName;
+            if (fields) {
+                newName = mappings.findNewFieldName(className, name);
+            } else if (name.startsWith("<")) {
+                newName = null; // Constructors and static initializers
+            } else {
+                newName = mappings.findNewMethodName(className, name, pool.utf8(u2(input, offset + 4)));
+            }
+            if (newName != null) patch(offset + 2, utf8Index(newName));
+            remapDescriptorAt(offset + 4);
+            offset = remapAttributes(offset + 6);
+        }
+    }
+
+    //
+    // Attributes
+    //
+
+    private int remapAttributes(int offset) {
+        int count = u2(input, offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            String name = pool.utf8(u2(input, offset));
+            int start = offset + 6;
+            int end = start + u4(input, offset + 2);
+            switch (name) {
+                case "Signature":
+                    remapSignatureAt(start);
+                    break;
+                case "Code":
+                    int codeLength = u4(input, start + 4);
+                    int exceptionTable = start + 8 + codeLength;
+                    remapAttributes(exceptionTable + 2 + 8 * u2(input, exceptionTable));
+                    break;
+                case "LocalVariableTable":
+                    for (int entry = 0, entries = u2(input, start); entry < entries; entry++) {
+                        remapDescriptorAt(start + 2 + 10 * entry + 6);
+                    }
+                    break;
+                case "LocalVariableTypeTable":
+                    for (int entry = 0, entries = u2(input, start); entry < entries; entry++) {
+                        remapSignatureAt(start + 2 + 10 * entry + 6);
+                    }
+                    break;
+                case "InnerClasses":
+                    for (int entry = 0, entries = u2(input, start); entry < entries; entry++) {
+                        remapInnerClass(start + 2 + 8 * entry);
+                    }
+                    break;
+                case "EnclosingMethod":
+                    remapEnclosingMethod(start);
+                    break;
+                case "Record":
+                    int componentOffset = start + 2;
+                    for (int component = 0, components = u2(input, start); component < components; component++) {
+                        String componentName = pool.utf8(u2(input, componentOffset));
+                        String newComponentName = mappings.findNewFieldName(className, componentName);
+                        if (newComponentName != null) patch(componentOffset, utf8Index(newComponentName));
+                        remapDescriptorAt(componentOffset + 2);
+                        componentOffset = remapAttributes(componentOffset + 4);
+                    }
+                    break;
+                case "RuntimeVisibleAnnotations":
+                case "RuntimeInvisibleAnnotations":
+                    remapAnnotations(start);
+                    break;
+                case "RuntimeVisibleParameterAnnotations":
+                case "RuntimeInvisibleParameterAnnotations":
+                    int annotationsOffset = start + 1;
+                    for (int parameter = 0, parameters = u1(input, start); parameter < parameters; parameter++) {
+                        annotationsOffset = remapAnnotations(annotationsOffset);
+                    }
+                    break;
+                case "AnnotationDefault":
+                    remapElementValue(start);
+                    break;
+            }
+            offset = end;
+        }
+        return offset;
+    }
+
+    private void remapInnerClass(int offset) {
+        int innerNameIndex = u2(input, offset + 4);
+        if (innerNameIndex == 0) return; // Anonymous
+        String innerClass = requireNonNull(pool.className(u2(input, offset)));
+        String newInnerClass = signatureRemapper.remapClassName(innerClass);
+        if (newInnerClass == innerClass) return;
+        String outerClass = pool.className(u2(input, offset + 2));
+        String newOuterClass = outerClass != null ? signatureRemapper.remapClassName(outerClass) : null;
+        final int simpleNameStart;
+        if (newOuterClass != null
+                && newInnerClass.length() > newOuterClass.length() + 1
+                && newInnerClass.startsWith(newOuterClass)
+                && newInnerClass.charAt(newOuterClass.length()) == '$') {
+            simpleNameStart = newOuterClass.length() + 1;
+        } else {
+            simpleNameStart = Math.max(newInnerClass.lastIndexOf('$'), newInnerClass.lastIndexOf('/')) + 1;
+        }
+        String newInnerName = newInnerClass.substring(simpleNameStart);
+        if (!newInnerName.equals(pool.utf8(innerNameIndex))) {
+            patch(offset + 4, utf8Index(newInnerName));
+        }
+    }
+
+    private void remapEnclosingMethod(int offset) {
+        int method = u2(input, offset + 2);
+        if (method == 0) return; // Not enclosed by a method
+        String owner = requireNonNull(pool.className(u2(input, offset)));
+        int methodOffset = pool.offset(method);
+        int nameIndex = u2(input, methodOffset + 1);
+        int descriptorIndex = u2(input, methodOffset + 3);
+        String name = pool.utf8(nameIndex);
+        String descriptor = pool.utf8(descriptorIndex);
+        String newName = name.startsWith("<") ? null : mappings.findNewMethodName(owner, name, descriptor);
+        String newDescriptor = signatureRemapper.remapDescriptor(descriptor);
+        if (newName != null || newDescriptor != descriptor) {
+            patch(offset + 2, nameAndTypeIndex(
+                    newName != null ? utf8Index(newName) : nameIndex,
+                    newDescriptor != descriptor ? utf8Index(newDescriptor) : descriptorIndex
+            ));
+        }
+    }
+
+    private int remapAnnotations(int offset) {
+        int count = u2(input, offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            offset = remapAnnotation(offset);
+        }
+        return offset;
+    }
+
+    private int remapAnnotation(int offset) {
+        remapDescriptorAt(offset);
+        int pairs = u2(input, offset + 2);
+        offset += 4;
+        for (int i = 0; i < pairs; i++) {
+            offset = remapElementValue(offset + 2);
+        }
+        return offset;
+    }
+
+    private int remapElementValue(int offset) {
+        int tag = input[offset++];
+        switch (tag) {
+            case 'e':
+                String type = pool.utf8(u2(input, offset));
+                if (type.length() > 2 && type.startsWith("L")) {
+                    String owner = type.substring(1, type.length() - 1);
+                    String newConstant = mappings.findNewFieldName(owner, pool.utf8(u2(input, offset + 2)));
+                    if (newConstant != null) patch(offset + 2, utf8Index(newConstant));
+                }
+                remapDescriptorAt(offset);
+                return offset + 4;
+            case 'c':
+                remapDescriptorAt(offset);
+                return offset + 2;
+            case '@':
+                return remapAnnotation(offset);
+            case '[':
+                int count = u2(input, offset);
+                offset += 2;
+                for (int i = 0; i < count; i++) {
+                    offset = remapElementValue(offset);
+                }
+                return offset;
+            default:
+                return offset + 2; // Constant
+        }
+    }
+
+    //
+    // Helpers
+    //
+
+    private void remapDescriptorAt(int offset) {
+        int index = u2(input, offset);
+        String descriptor = pool.utf8(index);
+        String newDescriptor = signatureRemapper.remapDescriptor(descriptor);
+        if (newDescriptor != descriptor) patch(offset, utf8Index(newDescriptor));
+    }
+
+    private void remapSignatureAt(int offset) {
+        int index = u2(input, offset);
+        String signature = pool.utf8(index);
+        String newSignature = signatureRemapper.remapSignature(signature);
+        if (newSignature != signature) patch(offset, utf8Index(newSignature));
+    }
+
+    private void patch(int offset, int index) {
+        byte[] output = this.output;
+        if (output == null) {
+            output = this.output = input.clone();
+        }
+        putU2(output, offset, index);
+    }
+
+    private int utf8Index(String value) {
+        Map<String, Integer> utf8Indices = this.utf8Indices;
+        if (utf8Indices == null) {
+            utf8Indices = this.utf8Indices = new HashMap<>();
+            for (int index = 1, count = pool.count(); index < count; index++) {
+                if (pool.tag(index) == UTF8) utf8Indices.putIfAbsent(pool.utf8(index), index);
+            }
+        }
+        Integer existing = utf8Indices.get(value);
+        if (existing != null) return existing;
+        int length = utf8Length(value);
+        if (length > 0xFFFF) throw new IllegalArgumentException("String too long for the constant pool: " + value);
+        ensureExtra(3 + length);
+        extra[extraLength] = UTF8;
+        putU2(extra, extraLength + 1, length);
+        extraLength = encodeUtf8(value, extra, extraLength + 3);
+        int index = allocateIndex();
+        utf8Indices.put(value, index);
+        return index;
+    }
+
+    private int nameAndTypeIndex(int nameIndex, int descriptorIndex) {
+        Map<Integer, Integer> nameAndTypeIndices = this.nameAndTypeIndices;
+        if (nameAndTypeIndices == null) {
+            nameAndTypeIndices = this.nameAndTypeIndices = new HashMap<>();
+            for (int index = 1, count = pool.count(); index < count; index++) {
+                if (pool.tag(index) == NAME_AND_TYPE) {
+                    int offset = pool.offset(index);
+                    nameAndTypeIndices.putIfAbsent((u2(input, offset + 1) << 16) | u2(input, offset + 3), index);
+                }
+            }
+        }
+        int key = (nameIndex << 16) | descriptorIndex;
+        Integer existing = nameAndTypeIndices.get(key);
+        if (existing != null) return existing;
+        ensureExtra(5);
+        extra[extraLength] = NAME_AND_TYPE;
+        putU2(extra, extraLength + 1, nameIndex);
+        putU2(extra, extraLength + 3, descriptorIndex);
+        extraLength += 5;
+        int index = allocateIndex();
+        nameAndTypeIndices.put(key, index);
+        return index;
+    }
+
+    private int allocateIndex() {
+        if (nextIndex >= 0xFFFF) throw new IllegalArgumentException("Constant pool of " + className + " is too large to remap");
+        if (output == null) output = input.clone();
+        return nextIndex++;
+    }
+
+    private void ensureExtra(int needed) {
+        if (extraLength + needed > extra.length) {
+            extra = Arrays.copyOf(extra, Math.max(extra.length * 2, extraLength + needed));
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package net.techcable.srglib.remap;
+
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.utils.ByteStreams;
+import net.techcable.srglib.utils.Exceptions;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipFile;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An index of the supertypes of a set of classes, used to resolve members referenced through subtypes.
+ * <p>
+ * Bytecode references a member through the static type of its receiver,
+ * so {@code Sub.foo()V} may refer to a method declared by {@code Base}, or by one of its interfaces.
+ * Mappings only list the declaring type, so {@link #resolving(Mappings)} flattens the mapped members
+ * of every class's ancestors into a single table, and resolves inherited references with a single lookup.
+ * </p>
+ * <p>
+ * Hierarchies are immutable and thread-safe.
+ * </p>
+ */
+public final class ClassHierarchy {
+    /* package */ static final int ACC_PUBLIC = 0x0001, ACC_PRIVATE = 0x0002, ACC_PROTECTED = 0x0004, ACC_STATIC = 0x0008;
+    /**
+     * The access of a member of a class whose members aren't known.
+     */
+    /* package */ static final int UNKNOWN = -1;
+    /**
+     * The access of a member that a class is known not to declare.
+     */
+    /* package */ static final int NOT_DECLARED = -2;
+    private static final String[] NO_CLASSES = new String[0];
+    private final Map<String, ClassInfo> classes;
+
+    private ClassHierarchy(Map<String, ClassInfo> classes) {
+        this.classes = requireNonNull(classes, "Null classes");
+    }
+
+    /**
+     * Return the internal names of the classes in this hierarchy.
+     *
+     * @return the known classes
+     */
+    public Set<String> classes() {
+        return Collections.unmodifiableSet(classes.keySet());
+    }
+
+    /**
+     * Return the superclass of the specified class, or null if unknown or if it has none.
+     *
+     * @param internalName the internal name of the class
+     * @return the internal name of the superclass
+     */
+    @Nullable
+    public String getSuperclass(String internalName) {
+        ClassInfo info = classes.get(internalName);
+        return info != null ? info.superName : null;
+    }
+
+    /**
+     * Return the direct superinterfaces of the specified class, or an empty list if unknown.
+     *
+     * @param internalName the internal name of the class
+     * @return the internal names of the interfaces
+     */
+    public List<String> getInterfaces(String internalName) {
+        ClassInfo info = classes.get(internalName);
+        return info != null ? Collections.unmodifiableList(Arrays.asList(info.interfaces)) : Collections.emptyList();
+    }
+
+    /**
+     * Return all the known ancestors of the specified class, in member resolution order.
+     * <p>
+     * Superclasses come first, nearest first, followed by the superinterfaces in breadth-first order.
+     * The class itself is not included.
+     * </p>
+     *
+     * @param internalName the internal name of the class
+     * @return the internal names of the ancestors
+     */
+    public List<String> getAncestors(String internalName) {
+        return Collections.unmodifiableList(Arrays.asList(ancestors(internalName)));
+    }
+
+    /**
+     * Return the access flags of the specified member declared by the specified class,
+     * {@link #NOT_DECLARED} if the class doesn't declare it, or {@link #UNKNOWN} if its members aren't known.
+     */
+    /* package */ int memberAccess(String owner, String name, @Nullable String descriptor) {
+        ClassInfo info = classes.get(owner);
+        if (info == null || info.members == null) return UNKNOWN;
+        Integer access = info.members.get(ClassInfo.memberKey(name, descriptor));
+        return access != null ? access : NOT_DECLARED;
+    }
+
+    private String[] ancestors(String internalName) {
+        ClassInfo info = classes.get(internalName);
+        if (info == null) return NO_CLASSES;
+        String[] ancestors = info.ancestors;
+        if (ancestors == null) {
+            info.ancestors = ancestors = computeAncestors(info);
+        }
+        return ancestors;
+    }
+
+    private String[] computeAncestors(ClassInfo info) {
+        List<String> result = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        seen.add(info.name);
+        ArrayDeque<String> interfaces = new ArrayDeque<>(Arrays.asList(info.interfaces));
+        for (String superName = info.superName; superName != null && seen.add(superName); ) {
+            result.add(superName);
+            ClassInfo superInfo = classes.get(superName);
+            if (superInfo == null) break;
+            interfaces.addAll(Arrays.asList(superInfo.interfaces));
+            superName = superInfo.superName;
+        }
+        String interfaceName;
+        while ((interfaceName = interfaces.poll()) != null) {
+            if (!seen.add(interfaceName)) continue;
+            result.add(interfaceName);
+            ClassInfo interfaceInfo = classes.get(interfaceName);
+            if (interfaceInfo != null) interfaces.addAll(Arrays.asList(interfaceInfo.interfaces));
+        }
+        return result.toArray(NO_CLASSES);
+    }
+
+    /**
+     * Return a view of the specified mappings which also renames members referenced through subtypes.
+     * <p>
+     * Members mapped on a class are inherited by all its known subtypes,
+     * unless the subtype has a mapping of its own, or a nearer ancestor maps the same member.
+     * Private members, constructors and static initializers are never inherited,
+     * and neither are members hidden by a declaration in the subtype or a nearer ancestor,
+     * except for methods that override the mapped method, so overrides stay consistent.
+     * Access is only known for classes read from class files, and other classes are assumed to inherit everything.
+     * The inherited members are precomputed when the view is created,
+     * so the view answers every lookup with at most two hash table probes.
+     * </p>
+     *
+     * @param mappings the mappings to resolve
+     * @return mappings which resolve inherited members
+     */
+    public Mappings resolving(Mappings mappings) {
+        return new HierarchyMappings(mappings, this);
+    }
+
+    /**
+     * Read the hierarchy of the classes in the specified jar.
+     * <p>
+     * The class files are read in parallel, and only their headers and member declarations are parsed.
+     * </p>
+     *
+     * @param jar the jar to read
+     * @return the class hierarchy
+     * @throws IOException if an error occurs reading the jar
+     * @throws IllegalArgumentException if the jar has invalid class files
+     */
+    public static ClassHierarchy fromJar(ZipFile jar) throws IOException {
+        Map<String, ClassInfo> classes = new ConcurrentHashMap<>();
+        try {
+            jar.stream().parallel()
+                    .filter(entry -> entry.getName().endsWith(".class") && !entry.getName().endsWith("module-info.class"))
+                    .forEach(Exceptions.sneakyThrowing(entry -> {
+                        byte[] data;
+                        try (InputStream in = jar.getInputStream(entry)) {
+                            data = ByteStreams.readFully(in, entry.getSize());
+                        }
+                        ClassInfo info = ClassInfo.read(data);
+                        classes.put(info.name, info);
+                    }));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid class file in " + jar.getName() + ": " + e.getMessage(), e);
+        }
+        return new ClassHierarchy(new HashMap<>(classes));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builds a class hierarchy from class files or supertype data.
+     */
+    public static final class Builder {
+        private final Map<String, ClassInfo> classes = new HashMap<>();
+
+        private Builder() {}
+
+        /**
+         * Add a class with the specified supertypes.
+         * <p>
+         * The class's members aren't known, so it's assumed to inherit every mapped member of its ancestors.
+         * </p>
+         *
+         * @param internalName the internal name of the class
+         * @param superName    the internal name of the superclass, or null if none
+         * @param interfaces   the internal names of the direct superinterfaces
+         * @return this builder
+         */
+        public Builder addClass(String internalName, @Nullable String superName, Collection<String> interfaces) {
+            ClassInfo info = new ClassInfo(
+                    requireNonNull(internalName, "Null name"),
+                    superName,
+                    requireNonNull(interfaces, "Null interfaces").toArray(NO_CLASSES),
+                    null
+            );
+            classes.put(internalName, info);
+            return this;
+        }
+
+        /**
+         * Add the class defined by the specified class file.
+         *
+         * @param classFile the bytes of the class file
+         * @return this builder
+         * @throws IllegalArgumentException if the class file is invalid
+         */
+        public Builder addClassFile(byte[] classFile) {
+            ClassInfo info = ClassInfo.read(classFile);
+            classes.put(info.name, info);
+            return this;
+        }
+
+        public ClassHierarchy build() {
+            Map<String, ClassInfo> classes = new HashMap<>(this.classes.size());
+            this.classes.forEach((name, info) -> classes.put(name, info.copy()));
+            return new ClassHierarchy(classes);
+        }
+    }
+
+    private static final class ClassInfo {
+        private final String name;
+        @Nullable
+        private final String superName;
+        private final String[] interfaces;
+        /**
+         * The access flags of the declared members, keyed by {@link #memberKey(String, String)}, or null if unknown.
+         */
+        @Nullable
+        private final Map<String, Integer> members;
+        /**
+         * The ancestors in resolution order, computed on demand.
+         * Racing threads compute identical arrays, so no synchronization is needed.
+         */
+        @Nullable
+        private volatile String[] ancestors;
+
+        private ClassInfo(String name, @Nullable String superName, String[] interfaces, @Nullable Map<String, Integer> members) {
+            this.name = name;
+            this.superName = superName;
+            this.interfaces = interfaces;
+            this.members = members;
+        }
+
+        private ClassInfo copy() {
+            return new ClassInfo(name, superName, interfaces, members);
+        }
+
+        /**
+         * Fields are keyed by name, and methods by name and descriptor, which can't be confused since names never have parentheses.
+         */
+        private static String memberKey(String name, @Nullable String descriptor) {
+            return descriptor != null ? name + descriptor : name;
+        }
+
+        private static ClassInfo read(byte[] classFile) {
+            ConstantPool pool = new ConstantPool(classFile);
+            int offset = pool.end();
+            String name = requireNonNull(pool.className(ConstantPool.u2(classFile, offset + 2)), "Null class name");
+            String superName = pool.className(ConstantPool.u2(classFile, offset + 4));
+            String[] interfaces = new String[ConstantPool.u2(classFile, offset + 6)];
+            for (int i = 0; i < interfaces.length; i++) {
+                interfaces[i] = pool.className(ConstantPool.u2(classFile, offset + 8 + 2 * i));
+            }
+            Map<String, Integer> members = new HashMap<>();
+            offset = readMembers(pool, offset + 8 + 2 * interfaces.length, false, members);
+            readMembers(pool, offset, true, members);
+            return new ClassInfo(name, superName, interfaces, members);
+        }
+
+        /**
+         * Read the access flags of the fields or methods at the specified offset, returning the offset after them.
+         */
+        private static int readMembers(ConstantPool pool, int offset, boolean methods, Map<String, Integer> members) {
+            byte[] classFile = pool.bytes();
+            int count = ConstantPool.u2(classFile, offset);
+            offset += 2;
+            for (int i = 0; i < count; i++) {
+                int access = ConstantPool.u2(classFile, offset);
+                String name = pool.utf8(ConstantPool.u2(classFile, offset + 2));
+                String descriptor = methods ? pool.utf8(ConstantPool.u2(classFile, offset + 4)) : null;
+                members.put(memberKey(name, descriptor), access);
+                int attributes = ConstantPool.u2(classFile, offset + 6);
+                offset += 8;
+                for (int j = 0; j < attributes; j++) {
+                    offset += 6 + ConstantPool.u4(classFile, offset + 2);
+                }
+            }
+            return offset;
+        }
+    }
+}
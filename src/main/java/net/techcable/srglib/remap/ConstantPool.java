@@ -0,0 +1,244 @@
+package net.techcable.srglib.remap;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A read-only view of the constant pool of a class file.
+ * <p>
+ * Only the offsets of the entries are computed up front,
+ * and {@code CONSTANT_Utf8} entries are decoded on demand and cached.
+ * </p>
+ */
+/* package */ final class ConstantPool {
+    /* package */ static final int UTF8 = 1;
+    /* package */ static final int INTEGER = 3;
+    /* package */ static final int FLOAT = 4;
+    /* package */ static final int LONG = 5;
+    /* package */ static final int DOUBLE = 6;
+    /* package */ static final int CLASS = 7;
+    /* package */ static final int STRING = 8;
+    /* package */ static final int FIELD_REF = 9;
+    /* package */ static final int METHOD_REF = 10;
+    /* package */ static final int INTERFACE_METHOD_REF = 11;
+    /* package */ static final int NAME_AND_TYPE = 12;
+    /* package */ static final int METHOD_HANDLE = 15;
+    /* package */ static final int METHOD_TYPE = 16;
+    /* package */ static final int DYNAMIC = 17;
+    /* package */ static final int INVOKE_DYNAMIC = 18;
+    /* package */ static final int MODULE = 19;
+    /* package */ static final int PACKAGE = 20;
+    private static final int MAGIC = 0xCAFEBABE;
+    /* package */ static final int POOL_START = 10;
+
+    private final byte[] bytes;
+    private final int[] offsets;
+    private final String[] strings;
+    private final int end;
+
+    /* package */ ConstantPool(byte[] bytes) {
+        this.bytes = requireNonNull(bytes, "Null bytes");
+        if (bytes.length < POOL_START || u4(bytes, 0) != MAGIC) {
+            throw new IllegalArgumentException("Not a class file");
+        }
+        int count = u2(bytes, 8);
+        int[] offsets = new int[count];
+        int offset = POOL_START;
+        try {
+            for (int index = 1; index < count; index++) {
+                offsets[index] = offset;
+                int tag = bytes[offset];
+                switch (tag) {
+                    case UTF8:
+                        offset += 3 + u2(bytes, offset + 1);
+                        break;
+                    case CLASS:
+                    case STRING:
+                    case METHOD_TYPE:
+                    case MODULE:
+                    case PACKAGE:
+                        offset += 3;
+                        break;
+                    case METHOD_HANDLE:
+                        offset += 4;
+                        break;
+                    case INTEGER:
+                    case FLOAT:
+                    case FIELD_REF:
+                    case METHOD_REF:
+                    case INTERFACE_METHOD_REF:
+                    case NAME_AND_TYPE:
+                    case DYNAMIC:
+                    case INVOKE_DYNAMIC:
+                        offset += 5;
+                        break;
+                    case LONG:
+                    case DOUBLE:
+                        offset += 9;
+                        index++; // Takes up two slots
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Invalid constant pool tag " + tag + " at index " + index);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated constant pool");
+        }
+        if (offset > bytes.length) throw new IllegalArgumentException("Truncated constant pool");
+        this.offsets = offsets;
+        this.strings = new String[count];
+        this.end = offset;
+    }
+
+    /* package */ byte[] bytes() {
+        return bytes;
+    }
+
+    /* package */ int count() {
+        return offsets.length;
+    }
+
+    /**
+     * Return the offset of the first byte after the constant pool, where the class's access flags are.
+     *
+     * @return the end offset
+     */
+    /* package */ int end() {
+        return end;
+    }
+
+    /* package */ int offset(int index) {
+        return offsets[index];
+    }
+
+    /* package */ int tag(int index) {
+        int offset = offsets[index];
+        return offset == 0 ? 0 : bytes[offset];
+    }
+
+    /* package */ String utf8(int index) {
+        String result = strings[index];
+        if (result == null) {
+            if (tag(index) != UTF8) throw new IllegalArgumentException("Entry " + index + " isn't a Utf8 constant");
+            int offset = offsets[index];
+            result = strings[index] = decodeUtf8(bytes, offset + 3, u2(bytes, offset + 1));
+        }
+        return result;
+    }
+
+    /**
+     * Return the name of the class entry at the specified index.
+     *
+     * @param index the class entry's index
+     * @return the class's internal name, or null if the index is zero
+     */
+    @Nullable
+    /* package */ String className(int index) {
+        if (index == 0) return null;
+        if (tag(index) != CLASS) throw new IllegalArgumentException("Entry " + index + " isn't a Class constant");
+        return utf8(u2(bytes, offsets[index] + 1));
+    }
+
+    //
+    // Helpers
+    //
+
+    /* package */ static int u1(byte[] bytes, int offset) {
+        return bytes[offset] & 0xFF;
+    }
+
+    /* package */ static int u2(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+    }
+
+    /* package */ static int u4(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24)
+                | ((bytes[offset + 1] & 0xFF) << 16)
+                | ((bytes[offset + 2] & 0xFF) << 8)
+                | (bytes[offset + 3] & 0xFF);
+    }
+
+    /* package */ static void putU2(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 8);
+        bytes[offset + 1] = (byte) value;
+    }
+
+    /**
+     * Decode the specified bytes as 'modified UTF-8', as used by class files.
+     *
+     * @param bytes  the bytes to decode
+     * @param offset the offset of the first byte
+     * @param length the number of bytes
+     * @return the decoded string
+     */
+    /* package */ static String decodeUtf8(byte[] bytes, int offset, int length) {
+        char[] chars = new char[length];
+        int charCount = 0;
+        int end = offset + length;
+        int index = offset;
+        // Fast path for plain ASCII
+        while (index < end && bytes[index] >= 0) {
+            chars[charCount++] = (char) bytes[index++];
+        }
+        while (index < end) {
+            int b = bytes[index++] & 0xFF;
+            if (b < 0x80) {
+                chars[charCount++] = (char) b;
+            } else if ((b & 0xE0) == 0xC0) {
+                chars[charCount++] = (char) (((b & 0x1F) << 6) | (bytes[index++] & 0x3F));
+            } else if ((b & 0xF0) == 0xE0) {
+                chars[charCount++] = (char) (((b & 0x0F) << 12) | ((bytes[index++] & 0x3F) << 6) | (bytes[index++] & 0x3F));
+            } else {
+                throw new IllegalArgumentException("Invalid modified UTF-8 byte: " + b);
+            }
+        }
+        return new String(chars, 0, charCount);
+    }
+
+    /**
+     * Return the number of bytes needed to encode the specified string as 'modified UTF-8'.
+     *
+     * @param s the string to measure
+     * @return the encoded length
+     */
+    /* package */ static int utf8Length(String s) {
+        int length = 0;
+        for (int i = 0, size = s.length(); i < size; i++) {
+            char c = s.charAt(i);
+            if (c != 0 && c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Encode the specified string as 'modified UTF-8', as used by class files.
+     *
+     * @param s      the string to encode
+     * @param bytes  the destination array
+     * @param offset the offset to write at
+     * @return the offset after the last byte written
+     */
+    /* package */ static int encodeUtf8(String s, byte[] bytes, int offset) {
+        for (int i = 0, size = s.length(); i < size; i++) {
+            char c = s.charAt(i);
+            if (c != 0 && c < 0x80) {
+                bytes[offset++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[offset++] = (byte) (0xC0 | (c >> 6));
+                bytes[offset++] = (byte) (0x80 | (c & 0x3F));
+            } else {
+                bytes[offset++] = (byte) (0xE0 | (c >> 12));
+                bytes[offset++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[offset++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return offset;
+    }
+}
@@ -0,0 +1,213 @@
+package net.techcable.srglib.remap;
+
+import net.techcable.srglib.FieldData;
+import net.techcable.srglib.JavaType;
+import net.techcable.srglib.MethodData;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.mappings.MutableMappings;
+import net.techcable.srglib.utils.NameTable;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Mappings which also rename members referenced through a subtype of their declaring class.
+ *
+ * @see ClassHierarchy#resolving(Mappings)
+ */
+/* package */ final class HierarchyMappings implements Mappings {
+    private final Mappings delegate;
+    private final NameTable inheritedMethods;
+    private final NameTable inheritedFields;
+
+    /* package */ HierarchyMappings(Mappings delegate, ClassHierarchy hierarchy) {
+        requireNonNull(delegate, "Null mappings");
+        // Mutable mappings have to parse every lookup, and we do one per inherited member
+        this.delegate = delegate instanceof MutableMappings ? delegate.snapshot() : delegate;
+        // Group the renamed members by their declaring class
+        Map<String, List<String[]>> methodsByOwner = new HashMap<>();
+        Map<String, List<String[]>> fieldsByOwner = new HashMap<>();
+        this.delegate.forEachMethod((original, renamed) -> {
+            if (original.getName().equals(renamed.getName()) || original.getName().startsWith("<")) return;
+            methodsByOwner.computeIfAbsent(original.getDeclaringType().getInternalName(), owner -> new ArrayList<>()).add(new String[] {
+                    original.getName(),
+                    original.getSignature().getDescriptor(),
+                    renamed.getName()
+            });
+        });
+        this.delegate.forEachField((original, renamed) -> {
+            if (original.getName().equals(renamed.getName())) return;
+            fieldsByOwner.computeIfAbsent(original.getDeclaringType().getInternalName(), owner -> new ArrayList<>()).add(new String[] {
+                    original.getName(),
+                    renamed.getName()
+            });
+        });
+        // Flatten the members of each class's ancestors, nearest ancestors first
+        NameTable inheritedMethods = new NameTable(3, methodsByOwner.size());
+        NameTable inheritedFields = new NameTable(2, fieldsByOwner.size());
+        for (String type : hierarchy.classes()) {
+            List<String> ancestors = hierarchy.getAncestors(type);
+            for (int index = 0; index < ancestors.size(); index++) {
+                String ancestor = ancestors.get(index);
+                List<String[]> methods = methodsByOwner.get(ancestor);
+                if (methods != null) {
+                    for (String[] method : methods) {
+                        if (this.delegate.findNewMethodName(type, method[0], method[1]) != null) continue; // Mapped explicitly
+                        if (!inheritsMethod(hierarchy, type, ancestors, index, method[0], method[1])) continue;
+                        inheritedMethods.putIfAbsent(type, method[0], method[1], method[2]);
+                    }
+                }
+                List<String[]> fields = fieldsByOwner.get(ancestor);
+                if (fields != null) {
+                    for (String[] field : fields) {
+                        if (this.delegate.findNewFieldName(type, field[0]) != null) continue;
+                        if (!inheritsField(hierarchy, type, ancestors, index, field[0])) continue;
+                        inheritedFields.putIfAbsent(type, field[0], field[1]);
+                    }
+                }
+            }
+        }
+        this.inheritedMethods = inheritedMethods;
+        this.inheritedFields = inheritedFields;
+    }
+
+    /**
+     * Return if the specified type inherits the method of the ancestor at the specified index,
+     * or overrides it, so it has to be renamed the same way.
+     */
+    private static boolean inheritsMethod(
+            ClassHierarchy hierarchy,
+            String type,
+            List<String> ancestors,
+            int index,
+            String name,
+            String descriptor
+    ) {
+        String ancestor = ancestors.get(index);
+        int access = hierarchy.memberAccess(ancestor, name, descriptor);
+        if (access >= 0 && (access & ClassHierarchy.ACC_PRIVATE) != 0) return false;
+        // Declarations in the type or nearer ancestors hide the method, unless they override it
+        for (int i = -1; i < index; i++) {
+            String declarer = i < 0 ? type : ancestors.get(i);
+            int declared = hierarchy.memberAccess(declarer, name, descriptor);
+            if (declared >= 0 && !overrides(declarer, declared, ancestor, access)) return false;
+        }
+        return true;
+    }
+
+    private static boolean overrides(String declarer, int declaredAccess, String ancestor, int access) {
+        if ((declaredAccess & (ClassHierarchy.ACC_PRIVATE | ClassHierarchy.ACC_STATIC)) != 0) return false;
+        if (access < 0) return true; // Assume an unknown method is overridden
+        if ((access & ClassHierarchy.ACC_STATIC) != 0) return false;
+        return (access & (ClassHierarchy.ACC_PUBLIC | ClassHierarchy.ACC_PROTECTED)) != 0 || samePackage(declarer, ancestor);
+    }
+
+    /**
+     * Return if the specified type inherits the field of the ancestor at the specified index.
+     * Fields are never overridden, so any nearer declaration hides it.
+     */
+    private static boolean inheritsField(ClassHierarchy hierarchy, String type, List<String> ancestors, int index, String name) {
+        int access = hierarchy.memberAccess(ancestors.get(index), name, null);
+        if (access >= 0 && (access & ClassHierarchy.ACC_PRIVATE) != 0) return false;
+        for (int i = -1; i < index; i++) {
+            if (hierarchy.memberAccess(i < 0 ? type : ancestors.get(i), name, null) >= 0) return false;
+        }
+        return true;
+    }
+
+    private static boolean samePackage(String first, String second) {
+        int separator = first.lastIndexOf('/');
+        return separator == second.lastIndexOf('/') && first.regionMatches(0, second, 0, separator + 1);
+    }
+
+    @Override
+    public JavaType getNewClass(JavaType original) {
+        return delegate.getNewClass(original);
+    }
+
+    @Override
+    public MethodData getNewMethod(MethodData original) {
+        MethodData result = delegate.getNewMethod(original);
+        if (result.getName().equals(original.getName()) && original.getDeclaringType().isReferenceType()) {
+            String inherited = inheritedMethods.get(
+                    original.getDeclaringType().getInternalName(),
+                    original.getName(),
+                    original.getSignature().getDescriptor()
+            );
+            if (inherited != null) return result.withName(inherited);
+        }
+        return result;
+    }
+
+    @Override
+    public FieldData getNewField(FieldData original) {
+        FieldData result = delegate.getNewField(original);
+        if (result.getName().equals(original.getName()) && original.getDeclaringType().isReferenceType()) {
+            String inherited = inheritedFields.get(original.getDeclaringType().getInternalName(), original.getName());
+            if (inherited != null) return result.withName(inherited);
+        }
+        return result;
+    }
+
+    @Nullable
+    @Override
+    public String findNewClassName(CharSequence internalName) {
+        return delegate.findNewClassName(internalName);
+    }
+
+    @Nullable
+    @Override
+    public String findNewMethodName(CharSequence owner, CharSequence name, CharSequence descriptor) {
+        String result = delegate.findNewMethodName(owner, name, descriptor);
+        return result != null ? result : inheritedMethods.get(owner, name, descriptor);
+    }
+
+    @Nullable
+    @Override
+    public String findNewFieldName(CharSequence owner, CharSequence name) {
+        String result = delegate.findNewFieldName(owner, name);
+        return result != null ? result : inheritedFields.get(owner, name);
+    }
+
+    @Override
+    public Set<JavaType> classes() {
+        return delegate.classes();
+    }
+
+    @Override
+    public Set<MethodData> methods() {
+        return delegate.methods();
+    }
+
+    @Override
+    public Set<FieldData> fields() {
+        return delegate.fields();
+    }
+
+    @Override
+    public void forEachClass(BiConsumer<JavaType, JavaType> action) {
+        delegate.forEachClass(action);
+    }
+
+    @Override
+    public void forEachMethod(BiConsumer<MethodData, MethodData> action) {
+        delegate.forEachMethod(action);
+    }
+
+    @Override
+    public void forEachField(BiConsumer<FieldData, FieldData> action) {
+        delegate.forEachField(action);
+    }
+
+    @Override
+    public String toString() {
+        return "HierarchyMappings{" + delegate + "}";
+    }
+}
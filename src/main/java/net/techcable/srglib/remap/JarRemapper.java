@@ -0,0 +1,247 @@
+package net.techcable.srglib.remap;
+
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.mappings.MutableMappings;
+import net.techcable.srglib.utils.ByteStreams;
+import net.techcable.srglib.utils.Exceptions;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Remaps whole jars, rewriting their class files in parallel with {@link ClassFileRemapper}.
+ * <p>
+ * Entries are read and remapped concurrently on the executor,
+ * while the calling thread writes the results to the output in the original order.
+ * Only a bounded window of entries is in flight at once, so memory use doesn't depend on the size of the jar.
+ * Class files are renamed to match their new class names,
+ * other resources are copied unchanged, and jar signatures are dropped since they'd no longer be valid.
+ * </p>
+ * <p>
+ * Remappers are thread-safe, and can remap several jars at once.
+ * </p>
+ */
+public final class JarRemapper {
+    private final Mappings mappings;
+    private final Executor executor;
+    private final int window;
+    private final ThreadLocal<ClassFileRemapper> remappers;
+
+    /**
+     * Create a jar remapper which remaps on the common fork-join pool.
+     *
+     * @param mappings the mappings to apply
+     */
+    public JarRemapper(Mappings mappings) {
+        this(mappings, ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * Create a jar remapper which remaps on the specified executor.
+     *
+     * @param mappings    the mappings to apply
+     * @param executor    the executor to read and remap the entries on
+     * @param parallelism the number of threads the executor is expected to use
+     */
+    public JarRemapper(Mappings mappings, Executor executor, int parallelism) {
+        requireNonNull(mappings, "Null mappings");
+        // Mutable mappings have to parse every lookup, so take an indexed snapshot up front
+        this.mappings = mappings instanceof MutableMappings ? mappings.snapshot() : mappings;
+        this.executor = requireNonNull(executor, "Null executor");
+        if (parallelism <= 0) throw new IllegalArgumentException("Invalid parallelism: " + parallelism);
+        this.window = parallelism * 4;
+        this.remappers = ThreadLocal.withInitial(() -> new ClassFileRemapper(this.mappings));
+    }
+
+    public Mappings getMappings() {
+        return mappings;
+    }
+
+    /**
+     * Remap the entries of the specified jar, writing the result to the specified file.
+     *
+     * @param input  the jar to remap
+     * @param output the file to write the remapped jar to
+     * @throws IOException if an error occurs reading or writing
+     */
+    public void remap(ZipFile input, Path output) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output), 64 * 1024);
+             ZipOutputStream zip = new ZipOutputStream(out)) {
+            remap(input, zip);
+        }
+    }
+
+    /**
+     * Remap the entries of the specified jar, writing them to the specified stream.
+     * <p>
+     * The output stream is not closed or finished.
+     * </p>
+     *
+     * @param input  the jar to remap
+     * @param output the stream to write the remapped entries to
+     * @throws IOException if an error occurs reading or writing
+     */
+    public void remap(ZipFile input, ZipOutputStream output) throws IOException {
+        remap(input, output, this::remapEntry);
+    }
+
+    /**
+     * Remap the entries of the specified jar, transforming their data with the specified function.
+     *
+     * @param input       the jar to remap
+     * @param output      the stream to write the remapped entries to
+     * @param transformer the function to remap the data of each entry, given its original name
+     * @throws IOException if an error occurs reading or writing
+     */
+    /* package */ void remap(ZipFile input, ZipOutputStream output, EntryTransformer transformer) throws IOException {
+        ArrayDeque<CompletableFuture<RemappedEntry>> pending = new ArrayDeque<>(window);
+        try {
+            Enumeration<? extends ZipEntry> entries = input.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (isSignatureFile(entry.getName())) continue;
+                if (pending.size() >= window) {
+                    write(output, pending.removeFirst());
+                }
+                pending.addLast(CompletableFuture.supplyAsync(
+                        Exceptions.sneakyThrowing(() -> remapEntry(input, entry, transformer)),
+                        executor
+                ));
+            }
+            while (!pending.isEmpty()) {
+                write(output, pending.removeFirst());
+            }
+        } finally {
+            pending.forEach(future -> future.cancel(false));
+        }
+    }
+
+    private RemappedEntry remapEntry(ZipFile input, ZipEntry entry, EntryTransformer transformer) throws IOException {
+        String name = entry.getName();
+        if (entry.isDirectory()) return new RemappedEntry(entry, name, null);
+        byte[] data;
+        try (InputStream in = input.getInputStream(entry)) {
+            data = ByteStreams.readFully(in, entry.getSize());
+        }
+        try {
+            return new RemappedEntry(entry, remapEntryName(name), transformer.transform(name, data));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unable to remap " + name + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static void write(ZipOutputStream output, CompletableFuture<RemappedEntry> future) throws IOException {
+        final RemappedEntry remapped;
+        try {
+            remapped = future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            throw Exceptions.sneakyThrow(cause);
+        }
+        ZipEntry entry = new ZipEntry(remapped.name);
+        entry.setTime(remapped.original.getTime());
+        output.putNextEntry(entry);
+        if (remapped.data != null) output.write(remapped.data);
+        output.closeEntry();
+    }
+
+    /**
+     * Remap the data of a single entry.
+     * <p>
+     * Class files are remapped, and any other entries are returned unchanged.
+     * </p>
+     *
+     * @param name the original name of the entry
+     * @param data the original data
+     * @return the remapped data
+     * @throws IllegalArgumentException if the entry is an invalid class file
+     */
+    public byte[] remapEntry(String name, byte[] data) {
+        if (isClassFile(name)) {
+            return remappers.get().remap(data);
+        } else {
+            return data;
+        }
+    }
+
+    /**
+     * Remap the name of a single entry.
+     * <p>
+     * Class files are moved to match the new name of their class, and any other entries keep their name.
+     * Classes in multi-release directories, like {@code META-INF/versions/9/}, stay in the same version directory.
+     * </p>
+     *
+     * @param name the original name of the entry
+     * @return the new name
+     */
+    public String remapEntryName(String name) {
+        if (isClassFile(name)) {
+            int prefixLength = versionPrefixLength(name);
+            String className = name.substring(prefixLength, name.length() - ".class".length());
+            String newClassName = mappings.findNewClassName(className);
+            if (newClassName != null) return name.substring(0, prefixLength) + newClassName + ".class";
+        }
+        return name;
+    }
+
+    /**
+     * Return the length of the {@code META-INF/versions/<n>/} prefix of a multi-release entry, or zero if there isn't one.
+     */
+    private static int versionPrefixLength(String name) {
+        String versions = "META-INF/versions/";
+        if (!name.startsWith(versions)) return 0;
+        int index = versions.length();
+        while (index < name.length() && Character.isDigit(name.charAt(index))) {
+            index++;
+        }
+        if (index == versions.length() || index == name.length() || name.charAt(index) != '/') return 0;
+        return index + 1;
+    }
+
+    private static boolean isClassFile(String name) {
+        return name.endsWith(".class") && !name.endsWith("module-info.class");
+    }
+
+    private static boolean isSignatureFile(String name) {
+        if (!name.startsWith("META-INF/") || name.indexOf('/', "META-INF/".length()) >= 0) return false;
+        // The signature files and signature block files listed by the JAR specification
+        String upperCase = name.toUpperCase(Locale.ROOT);
+        return upperCase.endsWith(".SF") || upperCase.endsWith(".RSA") || upperCase.endsWith(".DSA")
+                || upperCase.endsWith(".EC") || upperCase.startsWith("META-INF/SIG-");
+    }
+
+    @FunctionalInterface
+    /* package */ interface EntryTransformer {
+        byte[] transform(String name, byte[] data) throws IOException;
+    }
+
+    private static final class RemappedEntry {
+        private final ZipEntry original;
+        private final String name;
+        @Nullable
+        private final byte[] data;
+
+        private RemappedEntry(ZipEntry original, String name, @Nullable byte[] data) {
+            this.original = original;
+            this.name = name;
+            this.data = data;
+        }
+    }
+}
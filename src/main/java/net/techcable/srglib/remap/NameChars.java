@@ -0,0 +1,23 @@
+package net.techcable.srglib.remap;
+
+/**
+ * Classifies the chars of Java names in text, with a table for ASCII.
+ */
+/* package */ final class NameChars {
+    private NameChars() {}
+
+    private static final boolean[] ASCII_NAME_PARTS = new boolean[128];
+
+    static {
+        for (char c = 0; c < 128; c++) {
+            ASCII_NAME_PARTS[c] = Character.isJavaIdentifierPart(c) && !Character.isIdentifierIgnorable(c);
+        }
+    }
+
+    /**
+     * Return if the specified char can be part of a Java identifier, ignoring the ignorable control chars.
+     */
+    /* package */ static boolean isNamePart(char c) {
+        return c < 128 ? ASCII_NAME_PARTS[c] : Character.isJavaIdentifierPart(c) && !Character.isIdentifierIgnorable(c);
+    }
+}
@@ -0,0 +1,133 @@
+package net.techcable.srglib.remap;
+
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.utils.DiskCache;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A content-addressed cache of remapped jars, stored in a local directory.
+ * <p>
+ * Remapped jars are keyed by a digest of the input jar's bytes and the mappings' {@link Mappings#digest()},
+ * so remapping the same jar with the same mappings again just returns the cached jar.
+ * On a miss, each class file is also cached individually, keyed by its own content,
+ * so a jar with only a few changed classes only needs to remap those classes.
+ * The cache is bounded in size, and evicts the least recently used jars and classes first.
+ * </p>
+ * <p>
+ * Caches are thread-safe, and several processes may share the same directory.
+ * </p>
+ */
+public final class RemapCache {
+    /**
+     * Mixed into every key, so a change in the remapper's output format invalidates existing entries.
+     */
+    private static final String VERSION = "srglib-remap-1";
+    private final DiskCache jars;
+    private final DiskCache entries;
+
+    /**
+     * Create a cache in the specified directory.
+     * <p>
+     * The size limit is split evenly between the remapped jars and the remapped classes.
+     * </p>
+     *
+     * @param directory the directory to store the cache in
+     * @param maxSize   the maximum total size of the cache, in bytes
+     */
+    public RemapCache(Path directory, long maxSize) {
+        requireNonNull(directory, "Null directory");
+        if (maxSize <= 1) throw new IllegalArgumentException("Invalid max size: " + maxSize);
+        this.jars = new DiskCache(directory.resolve("jars"), maxSize / 2);
+        this.entries = new DiskCache(directory.resolve("classes"), maxSize / 2);
+    }
+
+    /**
+     * Remap the specified jar with the specified remapper, returning a cached result if possible.
+     * <p>
+     * The returned file is owned by the cache, and may be evicted by later remaps.
+     * Copy it if it needs to outlive the next remap.
+     * The mappings are keyed by their own entries, so mappings that depend on outside state,
+     * like a {@link ClassHierarchy} built from other jars, need an explicit key.
+     * </p>
+     *
+     * @param remapper the remapper to remap the jar with
+     * @param input    the jar to remap
+     * @return the remapped jar
+     * @throws IOException if an error occurs reading, remapping or caching the jar
+     */
+    public Path remap(JarRemapper remapper, Path input) throws IOException {
+        return remap(remapper, input, remapper.getMappings().digest().toString());
+    }
+
+    /**
+     * Remap the specified jar with the specified remapper, returning a cached result if possible.
+     * <p>
+     * The mappings key must uniquely identify the remapper's mappings,
+     * and is useful for mappings that can't be enumerated, like {@link Mappings#createRenamingMappings}.
+     * </p>
+     *
+     * @param remapper    the remapper to remap the jar with
+     * @param input       the jar to remap
+     * @param mappingsKey a string uniquely identifying the mappings
+     * @return the remapped jar
+     * @throws IOException if an error occurs reading, remapping or caching the jar
+     */
+    public Path remap(JarRemapper remapper, Path input, String mappingsKey) throws IOException {
+        requireNonNull(remapper, "Null remapper");
+        requireNonNull(mappingsKey, "Null mappings key");
+        MessageDigest jarDigest = newDigest();
+        jarDigest.update((VERSION + '\0' + mappingsKey + '\0').getBytes(StandardCharsets.UTF_8));
+        try (InputStream in = Files.newInputStream(input)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                jarDigest.update(buffer, 0, read);
+            }
+        }
+        String jarKey = DiskCache.toKey(jarDigest.digest());
+        Path cached = jars.get(jarKey);
+        if (cached != null) return cached;
+        byte[] entryPrefix = (VERSION + '\0' + mappingsKey + '\0').getBytes(StandardCharsets.UTF_8);
+        ThreadLocal<MessageDigest> entryDigests = ThreadLocal.withInitial(RemapCache::newDigest);
+        return jars.put(jarKey, temp -> {
+            try (ZipFile in = new ZipFile(input.toFile());
+                 OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024);
+                 ZipOutputStream zip = new ZipOutputStream(out)) {
+                remapper.remap(in, zip, (name, data) -> {
+                    if (!name.endsWith(".class")) return remapper.remapEntry(name, data);
+                    MessageDigest entryDigest = entryDigests.get();
+                    entryDigest.update(entryPrefix);
+                    entryDigest.update(data);
+                    String entryKey = DiskCache.toKey(entryDigest.digest());
+                    byte[] remapped = entries.getBytes(entryKey);
+                    if (remapped == null) {
+                        remapped = remapper.remapEntry(name, data);
+                        entries.put(entryKey, remapped);
+                    }
+                    return remapped;
+                });
+            }
+        });
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-256 is always supported", e);
+        }
+    }
+}
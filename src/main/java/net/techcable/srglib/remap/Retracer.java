@@ -0,0 +1,334 @@
+package net.techcable.srglib.remap;
+
+import net.techcable.srglib.format.LineNumberTable;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.utils.CharSlice;
+import net.techcable.srglib.utils.NameTable;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+import static net.techcable.srglib.remap.NameChars.isNamePart;
+
+/**
+ * Translates obfuscated class and method names in stack traces and logs back to their original names.
+ * <p>
+ * Retracers are created from the mappings that obfuscated the code, like a ProGuard file,
+ * and index their {@link Mappings#inverted() inverse} by obfuscated class name,
+ * and by obfuscated class and method name, since stack frames don't have descriptors.
+ * If several methods of a class were obfuscated to the same name, they're all listed, separated by {@code |}.
+ * With a {@link LineNumberTable}, stack frames are retraced exactly, including inlined frames.
+ * </p>
+ * <p>
+ * Text is rewritten in a single pass over a fixed buffer, so memory use doesn't depend on the input.
+ * Qualified names like {@code a.b.c} and {@code a.b.c.method} are rewritten anywhere in the text,
+ * but unqualified names are left alone, since short obfuscated names are often ordinary words.
+ * Retracers are immutable and thread-safe.
+ * </p>
+ */
+public final class Retracer {
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * The original names of the obfuscated classes, both in Java source form.
+     */
+    private final NameTable classes;
+    /**
+     * The original names of the methods, keyed by obfuscated class and method name.
+     */
+    private final NameTable methods;
+    @Nullable
+    private final LineNumberTable lineNumbers;
+
+    /**
+     * Create a retracer for code obfuscated by the specified mappings.
+     *
+     * @param obfuscation the mappings from the original names to the obfuscated names
+     */
+    public Retracer(Mappings obfuscation) {
+        this(obfuscation, null);
+    }
+
+    /**
+     * Create a retracer for code obfuscated by the specified mappings, with the specified line numbers.
+     *
+     * @param obfuscation the mappings from the original names to the obfuscated names
+     * @param lineNumbers the line numbers of the obfuscated methods, or null if unknown
+     */
+    public Retracer(Mappings obfuscation, @Nullable LineNumberTable lineNumbers) {
+        Mappings mappings = requireNonNull(obfuscation, "Null mappings").inverted();
+        this.lineNumbers = lineNumbers;
+        this.classes = new NameTable(1, mappings.classes().size());
+        this.methods = new NameTable(2, mappings.methods().size());
+        mappings.forEachClass((obfuscated, original) -> {
+            if (!obfuscated.equals(original)) classes.put(obfuscated.getName(), original.getName());
+        });
+        mappings.forEachMethod((obfuscated, original) -> {
+            String name = original.getName();
+            if (name.equals(obfuscated.getName())) return;
+            String owner = obfuscated.getDeclaringType().getName();
+            String existing = methods.putIfAbsent(owner, obfuscated.getName(), name);
+            if (existing != null && !containsName(existing, name)) {
+                methods.put(owner, obfuscated.getName(), existing + '|' + name);
+            }
+        });
+    }
+
+    private static boolean containsName(String names, String name) {
+        int index = 0;
+        while (true) {
+            int end = names.indexOf('|', index);
+            if (end < 0) end = names.length();
+            if (end - index == name.length() && names.startsWith(name, index)) return true;
+            if (end == names.length()) return false;
+            index = end + 1;
+        }
+    }
+
+    /**
+     * Return the original name of the specified obfuscated class.
+     *
+     * @param obfuscatedName the obfuscated name, like {@code a.b}
+     * @return the original name, or null if the class wasn't renamed
+     */
+    @Nullable
+    public String retraceClass(CharSequence obfuscatedName) {
+        return classes.get(requireNonNull(obfuscatedName, "Null name"));
+    }
+
+    /**
+     * Return the original name of the specified obfuscated method.
+     * <p>
+     * If several methods were obfuscated to the same name, they're all returned, separated by {@code |}.
+     * </p>
+     *
+     * @param obfuscatedOwner the obfuscated name of the class, like {@code a.b}
+     * @param obfuscatedName  the obfuscated name of the method
+     * @return the original name, or null if the method wasn't renamed
+     */
+    @Nullable
+    public String retraceMethod(CharSequence obfuscatedOwner, CharSequence obfuscatedName) {
+        return methods.get(requireNonNull(obfuscatedOwner, "Null owner"), requireNonNull(obfuscatedName, "Null name"));
+    }
+
+    /**
+     * Retrace the specified text.
+     *
+     * @param text the text to retrace
+     * @return the retraced text
+     */
+    public String retrace(String text) {
+        StringWriter result = new StringWriter(text.length() + 64);
+        try {
+            retrace(new StringReader(text), result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Retrace all the text from the specified reader, writing the result to the specified writer.
+     * <p>
+     * Text is processed a line at a time, and lines longer than the buffer are split between names.
+     * Neither the reader nor the writer are closed.
+     * </p>
+     *
+     * @param in  the reader to retrace
+     * @param out the writer to write to
+     * @throws IOException if an error occurs reading or writing
+     */
+    public void retrace(Reader in, Writer out) throws IOException {
+        new Session(requireNonNull(in, "Null reader"), requireNonNull(out, "Null writer")).run();
+    }
+
+    /**
+     * The buffer and output of a single call to {@link #retrace(Reader, Writer)}.
+     */
+    private final class Session {
+        private final Reader in;
+        private final Writer out;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private final CharSequence chars = CharBuffer.wrap(buffer);
+        private final CharSlice first = new CharSlice(), second = new CharSlice();
+
+        private Session(Reader in, Writer out) {
+            this.in = in;
+            this.out = out;
+        }
+
+        private void run() throws IOException {
+            int length = 0, read;
+            while ((read = in.read(buffer, length, buffer.length - length)) >= 0) {
+                length += read;
+                int processed = processLines(length, false);
+                System.arraycopy(buffer, processed, buffer, 0, length - processed);
+                length -= processed;
+            }
+            processLines(length, true);
+        }
+
+        /**
+         * Rewrite the complete lines in the buffer, returning the index of the first unprocessed char.
+         */
+        private int processLines(int length, boolean finished) throws IOException {
+            char[] buffer = this.buffer;
+            int lineStart = 0;
+            for (int i = 0; i < length; i++) {
+                if (buffer[i] == '\n') {
+                    rewriteLine(lineStart, i);
+                    out.write('\n');
+                    lineStart = i + 1;
+                }
+            }
+            if (finished) {
+                if (lineStart < length) rewriteLine(lineStart, length);
+                return length;
+            } else if (lineStart == 0 && length == buffer.length) {
+                // The line doesn't fit in the buffer, so rewrite it up to the last complete name
+                int end = length;
+                while (end > 0 && (isNamePart(buffer[end - 1]) || buffer[end - 1] == '.')) {
+                    end--;
+                }
+                if (end == 0) {
+                    out.write(buffer, 0, length); // A single huge name
+                    return length;
+                }
+                rewriteText(0, end);
+                return end;
+            }
+            return lineStart;
+        }
+
+        private void rewriteLine(int start, int end) throws IOException {
+            if (lineNumbers == null || !rewriteFrame(start, end)) {
+                rewriteText(start, end);
+            }
+        }
+
+        /**
+         * Rewrite a stack frame like {@code at a.b(SourceFile:12)} with its original frames, if it has any line numbers.
+         */
+        private boolean rewriteFrame(int start, int end) throws IOException {
+            assert lineNumbers != null;
+            char[] buffer = this.buffer;
+            int index = start;
+            while (index < end && (buffer[index] == ' ' || buffer[index] == '\t')) {
+                index++;
+            }
+            if (end - index < 3 || buffer[index] != 'a' || buffer[index + 1] != 't' || buffer[index + 2] != ' ') {
+                return false;
+            }
+            int ownerStart = index + 3, paren = -1, close = -1, colon = -1;
+            for (int i = ownerStart; i < end; i++) {
+                char c = buffer[i];
+                if (c == '/' && paren < 0) {
+                    ownerStart = i + 1; // Module and class loader names
+                } else if (c == '(' && paren < 0) {
+                    paren = i;
+                } else if (c == ':' && paren >= 0) {
+                    colon = i;
+                } else if (c == ')' && paren >= 0) {
+                    close = i;
+                    break;
+                }
+            }
+            if (close < 0 || colon < 0 || colon + 1 == close) return false;
+            int dot = paren - 1;
+            while (dot > ownerStart && buffer[dot] != '.') {
+                dot--;
+            }
+            if (dot <= ownerStart) return false;
+            int line = 0;
+            for (int i = colon + 1; i < close; i++) {
+                int digit = buffer[i] - '0';
+                if (digit < 0 || digit > 9 || line > (Integer.MAX_VALUE - digit) / 10) return false;
+                line = line * 10 + digit;
+            }
+            List<LineNumberTable.Frame> frames = lineNumbers.lookup(
+                    new String(buffer, ownerStart, dot - ownerStart).replace('.', '/'),
+                    new String(buffer, dot + 1, paren - dot - 1),
+                    line
+            );
+            if (frames.isEmpty()) return false;
+            for (int i = 0; i < frames.size(); i++) {
+                LineNumberTable.Frame frame = frames.get(i);
+                if (i > 0) out.write('\n');
+                out.write(buffer, start, ownerStart - start);
+                out.write(frame.getMethod().getDeclaringType().getName());
+                out.write('.');
+                out.write(frame.getMethod().getName());
+                out.write(buffer, paren, colon + 1 - paren);
+                out.write(Integer.toString(frame.getLine()));
+                out.write(buffer, close, end - close);
+            }
+            return true;
+        }
+
+        /**
+         * Rewrite the qualified names in the specified range of the buffer.
+         */
+        private void rewriteText(int start, int end) throws IOException {
+            char[] buffer = this.buffer;
+            int copied = start, index = start;
+            while (index < end) {
+                char c = buffer[index];
+                if (!isNamePart(c)) {
+                    index++;
+                    continue;
+                }
+                int nameStart = index;
+                int lastDot = -1;
+                while (index < end && (isNamePart(buffer[index]) || buffer[index] == '.')) {
+                    if (buffer[index] == '.') lastDot = index;
+                    index++;
+                }
+                int nameEnd = index;
+                while (buffer[nameEnd - 1] == '.') {
+                    nameEnd--; // Trailing periods end sentences
+                }
+                if (lastDot >= nameEnd) {
+                    lastDot = nameEnd - 1;
+                    while (lastDot > nameStart && buffer[lastDot] != '.') {
+                        lastDot--;
+                    }
+                }
+                if (lastDot <= nameStart || !Character.isJavaIdentifierStart(c)) continue;
+                String className = classes.get(first.set(chars, nameStart, nameEnd));
+                if (className != null) {
+                    out.write(buffer, copied, nameStart - copied);
+                    out.write(className);
+                    copied = nameEnd;
+                    continue;
+                }
+                // A method, like a.b.method
+                CharSlice owner = first.set(chars, nameStart, lastDot);
+                String ownerName = classes.get(owner);
+                String methodName = methods.get(owner, second.set(chars, lastDot + 1, nameEnd));
+                if (ownerName == null && methodName == null) continue;
+                out.write(buffer, copied, nameStart - copied);
+                if (ownerName != null) {
+                    out.write(ownerName);
+                } else {
+                    out.write(buffer, nameStart, lastDot - nameStart);
+                }
+                out.write('.');
+                if (methodName != null) {
+                    out.write(methodName);
+                } else {
+                    out.write(buffer, lastDot + 1, nameEnd - lastDot - 1);
+                }
+                copied = nameEnd;
+            }
+            out.write(buffer, copied, end - copied);
+        }
+    }
+}
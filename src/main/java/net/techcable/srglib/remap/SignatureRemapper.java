@@ -0,0 +1,252 @@
+package net.techcable.srglib.remap;
+
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.utils.CharSlice;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Rewrites the class names embedded in bytecode descriptors and generic signatures, in a single pass.
+ * <p>
+ * Descriptors and all three kinds of generic signatures (class, method and field) are supported,
+ * including type arguments, wildcards, type variables and inner classes of parameterized types.
+ * Class names are looked up with {@link Mappings#findNewClassName(CharSequence)},
+ * so with immutable mappings the only allocation is the resulting string.
+ * If nothing is remapped, the input instance itself is returned.
+ * </p>
+ * <p>
+ * Remappers reuse their internal buffers, and so aren't thread-safe.
+ * Use a separate remapper for each thread.
+ * </p>
+ */
+public final class SignatureRemapper {
+    private final Mappings mappings;
+    private final StringBuilder result = new StringBuilder();
+    private final CharSlice slice = new CharSlice();
+    private String input;
+    /**
+     * The index of the first input char that hasn't been copied to the result yet,
+     * or -1 if nothing has been remapped.
+     */
+    private int copied;
+    private int index;
+
+    public SignatureRemapper(Mappings mappings) {
+        this.mappings = requireNonNull(mappings, "Null mappings");
+    }
+
+    public Mappings getMappings() {
+        return mappings;
+    }
+
+    /**
+     * Remap the classes in the specified bytecode descriptor.
+     * <p>
+     * Both field and method descriptors are accepted.
+     * </p>
+     *
+     * @param descriptor the descriptor to remap
+     * @return the remapped descriptor, or the input if unchanged
+     * @throws IllegalArgumentException if the descriptor is invalid
+     */
+    public String remapDescriptor(String descriptor) {
+        return remap(descriptor);
+    }
+
+    /**
+     * Remap the classes in the specified generic signature, as found in a {@code Signature} attribute.
+     * <p>
+     * Class, method and field signatures are all accepted.
+     * </p>
+     *
+     * @param signature the signature to remap
+     * @return the remapped signature, or the input if unchanged
+     * @throws IllegalArgumentException if the signature is invalid
+     */
+    public String remapSignature(String signature) {
+        return remap(signature);
+    }
+
+    /**
+     * Remap a class name, as found in a class file's {@code CONSTANT_Class} entry.
+     * <p>
+     * These are usually internal names, but are array descriptors for array classes.
+     * </p>
+     *
+     * @param name the internal name or array descriptor
+     * @return the remapped name, or the input if unchanged
+     */
+    public String remapClassName(String name) {
+        if (name.startsWith("[")) {
+            return remap(name);
+        } else {
+            String renamed = mappings.findNewClassName(name);
+            return renamed != null ? renamed : name;
+        }
+    }
+
+    private String remap(String input) {
+        this.input = requireNonNull(input, "Null input");
+        this.copied = -1;
+        this.index = 0;
+        try {
+            int length = input.length();
+            if (length == 0) throw new IllegalArgumentException("Empty signature");
+            while (index < length) {
+                switch (input.charAt(index)) {
+                    case '<':
+                        formalTypeParameters();
+                        break;
+                    case '(':
+                    case ')':
+                    case '^':
+                        index++;
+                        break;
+                    default:
+                        type();
+                        break;
+                }
+            }
+            if (copied < 0) {
+                return input;
+            } else {
+                result.append(input, copied, length);
+                return result.toString();
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid signature: " + input);
+        } finally {
+            this.input = null;
+            result.setLength(0);
+        }
+    }
+
+    private void formalTypeParameters() {
+        index++; // '<'
+        while (input.charAt(index) != '>') {
+            int colon = input.indexOf(':', index);
+            if (colon < 0) throw new IllegalArgumentException("Invalid signature: " + input);
+            index = colon;
+            while (input.charAt(index) == ':') {
+                index++;
+                char c = input.charAt(index);
+                if (c != ':' && c != '>') {
+                    // The class bound is optional, so there can be an immediate interface bound
+                    type();
+                }
+            }
+        }
+        index++; // '>'
+    }
+
+    private void type() {
+        char c = input.charAt(index);
+        switch (c) {
+            case 'L':
+                classType();
+                break;
+            case 'T':
+                int end = input.indexOf(';', index);
+                if (end < 0) throw new IllegalArgumentException("Invalid signature: " + input);
+                index = end + 1;
+                break;
+            case '[':
+            case '+':
+            case '-':
+                index++;
+                type();
+                break;
+            case '*':
+            case 'B':
+            case 'C':
+            case 'D':
+            case 'F':
+            case 'I':
+            case 'J':
+            case 'S':
+            case 'Z':
+            case 'V':
+                index++;
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid char '" + c + "' at " + index + " in signature: " + input);
+        }
+    }
+
+    private void classType() {
+        int start = ++index; // 'L'
+        int end = nameEnd(start);
+        String renamed = mappings.findNewClassName(slice.set(input, start, end));
+        if (renamed != null) replace(start, end, renamed);
+        @Nullable StringBuilder originalOuter = null;
+        @Nullable String renamedOuter = renamed;
+        index = end;
+        while (true) {
+            char c = input.charAt(index);
+            if (c == '<') {
+                index++;
+                while (input.charAt(index) != '>') {
+                    type();
+                }
+                index++;
+            } else if (c == '.') {
+                /*
+                 * Inner classes of parameterized types only give their simple name.
+                 * Look up the full binary name, then strip it back to its new simple name.
+                 */
+                if (originalOuter == null) {
+                    // Can't share a buffer, since the type arguments may have inner classes of their own
+                    originalOuter = new StringBuilder(end - start + 16).append(input, start, end);
+                }
+                if (renamedOuter == null) renamedOuter = originalOuter.toString();
+                int innerStart = ++index;
+                int innerEnd = nameEnd(innerStart);
+                originalOuter.append('$').append(input, innerStart, innerEnd);
+                String renamedInner = mappings.findNewClassName(originalOuter);
+                if (renamedInner != null) {
+                    final int simpleNameStart;
+                    if (renamedInner.length() > renamedOuter.length() + 1
+                            && renamedInner.startsWith(renamedOuter)
+                            && renamedInner.charAt(renamedOuter.length()) == '$') {
+                        simpleNameStart = renamedOuter.length() + 1;
+                    } else {
+                        simpleNameStart = Math.max(renamedInner.lastIndexOf('$'), renamedInner.lastIndexOf('/')) + 1;
+                    }
+                    replace(innerStart, innerEnd, renamedInner.substring(simpleNameStart));
+                    renamedOuter = renamedInner;
+                } else {
+                    renamedOuter = originalOuter.toString(); // Unmapped classes keep their original name
+                }
+                index = innerEnd;
+            } else if (c == ';') {
+                index++;
+                return;
+            } else {
+                throw new IllegalArgumentException("Invalid char '" + c + "' at " + index + " in signature: " + input);
+            }
+        }
+    }
+
+    private int nameEnd(int start) {
+        String input = this.input;
+        for (int i = start, length = input.length(); i < length; i++) {
+            char c = input.charAt(i);
+            if (c == ';' || c == '<' || c == '.') {
+                if (i == start) break;
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Invalid class name at " + start + " in signature: " + input);
+    }
+
+    private void replace(int start, int end, String replacement) {
+        if (replacement.contentEquals(slice.set(input, start, end))) return;
+        if (copied < 0) {
+            result.setLength(0);
+            copied = 0;
+        }
+        result.append(input, copied, start).append(replacement);
+        copied = end;
+    }
+}
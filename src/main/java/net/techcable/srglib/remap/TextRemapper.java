@@ -0,0 +1,371 @@
+package net.techcable.srglib.remap;
+
+import net.techcable.srglib.mappings.Mappings;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+import static net.techcable.srglib.remap.NameChars.isNamePart;
+
+/**
+ * Rewrites the class and member names in arbitrary text, like source code, reflection strings and config files.
+ * <p>
+ * Every renamed class, in both its {@code a.b.C} and {@code a/b/C} forms, and every renamed member name
+ * is compiled into a single Aho-Corasick automaton, so text is rewritten in one linear pass,
+ * no matter how many names there are.
+ * Names only match whole identifiers, so {@code foo} never matches part of {@code food},
+ * and class names never match the end of a longer qualified name.
+ * If several names match at the same place, the longest one wins.
+ * </p>
+ * <p>
+ * Members are matched by name alone, so a member name renamed differently in different classes is ambiguous,
+ * and left alone. Descriptors and signatures should use a {@link SignatureRemapper} instead.
+ * Remappers are immutable and thread-safe.
+ * </p>
+ */
+public final class TextRemapper {
+    private static final int ROOT = 0, NONE = -1;
+    private static final int OUTPUT_BUFFER_SIZE = 8 * 1024;
+    private static final int INPUT_BUFFER_SIZE = 8 * 1024;
+    /*
+     * The automaton is a trie stored as parallel arrays of nodes.
+     * Children are linked through their siblings in sorted order,
+     * except the ASCII children of the root, which are looked up directly.
+     */
+    private final char[] labels;
+    private final int[] firstChild, nextSibling;
+    private final int[] rootChildren = new int[128];
+    /**
+     * The longest proper suffix of each node that is also a node.
+     */
+    private final int[] failure;
+    /**
+     * The longest proper suffix of each node that ends a name, or {@link #NONE}.
+     */
+    private final int[] outputLink;
+    private final int[] depths;
+    /**
+     * The index of the name each node ends, or {@link #NONE}.
+     */
+    private final int[] names;
+    private final String[] replacements;
+    private final boolean[] classNames;
+    private final int maxLength;
+
+    /**
+     * Create a remapper for the classes and members of the specified mappings.
+     *
+     * @param mappings the mappings to remap with
+     */
+    public TextRemapper(Mappings mappings) {
+        this(mappings, true);
+    }
+
+    /**
+     * Create a remapper for the classes and optionally the members of the specified mappings.
+     * <p>
+     * Short member names are often ordinary words, so it may be better to only remap classes.
+     * </p>
+     *
+     * @param mappings      the mappings to remap with
+     * @param remapMembers  if member names should be remapped
+     */
+    public TextRemapper(Mappings mappings, boolean remapMembers) {
+        Map<String, String> classes = new HashMap<>();
+        mappings.forEachClass((original, renamed) -> {
+            if (original.equals(renamed)) return;
+            // Classes in the default package have the same name in both forms, so prefer the source form
+            classes.put(original.getInternalName(), renamed.getInternalName());
+            classes.put(original.getName(), renamed.getName());
+        });
+        Map<String, String> members = new HashMap<>();
+        if (remapMembers) {
+            Set<String> ambiguous = new HashSet<>();
+            mappings.forEachField((original, renamed) -> addMember(members, ambiguous, original.getName(), renamed.getName()));
+            mappings.forEachMethod((original, renamed) -> addMember(members, ambiguous, original.getName(), renamed.getName()));
+            members.keySet().removeAll(ambiguous);
+            members.keySet().removeAll(classes.keySet());
+        }
+        int count = classes.size() + members.size();
+        String[] keys = new String[count];
+        int index = 0, totalLength = 0, maxLength = 0;
+        for (String key : classes.keySet()) {
+            keys[index++] = key;
+        }
+        for (String key : members.keySet()) {
+            keys[index++] = key;
+        }
+        Arrays.sort(keys);
+        this.replacements = new String[count];
+        this.classNames = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            String key = keys[i];
+            String replacement = classes.get(key);
+            classNames[i] = replacement != null;
+            replacements[i] = replacement != null ? replacement : members.get(key);
+            totalLength += key.length();
+            maxLength = Math.max(maxLength, key.length());
+        }
+        this.maxLength = maxLength;
+        int capacity = totalLength + 1;
+        this.labels = new char[capacity];
+        this.firstChild = new int[capacity];
+        this.nextSibling = new int[capacity];
+        this.failure = new int[capacity];
+        this.outputLink = new int[capacity];
+        this.depths = new int[capacity];
+        this.names = new int[capacity];
+        int nodes = buildTrie(keys, maxLength);
+        buildLinks(nodes);
+    }
+
+    private static void addMember(Map<String, String> members, Set<String> ambiguous, String name, String renamed) {
+        if (name.equals(renamed)) return;
+        String existing = members.putIfAbsent(name, renamed);
+        if (existing != null && !existing.equals(renamed)) ambiguous.add(name);
+    }
+
+    /**
+     * Insert the sorted names into the trie, returning the number of nodes.
+     * <p>
+     * Since the names are sorted, each name shares a prefix with the previous one,
+     * and its new nodes are always the last children of their parents.
+     * </p>
+     */
+    private int buildTrie(String[] keys, int maxLength) {
+        int[] lastChild = new int[firstChild.length];
+        int[] path = new int[maxLength + 1];
+        Arrays.fill(firstChild, NONE);
+        Arrays.fill(nextSibling, NONE);
+        Arrays.fill(lastChild, NONE);
+        Arrays.fill(names, NONE);
+        path[0] = ROOT;
+        int nodes = 1;
+        String previous = "";
+        for (int index = 0; index < keys.length; index++) {
+            String key = keys[index];
+            int common = 0, limit = Math.min(previous.length(), key.length());
+            while (common < limit && previous.charAt(common) == key.charAt(common)) {
+                common++;
+            }
+            int node = path[common];
+            for (int i = common; i < key.length(); i++) {
+                int child = nodes++;
+                labels[child] = key.charAt(i);
+                depths[child] = i + 1;
+                if (lastChild[node] == NONE) {
+                    firstChild[node] = child;
+                } else {
+                    nextSibling[lastChild[node]] = child;
+                }
+                lastChild[node] = child;
+                path[i + 1] = node = child;
+            }
+            names[node] = index;
+            previous = key;
+        }
+        for (int child = firstChild[ROOT]; child != NONE; child = nextSibling[child]) {
+            if (labels[child] < 128) rootChildren[labels[child]] = child;
+        }
+        return nodes;
+    }
+
+    /**
+     * Compute the failure and output links in breadth-first order, so each node's suffixes are done first.
+     */
+    private void buildLinks(int nodes) {
+        int[] queue = new int[nodes];
+        int head = 0, tail = 0;
+        failure[ROOT] = ROOT;
+        outputLink[ROOT] = NONE;
+        queue[tail++] = ROOT;
+        while (head < tail) {
+            int node = queue[head++];
+            for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+                int suffix = ROOT;
+                if (node != ROOT) {
+                    int state = failure[node];
+                    int next;
+                    while ((next = child(state, labels[child])) == NONE && state != ROOT) {
+                        state = failure[state];
+                    }
+                    if (next != NONE) suffix = next;
+                }
+                failure[child] = suffix;
+                outputLink[child] = names[suffix] != NONE ? suffix : outputLink[suffix];
+                queue[tail++] = child;
+            }
+        }
+    }
+
+    private int child(int node, char c) {
+        if (node == ROOT && c < 128) {
+            int child = rootChildren[c];
+            return child != ROOT ? child : NONE;
+        }
+        for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+            char label = labels[child];
+            if (label == c) return child;
+            if (label > c) break;
+        }
+        return NONE;
+    }
+
+    private int step(int state, char c) {
+        while (true) {
+            int next = child(state, c);
+            if (next != NONE) return next;
+            if (state == ROOT) return ROOT;
+            state = failure[state];
+        }
+    }
+
+    /**
+     * Remap the specified text.
+     *
+     * @param text the text to remap
+     * @return the remapped text
+     */
+    public String remap(String text) {
+        StringWriter result = new StringWriter(text.length() + 16);
+        try {
+            remap(new StringReader(text), result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Remap all the text from the specified reader, writing the result to the specified writer.
+     * <p>
+     * Only the last few chars are buffered, up to the length of the longest name,
+     * so memory use doesn't depend on the input.
+     * Neither the reader nor the writer are closed.
+     * </p>
+     *
+     * @param in  the reader to remap
+     * @param out the writer to write to
+     * @throws IOException if an error occurs reading or writing
+     */
+    public void remap(Reader in, Writer out) throws IOException {
+        new Session(requireNonNull(out, "Null writer")).run(requireNonNull(in, "Null reader"));
+    }
+
+    /**
+     * The state of a single call to {@link #remap(Reader, Writer)}.
+     * <p>
+     * Recent chars are kept in a ring, indexed by their absolute position,
+     * until they're written or replaced. A match is only chosen once no longer match could start at or before it.
+     * </p>
+     */
+    private final class Session {
+        private final Writer out;
+        private final char[] ring;
+        private final int mask;
+        private final char[] output = new char[OUTPUT_BUFFER_SIZE];
+        private int outputLength;
+        private long position, written;
+        private int state = ROOT;
+        /**
+         * The node of the best pending match, or {@link #NONE}.
+         */
+        private int match = NONE;
+        private long matchStart;
+
+        private Session(Writer out) {
+            this.out = out;
+            int size = Integer.highestOneBit((maxLength + 2) * 2);
+            this.ring = new char[size];
+            this.mask = size - 1;
+        }
+
+        private void run(Reader in) throws IOException {
+            char[] input = new char[INPUT_BUFFER_SIZE];
+            int read;
+            while ((read = in.read(input)) >= 0) {
+                for (int i = 0; i < read; i++) {
+                    char c = input[i];
+                    // Names ending at the previous char only match if this char ends the identifier
+                    if (!isNamePart(c)) findMatch(position - 1);
+                    ring[(int) position & mask] = c;
+                    state = step(state, c);
+                    position++;
+                    settle(position - depths[state]);
+                }
+            }
+            findMatch(position - 1);
+            settle(position);
+            out.write(output, 0, outputLength);
+        }
+
+        /**
+         * Consider the names ending at the specified position, which is followed by the end of an identifier.
+         */
+        private void findMatch(long end) {
+            int node = names[state] != NONE ? state : outputLink[state];
+            // Longer names come first, so the first valid name is the leftmost one
+            for (; node != NONE; node = outputLink[node]) {
+                long start = end - depths[node] + 1;
+                if (start < written) continue;
+                if (start > 0) {
+                    char before = ring[(int) (start - 1) & mask];
+                    if (isNamePart(before)) continue;
+                    if (classNames[names[node]] && (before == '.' || before == '/')) continue;
+                }
+                if (match == NONE || start < matchStart || start == matchStart && depths[node] > depths[match]) {
+                    match = node;
+                    matchStart = start;
+                }
+                return;
+            }
+        }
+
+        /**
+         * Write everything before the specified start of the earliest partial match.
+         */
+        private void settle(long liveStart) throws IOException {
+            if (match != NONE) {
+                if (matchStart >= liveStart) {
+                    flush(matchStart);
+                    return;
+                }
+                flush(matchStart);
+                append(replacements[names[match]]);
+                written = matchStart + depths[match];
+                match = NONE;
+            }
+            flush(liveStart);
+        }
+
+        private void flush(long end) throws IOException {
+            while (written < end) {
+                append(ring[(int) written++ & mask]);
+            }
+        }
+
+        private void append(char c) throws IOException {
+            if (outputLength == output.length) {
+                out.write(output, 0, outputLength);
+                outputLength = 0;
+            }
+            output[outputLength++] = c;
+        }
+
+        private void append(String s) throws IOException {
+            for (int i = 0; i < s.length(); i++) {
+                append(s.charAt(i));
+            }
+        }
+    }
+}
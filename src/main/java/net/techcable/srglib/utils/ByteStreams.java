@@ -0,0 +1,30 @@
+package net.techcable.srglib.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+public final class ByteStreams {
+    private ByteStreams() {}
+
+    /**
+     * Read all the remaining bytes in the specified stream.
+     *
+     * @param in       the stream to read from
+     * @param sizeHint the expected number of bytes, or a negative number if unknown
+     * @return the bytes that were read
+     * @throws IOException if an error occurs reading the stream
+     */
+    public static byte[] readFully(InputStream in, long sizeHint) throws IOException {
+        byte[] buffer = new byte[sizeHint >= 0 && sizeHint < Integer.MAX_VALUE - 8 ? (int) sizeHint + 1 : 8192];
+        int length = 0;
+        int read;
+        while ((read = in.read(buffer, length, buffer.length - length)) >= 0) {
+            length += read;
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+        }
+        return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+    }
+}
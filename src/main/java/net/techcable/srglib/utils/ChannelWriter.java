@@ -0,0 +1,165 @@
+package net.techcable.srglib.utils;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An {@link Appendable} that encodes text as UTF-8 straight into a direct buffer, and writes it to a channel.
+ * <p>
+ * ASCII characters are encoded with a single bounds check and store,
+ * so mostly-ASCII output like mappings files doesn't go through a {@link java.nio.charset.CharsetEncoder}.
+ * The buffer is only written once it's full, so the channel sees a few large writes.
+ * Each thread reuses the same buffer, as long as the previous writer on that thread has been closed.
+ * Unpaired surrogates are encoded as '?', like {@link String#getBytes(java.nio.charset.Charset)}.
+ * </p>
+ * <p>
+ * Writers aren't thread-safe.
+ * </p>
+ */
+public final class ChannelWriter implements Appendable, Flushable, Closeable {
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final ThreadLocal<ByteBuffer> BUFFERS = new ThreadLocal<>();
+    private final WritableByteChannel channel;
+    private ByteBuffer buffer;
+    /**
+     * The high surrogate waiting for its low surrogate, or zero if none.
+     */
+    private char pendingSurrogate;
+
+    public ChannelWriter(WritableByteChannel channel) {
+        this.channel = requireNonNull(channel, "Null channel");
+        ByteBuffer buffer = BUFFERS.get();
+        if (buffer != null) {
+            BUFFERS.set(null); // Claim it, in case another writer is opened before we're closed
+        } else {
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        this.buffer = buffer;
+    }
+
+    @Override
+    public ChannelWriter append(CharSequence s) throws IOException {
+        return append(s, 0, s.length());
+    }
+
+    @Override
+    public ChannelWriter append(CharSequence s, int start, int end) throws IOException {
+        ByteBuffer buffer = checkOpen();
+        int index = start;
+        while (index < end) {
+            if (pendingSurrogate != 0) {
+                append(s.charAt(index++));
+                continue;
+            }
+            // Fast path for ASCII, checking the space once for each run
+            int limit = Math.min(end, index + buffer.remaining());
+            char c;
+            while (index < limit && (c = s.charAt(index)) < 0x80) {
+                buffer.put((byte) c);
+                index++;
+            }
+            if (index < end) {
+                if (!buffer.hasRemaining()) {
+                    drain();
+                } else {
+                    append(s.charAt(index++));
+                }
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public ChannelWriter append(char c) throws IOException {
+        ByteBuffer buffer = checkOpen();
+        if (buffer.remaining() < 4) {
+            drain();
+        }
+        if (pendingSurrogate != 0) {
+            char high = pendingSurrogate;
+            pendingSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint(high, c);
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+                return this;
+            }
+            buffer.put((byte) '?');
+            return append(c);
+        }
+        if (c < 0x80) {
+            buffer.put((byte) c);
+        } else if (c < 0x800) {
+            buffer.put((byte) (0xC0 | (c >> 6)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        } else if (Character.isHighSurrogate(c)) {
+            pendingSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            buffer.put((byte) '?');
+        } else {
+            buffer.put((byte) (0xE0 | (c >> 12)));
+            buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        }
+        return this;
+    }
+
+    /**
+     * Write all the buffered bytes to the channel.
+     * <p>
+     * A trailing high surrogate stays buffered, since it may still be followed by its low surrogate.
+     * </p>
+     *
+     * @throws IOException if an error occurs writing
+     */
+    @Override
+    public void flush() throws IOException {
+        checkOpen();
+        drain();
+    }
+
+    private void drain() throws IOException {
+        ByteBuffer buffer = this.buffer;
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Flush the remaining output and close the channel.
+     *
+     * @throws IOException if an error occurs writing or closing
+     */
+    @Override
+    public void close() throws IOException {
+        ByteBuffer buffer = this.buffer;
+        if (buffer == null) return;
+        try {
+            if (pendingSurrogate != 0) {
+                pendingSurrogate = 0;
+                buffer.put((byte) '?');
+            }
+            drain();
+        } finally {
+            this.buffer = null;
+            buffer.clear();
+            BUFFERS.set(buffer);
+            channel.close();
+        }
+    }
+
+    private ByteBuffer checkOpen() throws IOException {
+        ByteBuffer buffer = this.buffer;
+        if (buffer == null) throw new IOException("Writer closed");
+        return buffer;
+    }
+}
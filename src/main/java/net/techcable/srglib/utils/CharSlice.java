@@ -0,0 +1,57 @@
+package net.techcable.srglib.utils;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A reusable, mutable view of a range of another char sequence.
+ * <p>
+ * Slices let a single buffer be probed as many different keys without copying.
+ * Since the contents can change, slices must never be stored as keys,
+ * and don't override {@link Object#equals(Object)} or {@link Object#hashCode()}.
+ * </p>
+ */
+public final class CharSlice implements CharSequence {
+    private CharSequence source = "";
+    private int start, end;
+
+    /**
+     * Point this slice at the specified range of the source.
+     *
+     * @param source the source sequence
+     * @param start  the start index, inclusive
+     * @param end    the end index, exclusive
+     * @return this slice
+     */
+    public CharSlice set(CharSequence source, int start, int end) {
+        requireNonNull(source, "Null source");
+        if (start < 0 || end < start || end > source.length()) {
+            throw new IndexOutOfBoundsException("Invalid range [" + start + ", " + end + ") of length " + source.length());
+        }
+        this.source = source;
+        this.start = start;
+        this.end = end;
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= end - start) throw new IndexOutOfBoundsException("Invalid index: " + index);
+        return source.charAt(start + index);
+    }
+
+    @Override
+    public String subSequence(int start, int end) {
+        if (start < 0 || end < start || end > length()) throw new IndexOutOfBoundsException();
+        return source.subSequence(this.start + start, this.start + end).toString();
+    }
+
+    @Override
+    public String toString() {
+        return source.subSequence(start, end).toString();
+    }
+}
@@ -0,0 +1,260 @@
+package net.techcable.srglib.utils;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A size-bounded cache of files in a local directory, evicting the least recently used files first.
+ * <p>
+ * Files are keyed by strings of hex digits, usually content digests.
+ * Entries are written to a temporary file and atomically moved into place,
+ * so readers in other threads or processes never see partially written files.
+ * Recency is tracked with the files' modification times, which are updated on every hit.
+ * </p>
+ * <p>
+ * Once the cache is full, it's trimmed well below its size limit,
+ * so the directory only has to be scanned every so often, and not on every put.
+ * Temporary files left behind by crashed processes are deleted once they're old enough.
+ * </p>
+ * <p>
+ * Caches are thread-safe, and several processes may share the same directory.
+ * The size limit is only approximate when shared between processes.
+ * </p>
+ */
+public final class DiskCache {
+    private static final String TEMP_SUFFIX = ".tmp";
+    /**
+     * How old a temporary file has to be before it's assumed to be abandoned.
+     */
+    private static final long STALE_TEMP_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private final Path directory;
+    private final long maxSize;
+    /**
+     * The size to trim the cache down to once it's over its limit.
+     */
+    private final long targetSize;
+    /**
+     * The approximate size of the cache, or -1 if not yet computed.
+     */
+    private final AtomicLong size = new AtomicLong(-1);
+
+    /**
+     * Create a cache in the specified directory.
+     *
+     * @param directory the directory to store the files in
+     * @param maxSize   the maximum total size of the files, in bytes
+     */
+    public DiskCache(Path directory, long maxSize) {
+        this.directory = requireNonNull(directory, "Null directory");
+        if (maxSize <= 0) throw new IllegalArgumentException("Invalid max size: " + maxSize);
+        this.maxSize = maxSize;
+        this.targetSize = maxSize - maxSize / 5;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Return the file with the specified key, or null if it isn't cached.
+     * <p>
+     * Hits are marked as recently used.
+     * </p>
+     *
+     * @param key the key to look up
+     * @return the cached file, or null if not found
+     * @throws IOException if an error occurs accessing the cache
+     */
+    @Nullable
+    public Path get(String key) throws IOException {
+        Path file = resolve(key);
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return file;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Read the bytes of the file with the specified key, or null if it isn't cached.
+     *
+     * @param key the key to look up
+     * @return the cached bytes, or null if not found
+     * @throws IOException if an error occurs accessing the cache
+     */
+    @Nullable
+    public byte[] getBytes(String key) throws IOException {
+        Path file = get(key);
+        if (file == null) return null;
+        try {
+            return Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return null; // Evicted concurrently
+        }
+    }
+
+    /**
+     * Store the specified bytes under the specified key.
+     *
+     * @param key  the key to store the bytes under
+     * @param data the bytes to store
+     * @return the cached file
+     * @throws IOException if an error occurs writing the file
+     */
+    public Path put(String key, byte[] data) throws IOException {
+        return put(key, temp -> Files.write(temp, data));
+    }
+
+    /**
+     * Store the file produced by the specified writer under the specified key.
+     * <p>
+     * The writer is given a temporary file to write to, which is moved into place once it's done.
+     * If the writer fails, the temporary file is deleted and nothing is cached.
+     * The new file is never evicted by its own put, even if it's larger than the whole cache,
+     * so it's only evicted by later puts.
+     * </p>
+     *
+     * @param key    the key to store the file under
+     * @param writer the function that writes the file
+     * @return the cached file
+     * @throws IOException if an error occurs writing the file
+     */
+    public Path put(String key, CheckedConsumer<Path, IOException> writer) throws IOException {
+        Path file = resolve(key);
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), TEMP_SUFFIX);
+        try {
+            writer.accept(temp);
+            long fileSize = Files.size(temp);
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            // Scan the directory the first time, then keep a running total
+            if (size.get() < 0 || size.addAndGet(fileSize) > maxSize) {
+                evict(file, true); // Never the new file, so the result exists even if it's larger than the cache
+            }
+            return file;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Evict the least recently used files until the cache is well within its size limit.
+     *
+     * @throws IOException if an error occurs accessing the cache
+     */
+    public void evict() throws IOException {
+        evict(null, false);
+    }
+
+    /**
+     * Evict the least recently used files, except the specified file, until the cache is well within its size limit.
+     * <p>
+     * If only needed, the scan is skipped when another thread already brought the cache back under its limit.
+     * </p>
+     */
+    private synchronized void evict(@Nullable Path keep, boolean onlyIfNeeded) throws IOException {
+        long currentSize = size.get();
+        if (onlyIfNeeded && currentSize >= 0 && currentSize <= maxSize) return;
+        if (!Files.isDirectory(directory)) {
+            size.set(0);
+            return;
+        }
+        List<CachedFile> files = new ArrayList<>();
+        long totalSize = 0;
+        long staleTime = System.currentTimeMillis() - STALE_TEMP_MILLIS;
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    continue;
+                }
+                if (!attributes.isRegularFile()) continue;
+                if (path.getFileName().toString().endsWith(TEMP_SUFFIX)) {
+                    // Still being written, unless its writer crashed long ago
+                    if (attributes.lastModifiedTime().toMillis() < staleTime) Files.deleteIfExists(path);
+                    continue;
+                }
+                files.add(new CachedFile(path, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                totalSize += attributes.size();
+            }
+        }
+        if (totalSize > maxSize) {
+            files.sort(Comparator.comparingLong(file -> file.lastUsed));
+            for (CachedFile file : files) {
+                if (totalSize <= targetSize) break;
+                if (file.path.equals(keep)) continue;
+                try {
+                    Files.delete(file.path);
+                } catch (NoSuchFileException ignored) {
+                    // Someone else evicted it
+                }
+                totalSize -= file.size;
+            }
+        }
+        size.set(totalSize);
+    }
+
+    private Path resolve(String key) {
+        requireNonNull(key, "Null key");
+        if (key.length() < 3) throw new IllegalArgumentException("Key too short: " + key);
+        for (int i = 0; i < key.length(); i++) {
+            if (Character.digit(key.charAt(i), 16) < 0) throw new IllegalArgumentException("Invalid key: " + key);
+        }
+        // Shard by the first two digits, so directories don't get too large
+        return directory.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    /**
+     * Encode the specified digest as a cache key.
+     *
+     * @param digest the digest bytes
+     * @return a lowercase hex string
+     */
+    public static String toKey(byte[] digest) {
+        char[] result = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            result[i * 2] = Character.forDigit((digest[i] >> 4) & 0xF, 16);
+            result[i * 2 + 1] = Character.forDigit(digest[i] & 0xF, 16);
+        }
+        return String.valueOf(result);
+    }
+
+    private static final class CachedFile {
+        private final Path path;
+        private final long size;
+        private final long lastUsed;
+
+        private CachedFile(Path path, long size, long lastUsed) {
+            this.path = path;
+            this.size = size;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
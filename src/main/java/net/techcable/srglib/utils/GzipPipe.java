@@ -0,0 +1,312 @@
+package net.techcable.srglib.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Gzip streams that inflate or deflate on a separate thread, so compression overlaps with parsing or formatting.
+ * <p>
+ * The compressing thread and the caller exchange data through a small ring of buffers,
+ * so at most a few chunks are ever in flight, no matter how large the stream is.
+ * Errors on the compressing thread are rethrown to the caller.
+ * </p>
+ */
+public final class GzipPipe {
+    private GzipPipe() {}
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int CHUNK_COUNT = 4;
+
+    /**
+     * Return if the specified header starts with the gzip magic bytes.
+     *
+     * @param header the first bytes of a file
+     * @param length the number of bytes in the header
+     * @return if the header is gzip compressed
+     */
+    public static boolean isCompressed(byte[] header, int length) {
+        return length >= 2 && (header[0] & 0xFF) == 0x1F && (header[1] & 0xFF) == 0x8B;
+    }
+
+    /**
+     * Return a stream of the decompressed contents of the specified gzip stream.
+     * <p>
+     * The input is inflated on a separate thread, ahead of the caller's reads.
+     * Closing the returned stream stops the thread and closes the input.
+     * </p>
+     *
+     * @param in the compressed stream
+     * @return the decompressed stream
+     */
+    public static InputStream decompress(InputStream in) {
+        InflatingInputStream result = new InflatingInputStream(requireNonNull(in, "Null input"));
+        result.thread.start();
+        return result;
+    }
+
+    /**
+     * Return a stream that compresses everything written to it into the specified output, in gzip format.
+     * <p>
+     * The output is deflated on a separate thread, behind the caller's writes.
+     * Closing the returned stream waits for the remaining output to be compressed, and closes the output.
+     * </p>
+     *
+     * @param out the output for the compressed data
+     * @return the compressing stream
+     */
+    public static OutputStream compress(OutputStream out) {
+        DeflatingOutputStream result = new DeflatingOutputStream(requireNonNull(out, "Null output"));
+        result.thread.start();
+        return result;
+    }
+
+    private static final class Chunk {
+        private final byte[] data;
+        private int position, length;
+
+        private Chunk(int size) {
+            this.data = new byte[size];
+        }
+    }
+
+    /**
+     * The buffers shared between the caller and the compressing thread.
+     */
+    private static final class BufferRing {
+        /**
+         * Marks the end of the stream in the filled queue.
+         */
+        private static final Chunk END = new Chunk(0);
+        private final BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(CHUNK_COUNT);
+        // Leave room for the end marker, so putting it never blocks
+        private final BlockingQueue<Chunk> filled = new ArrayBlockingQueue<>(CHUNK_COUNT + 1);
+        private volatile Throwable error;
+
+        private BufferRing() {
+            for (int i = 0; i < CHUNK_COUNT; i++) {
+                free.add(new Chunk(CHUNK_SIZE));
+            }
+        }
+
+        private void checkError() throws IOException {
+            Throwable error = this.error;
+            if (error == null) return;
+            if (error instanceof IOException) throw new IOException(error.getMessage(), error);
+            if (error instanceof RuntimeException) throw (RuntimeException) error;
+            if (error instanceof Error) throw (Error) error;
+            throw new IOException(error);
+        }
+
+        private static Chunk take(BlockingQueue<Chunk> queue) throws InterruptedIOException {
+            try {
+                return queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for gzip thread");
+            }
+        }
+
+        private static void put(BlockingQueue<Chunk> queue, Chunk chunk) {
+            // Every chunk came from the ring, so there's always room for it
+            boolean added = queue.offer(chunk);
+            assert added;
+        }
+    }
+
+    private static final class InflatingInputStream extends InputStream {
+        private final BufferRing ring = new BufferRing();
+        private final Thread thread;
+        private Chunk current;
+        private boolean closed;
+
+        private InflatingInputStream(InputStream source) {
+            this.thread = new Thread(() -> inflate(source), "SrgLib gzip inflater");
+            thread.setDaemon(true);
+        }
+
+        private void inflate(InputStream source) {
+            // Close the source even if the header is invalid
+            try (InputStream src = source; InputStream in = new GZIPInputStream(src, CHUNK_SIZE)) {
+                while (true) {
+                    Chunk chunk = ring.free.take();
+                    int length = 0, read = 0;
+                    while (length < chunk.data.length && (read = in.read(chunk.data, length, chunk.data.length - length)) >= 0) {
+                        length += read;
+                    }
+                    chunk.position = 0;
+                    chunk.length = length;
+                    BufferRing.put(length > 0 ? ring.filled : ring.free, chunk);
+                    if (read < 0) break;
+                }
+            } catch (InterruptedException e) {
+                // Closed by the reader
+            } catch (Throwable t) {
+                ring.error = t;
+            } finally {
+                BufferRing.put(ring.filled, BufferRing.END);
+            }
+        }
+
+        /**
+         * Return the current chunk, waiting for the next one if it's been consumed, or null at the end of the stream.
+         */
+        private Chunk current() throws IOException {
+            if (closed) throw new IOException("Stream closed");
+            Chunk current = this.current;
+            if (current != null && current.position < current.length) return current;
+            if (current == BufferRing.END) return null;
+            if (current != null) BufferRing.put(ring.free, current);
+            this.current = current = BufferRing.take(ring.filled);
+            if (current == BufferRing.END) {
+                ring.checkError();
+                return null;
+            }
+            return current;
+        }
+
+        @Override
+        public int read() throws IOException {
+            Chunk current = current();
+            return current != null ? current.data[current.position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            Chunk current = current();
+            if (current == null) return -1;
+            int count = Math.min(length, current.length - current.position);
+            System.arraycopy(current.data, current.position, buffer, offset, count);
+            current.position += count;
+            return count;
+        }
+
+        @Override
+        public int available() throws IOException {
+            Chunk current = this.current;
+            return current != null && !closed ? current.length - current.position : 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            thread.interrupt();
+            try {
+                thread.join(); // Make sure the source is closed
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted closing gzip stream");
+            }
+        }
+    }
+
+    private static final class DeflatingOutputStream extends OutputStream {
+        private final BufferRing ring = new BufferRing();
+        private final Thread thread;
+        private Chunk current;
+        private boolean closed;
+
+        private DeflatingOutputStream(OutputStream sink) {
+            this.thread = new Thread(() -> deflate(sink), "SrgLib gzip deflater");
+            thread.setDaemon(true);
+        }
+
+        private void deflate(OutputStream sink) {
+            try (OutputStream out = new GZIPOutputStream(sink, CHUNK_SIZE)) {
+                Chunk chunk;
+                while ((chunk = ring.filled.take()) != BufferRing.END) {
+                    out.write(chunk.data, 0, chunk.length);
+                    BufferRing.put(ring.free, chunk);
+                }
+            } catch (Throwable t) {
+                ring.error = t;
+                try {
+                    sink.close();
+                } catch (IOException ignored) {}
+                // Keep recycling chunks, so the writer sees the error instead of blocking
+                try {
+                    Chunk chunk;
+                    while ((chunk = ring.filled.take()) != BufferRing.END) {
+                        BufferRing.put(ring.free, chunk);
+                    }
+                } catch (InterruptedException ignored) {}
+            }
+        }
+
+        private Chunk current() throws IOException {
+            if (closed) throw new IOException("Stream closed");
+            Chunk current = this.current;
+            if (current == null) {
+                ring.checkError();
+                this.current = current = BufferRing.take(ring.free);
+                current.length = 0;
+            }
+            return current;
+        }
+
+        private void handOff() {
+            Chunk current = this.current;
+            if (current != null && current.length > 0) {
+                BufferRing.put(ring.filled, current);
+                this.current = null;
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            Chunk current = current();
+            current.data[current.length++] = (byte) b;
+            if (current.length == current.data.length) handOff();
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            while (length > 0) {
+                Chunk current = current();
+                int count = Math.min(length, current.data.length - current.length);
+                System.arraycopy(buffer, offset, current.data, current.length, count);
+                current.length += count;
+                offset += count;
+                length -= count;
+                if (current.length == current.data.length) handOff();
+            }
+        }
+
+        /**
+         * Hand off any buffered data to the compressing thread.
+         * <p>
+         * This doesn't wait for the data to be compressed, or flush the compressed output.
+         * </p>
+         */
+        @Override
+        public void flush() throws IOException {
+            if (closed) throw new IOException("Stream closed");
+            handOff();
+            ring.checkError();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            handOff();
+            closed = true;
+            BufferRing.put(ring.filled, BufferRing.END);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted finishing gzip stream");
+            }
+            ring.checkError();
+        }
+    }
+}
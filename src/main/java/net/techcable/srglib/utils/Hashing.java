@@ -0,0 +1,130 @@
+package net.techcable.srglib.utils;
+
+/**
+ * Non-cryptographic hash functions with good bit mixing.
+ */
+public final class Hashing {
+    private Hashing() {}
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    /**
+     * Mix the bits of the specified hash code, using the finalizer from Murmur3.
+     * <p>
+     * Every input bit affects every output bit,
+     * so hashes which only differ in a few bits end up far apart.
+     * </p>
+     *
+     * @param hash the hash to mix
+     * @return the mixed hash
+     */
+    public static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    /**
+     * Mix the bits of the specified 64-bit hash, using the finalizer from Murmur3.
+     *
+     * @param hash the hash to mix
+     * @return the mixed hash
+     */
+    public static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Combine two hash codes, so that the order of the hashes matters.
+     * <p>
+     * Unlike XOR, {@code combine(a, b)} differs from {@code combine(b, a)},
+     * and {@code combine(a, a)} isn't a constant.
+     * </p>
+     *
+     * @param first  the first hash
+     * @param second the second hash
+     * @return the combined hash
+     */
+    public static int combine(int first, int second) {
+        return mix(first * 0x9e3779b9 + second);
+    }
+
+    /**
+     * A streaming 128-bit hash of a sequence of strings and integers, loosely based on Murmur3.
+     * <p>
+     * Strings are length-prefixed, so the boundaries between them are part of the hash.
+     * </p>
+     */
+    public static final class Hasher128 {
+        private long h1, h2;
+        private long length;
+
+        public Hasher128 putInt(int value) {
+            long k1 = value * C1;
+            k1 = Long.rotateLeft(k1, 31) * C2;
+            h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+            long k2 = value * C2;
+            k2 = Long.rotateLeft(k2, 33) * C1;
+            h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
+            length++;
+            return this;
+        }
+
+        public Hasher128 putString(CharSequence s) {
+            int size = s.length();
+            putInt(size);
+            int i = 0;
+            // Pack two chars into each int
+            for (; i + 1 < size; i += 2) {
+                putInt((s.charAt(i) << 16) | s.charAt(i + 1));
+            }
+            if (i < size) putInt(s.charAt(i));
+            return this;
+        }
+
+        /**
+         * Return the high 64 bits of the hash.
+         * <p>
+         * The hash can be finished several times, and more data may be added afterwards.
+         * </p>
+         *
+         * @return the high bits
+         */
+        public long high() {
+            return finish(true);
+        }
+
+        /**
+         * Return the low 64 bits of the hash.
+         *
+         * @return the low bits
+         */
+        public long low() {
+            return finish(false);
+        }
+
+        private long finish(boolean high) {
+            long h1 = this.h1 ^ length, h2 = this.h2 ^ length;
+            h1 += h2;
+            h2 += h1;
+            h1 = mix(h1);
+            h2 = mix(h2);
+            h1 += h2;
+            h2 += h1;
+            return high ? h1 : h2;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package net.techcable.srglib.utils;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An open-addressing hash table from a composite key of one to three strings to a string value.
+ * <p>
+ * Lookups are keyed by arbitrary {@link CharSequence}s and never allocate,
+ * which makes this table suitable for probing with slices of a larger buffer.
+ * Hashes of the key parts are computed with the same algorithm as {@link String#hashCode()},
+ * so string keys use their cached hash codes.
+ * </p>
+ * <p>
+ * Tables aren't thread-safe while being built, but are safe to share once fully populated and safely published.
+ * </p>
+ */
+public final class NameTable {
+    private static final float LOAD_FACTOR = 0.5f;
+    private final int parts;
+    private String[] keys;
+    private String[] values;
+    private int[] hashes;
+    private int size;
+
+    /**
+     * Create a new table with the specified number of key parts.
+     *
+     * @param parts        the number of key parts, between one and three
+     * @param expectedSize the expected number of entries
+     */
+    public NameTable(int parts, int expectedSize) {
+        if (parts < 1 || parts > 3) throw new IllegalArgumentException("Invalid number of parts: " + parts);
+        this.parts = parts;
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        this.keys = new String[capacity * parts];
+        this.values = new String[capacity];
+        this.hashes = new int[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int parts() {
+        return parts;
+    }
+
+    //
+    // Lookup
+    //
+
+    @Nullable
+    public String get(CharSequence first) {
+        checkParts(1);
+        return get0(first, null, null, hash(first));
+    }
+
+    @Nullable
+    public String get(CharSequence first, CharSequence second) {
+        checkParts(2);
+        return get0(first, second, null, hash(first, second));
+    }
+
+    @Nullable
+    public String get(CharSequence first, CharSequence second, CharSequence third) {
+        checkParts(3);
+        return get0(first, second, third, hash(first, second, third));
+    }
+
+    @Nullable
+    private String get0(CharSequence first, @Nullable CharSequence second, @Nullable CharSequence third, int hash) {
+        int mask = values.length - 1;
+        int index = hash & mask;
+        String value;
+        while ((value = values[index]) != null) {
+            if (hashes[index] == hash && keyEquals(index, first, second, third)) {
+                return value;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    private boolean keyEquals(int index, CharSequence first, @Nullable CharSequence second, @Nullable CharSequence third) {
+        int offset = index * parts;
+        String[] keys = this.keys;
+        return keys[offset].contentEquals(first)
+                && (second == null || keys[offset + 1].contentEquals(second))
+                && (third == null || keys[offset + 2].contentEquals(third));
+    }
+
+    //
+    // Insertion
+    //
+
+    @Nullable
+    public String put(String first, String value) {
+        checkParts(1);
+        return put0(first, null, null, value, true);
+    }
+
+    @Nullable
+    public String put(String first, String second, String value) {
+        checkParts(2);
+        return put0(first, second, null, value, true);
+    }
+
+    @Nullable
+    public String put(String first, String second, String third, String value) {
+        checkParts(3);
+        return put0(first, second, third, value, true);
+    }
+
+    @Nullable
+    public String putIfAbsent(String first, String value) {
+        checkParts(1);
+        return put0(first, null, null, value, false);
+    }
+
+    @Nullable
+    public String putIfAbsent(String first, String second, String value) {
+        checkParts(2);
+        return put0(first, second, null, value, false);
+    }
+
+    @Nullable
+    public String putIfAbsent(String first, String second, String third, String value) {
+        checkParts(3);
+        return put0(first, second, third, value, false);
+    }
+
+    @Nullable
+    private String put0(String first, @Nullable String second, @Nullable String third, String value, boolean replace) {
+        requireNonNull(first, "Null key");
+        requireNonNull(value, "Null value");
+        int hash = parts == 1 ? hash(first) : parts == 2 ? hash(first, second) : hash(first, second, third);
+        int mask = values.length - 1;
+        int index = hash & mask;
+        String existing;
+        while ((existing = values[index]) != null) {
+            if (hashes[index] == hash && keyEquals(index, first, second, third)) {
+                if (replace) values[index] = value;
+                return existing;
+            }
+            index = (index + 1) & mask;
+        }
+        int offset = index * parts;
+        keys[offset] = first;
+        if (parts > 1) keys[offset + 1] = requireNonNull(second, "Null key");
+        if (parts > 2) keys[offset + 2] = requireNonNull(third, "Null key");
+        values[index] = value;
+        hashes[index] = hash;
+        if (++size > values.length * LOAD_FACTOR) {
+            resize();
+        }
+        return null;
+    }
+
+    private void resize() {
+        String[] oldKeys = this.keys;
+        String[] oldValues = this.values;
+        int[] oldHashes = this.hashes;
+        int capacity = oldValues.length << 1;
+        int mask = capacity - 1;
+        String[] keys = new String[capacity * parts];
+        String[] values = new String[capacity];
+        int[] hashes = new int[capacity];
+        for (int oldIndex = 0; oldIndex < oldValues.length; oldIndex++) {
+            String value = oldValues[oldIndex];
+            if (value == null) continue;
+            int hash = oldHashes[oldIndex];
+            int index = hash & mask;
+            while (values[index] != null) {
+                index = (index + 1) & mask;
+            }
+            System.arraycopy(oldKeys, oldIndex * parts, keys, index * parts, parts);
+            values[index] = value;
+            hashes[index] = hash;
+        }
+        this.keys = keys;
+        this.values = values;
+        this.hashes = hashes;
+    }
+
+    private void checkParts(int expected) {
+        if (parts != expected) {
+            throw new IllegalArgumentException("Expected " + parts + " key parts, but got " + expected);
+        }
+    }
+
+    //
+    // Hashing
+    //
+
+    /**
+     * Hash the specified char sequence, using the same algorithm as {@link String#hashCode()}.
+     *
+     * @param s the sequence to hash
+     * @return the hash code
+     */
+    public static int hashChars(CharSequence s) {
+        if (s instanceof String) return s.hashCode(); // Cached
+        int hash = 0;
+        for (int i = 0, length = s.length(); i < length; i++) {
+            hash = 31 * hash + s.charAt(i);
+        }
+        return hash;
+    }
+
+    private static int hash(CharSequence first) {
+        return Hashing.mix(hashChars(first));
+    }
+
+    private static int hash(CharSequence first, CharSequence second) {
+        return Hashing.mix(hashChars(first) * 31 + hashChars(second));
+    }
+
+    private static int hash(CharSequence first, CharSequence second, CharSequence third) {
+        return Hashing.mix((hashChars(first) * 31 + hashChars(second)) * 31 + hashChars(third));
+    }
+}
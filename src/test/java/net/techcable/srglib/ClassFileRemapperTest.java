@@ -0,0 +1,274 @@
+package net.techcable.srglib;
+
+import net.techcable.srglib.format.MappingsFormat;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.remap.ClassFileRemapper;
+import net.techcable.srglib.remap.ClassHierarchy;
+import net.techcable.srglib.remap.JarRemapper;
+import net.techcable.srglib.remap.RemapCache;
+import net.techcable.srglib.utils.ByteStreams;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ClassFileRemapperTest {
+    private static final String[] SAMPLE_CLASSES = { "SampleEntity", "SamplePlayer", "SampleCallback" };
+    private static final Mappings MAPPINGS = MappingsFormat.SEARGE_FORMAT.parseLines(
+            "CL: net/techcable/srglib/SampleEntity remapped/Entity",
+            "CL: net/techcable/srglib/SamplePlayer remapped/Player",
+            "CL: net/techcable/srglib/SampleCallback remapped/Callback",
+            "FD: net/techcable/srglib/SampleEntity/health remapped/Entity/hp",
+            "MD: net/techcable/srglib/SampleEntity/damage (I)V remapped/Entity/hurt (I)V",
+            "MD: net/techcable/srglib/SampleCallback/call (Lnet/techcable/srglib/SampleEntity;)I remapped/Callback/invoke (Lremapped/Entity;)I"
+    ).snapshot();
+
+    @Test
+    public void testRemapClasses() throws ReflectiveOperationException, IOException {
+        ClassFileRemapper remapper = new ClassFileRemapper(MAPPINGS);
+        Map<String, byte[]> remapped = new HashMap<>();
+        for (String name : SAMPLE_CLASSES) {
+            byte[] original = readClass(name);
+            remapped.put(remapper.remapClassName("net/techcable/srglib/" + name).replace('/', '.'), remapper.remap(original));
+        }
+        verify(new ByteArrayClassLoader(remapped));
+    }
+
+    @Test
+    public void testRemapThroughSubclass() throws ReflectiveOperationException, IOException {
+        String[] sampleClasses = { "SampleEntity", "SampleBoss" };
+        ClassHierarchy.Builder hierarchy = ClassHierarchy.builder();
+        for (String name : sampleClasses) {
+            hierarchy.addClassFile(readClass(name));
+        }
+        Mappings resolving = hierarchy.build().resolving(MAPPINGS);
+        assertEquals("hurt", resolving.findNewMethodName("net/techcable/srglib/SampleBoss", "damage", "(I)V"));
+        assertEquals("hp", resolving.findNewFieldName("net/techcable/srglib/SampleBoss", "health"));
+        ClassFileRemapper remapper = new ClassFileRemapper(resolving);
+        Map<String, byte[]> remapped = new HashMap<>();
+        for (String name : sampleClasses) {
+            remapped.put(remapper.remapClassName("net/techcable/srglib/" + name).replace('/', '.'), remapper.remap(readClass(name)));
+        }
+        Class<?> boss = Class.forName("net.techcable.srglib.SampleBoss", true, new ByteArrayClassLoader(remapped));
+        Constructor<?> constructor = boss.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        assertEquals(7, ((IntSupplier) constructor.newInstance()).getAsInt());
+    }
+
+    @Test
+    public void testHiddenMembers() throws IOException {
+        ClassHierarchy.Builder hierarchy = ClassHierarchy.builder();
+        hierarchy.addClassFile(readClass("SampleBase"));
+        hierarchy.addClassFile(readClass("SampleTask"));
+        Mappings resolving = hierarchy.build().resolving(MappingsFormat.SEARGE_FORMAT.parseLines(
+                "FD: net/techcable/srglib/SampleBase/count net/techcable/srglib/SampleBase/total",
+                "FD: net/techcable/srglib/SampleBase/limit net/techcable/srglib/SampleBase/max",
+                "MD: net/techcable/srglib/SampleBase/run ()V net/techcable/srglib/SampleBase/stop ()V",
+                "MD: net/techcable/srglib/SampleBase/tick ()V net/techcable/srglib/SampleBase/update ()V"
+        ));
+        // Private members aren't inherited, and fields are hidden by the subclass's own
+        assertNull(resolving.findNewMethodName("net/techcable/srglib/SampleTask", "run", "()V"));
+        assertNull(resolving.findNewFieldName("net/techcable/srglib/SampleTask", "count"));
+        // Overrides are renamed with the method they override
+        assertEquals("update", resolving.findNewMethodName("net/techcable/srglib/SampleTask", "tick", "()V"));
+        assertEquals("max", resolving.findNewFieldName("net/techcable/srglib/SampleTask", "limit"));
+    }
+
+    @Test
+    public void testUnchanged() throws IOException {
+        ClassFileRemapper remapper = new ClassFileRemapper(Mappings.empty());
+        byte[] original = readClass("SamplePlayer");
+        assertSame(original, remapper.remap(original));
+    }
+
+    @Test
+    public void testRemapJar() throws ReflectiveOperationException, IOException {
+        Path input = Files.createTempFile("srglib-input", ".jar");
+        Path output = Files.createTempFile("srglib-output", ".jar");
+        try {
+            writeSampleJar(input);
+            try (ZipFile in = new ZipFile(input.toFile())) {
+                new JarRemapper(MAPPINGS).remap(in, output);
+            }
+            verifyJar(output);
+        } finally {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(output);
+        }
+    }
+
+    @Test
+    public void testRemapEntryName() {
+        JarRemapper remapper = new JarRemapper(MAPPINGS);
+        assertEquals("remapped/Entity.class", remapper.remapEntryName("net/techcable/srglib/SampleEntity.class"));
+        assertEquals(
+                "META-INF/versions/9/remapped/Entity.class",
+                remapper.remapEntryName("META-INF/versions/9/net/techcable/srglib/SampleEntity.class")
+        );
+        assertEquals("META-INF/versions/9/module-info.class", remapper.remapEntryName("META-INF/versions/9/module-info.class"));
+    }
+
+    @Test
+    public void testRemapCache() throws ReflectiveOperationException, IOException {
+        Path input = Files.createTempFile("srglib-input", ".jar");
+        Path cacheDirectory = Files.createTempDirectory("srglib-cache");
+        try {
+            writeSampleJar(input);
+            RemapCache cache = new RemapCache(cacheDirectory, 1024 * 1024);
+            JarRemapper remapper = new JarRemapper(MAPPINGS);
+            Path first = cache.remap(remapper, input);
+            verifyJar(first);
+            assertEquals(first, cache.remap(remapper, input));
+            assertNotEquals(first, cache.remap(new JarRemapper(Mappings.empty()), input));
+        } finally {
+            Files.deleteIfExists(input);
+            try (Stream<Path> files = Files.walk(cacheDirectory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    private static void writeSampleJar(Path path) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(path))) {
+            for (String name : SAMPLE_CLASSES) {
+                out.putNextEntry(new ZipEntry("net/techcable/srglib/" + name + ".class"));
+                out.write(readClass(name));
+                out.closeEntry();
+            }
+            out.putNextEntry(new ZipEntry("META-INF/TEST.SF"));
+            out.closeEntry();
+        }
+    }
+
+    private static void verifyJar(Path path) throws ReflectiveOperationException, IOException {
+        Map<String, byte[]> remapped = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        try (ZipFile in = new ZipFile(path.toFile())) {
+            for (ZipEntry entry : Collections.list(in.entries())) {
+                names.add(entry.getName());
+                try (InputStream entryIn = in.getInputStream(entry)) {
+                    String className = entry.getName().replace('/', '.').substring(0, entry.getName().length() - ".class".length());
+                    remapped.put(className, ByteStreams.readFully(entryIn, entry.getSize()));
+                }
+            }
+        }
+        assertEquals(Arrays.asList("remapped/Entity.class", "remapped/Player.class", "remapped/Callback.class"), names);
+        verify(new ByteArrayClassLoader(remapped));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void verify(ClassLoader loader) throws ReflectiveOperationException {
+        Class<?> entity = Class.forName("remapped.Entity", true, loader);
+        Class<?> player = Class.forName("remapped.Player", true, loader);
+        assertNotNull(entity.getDeclaredField("hp"));
+        assertNotNull(entity.getDeclaredMethod("hurt", int.class));
+        assertEquals(entity, player.getSuperclass());
+        assertEquals("java.util.List<remapped.Entity>", player.getDeclaredField("friends").getGenericType().getTypeName());
+        Constructor<?> constructor = player.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        Supplier<String> instance = (Supplier<String>) constructor.newInstance();
+        assertEquals("Player with 9 health and 1 friends", instance.get());
+    }
+
+    private static byte[] readClass(String name) throws IOException {
+        try (InputStream in = ClassFileRemapperTest.class.getResourceAsStream(name + ".class")) {
+            return ByteStreams.readFully(in, -1);
+        }
+    }
+
+    private static final class ByteArrayClassLoader extends ClassLoader {
+        private final Map<String, byte[]> classes;
+
+        private ByteArrayClassLoader(Map<String, byte[]> classes) {
+            super(ClassFileRemapperTest.class.getClassLoader());
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] data = classes.get(name);
+            if (data == null) throw new ClassNotFoundException(name);
+            return defineClass(name, data, 0, data.length);
+        }
+    }
+}
+
+class SampleEntity {
+    int health = 10;
+
+    void damage(int amount) {
+        health -= amount;
+    }
+}
+
+interface SampleCallback {
+    int call(SampleEntity entity);
+}
+
+class SamplePlayer extends SampleEntity implements Supplier<String> {
+    final List<SampleEntity> friends = new ArrayList<>();
+
+    @Override
+    public String get() {
+        SampleEntity self = this;
+        self.damage(1);
+        friends.add(new SampleEntity());
+        SampleCallback callback = entity -> entity.health;
+        return "Player with " + callback.call(self) + " health and " + friends.size() + " friends";
+    }
+}
+
+class SampleBoss extends SampleEntity implements IntSupplier {
+    @Override
+    public int getAsInt() {
+        damage(3); // Referenced through the subclass
+        return this.health;
+    }
+}
+
+class SampleBase {
+    int count;
+    int limit = 3;
+
+    private void run() {}
+
+    protected void tick() {
+        run();
+    }
+}
+
+class SampleTask extends SampleBase implements Runnable {
+    int count;
+
+    @Override
+    public void run() {
+        tick();
+    }
+
+    @Override
+    protected void tick() {
+        count += limit;
+    }
+}
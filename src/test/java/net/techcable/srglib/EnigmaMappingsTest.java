@@ -0,0 +1,88 @@
+package net.techcable.srglib;
+
+import net.techcable.srglib.format.MappingsFormat;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.mappings.NamespacedMappings;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EnigmaMappingsTest {
+    private static final String ENIGMA = String.join("\n",
+            "CLASS a net/minecraft/Entity",
+            "\tCOMMENT The base of every entity",
+            "\tFIELD a health I",
+            "\tFIELD b Lb;",
+            "\tMETHOD a setWorld (Lb;)V",
+            "\t\tARG 1 world",
+            "\tCLASS c Position",
+            "\t\tMETHOD a getX ()D",
+            "\tCLASS d",
+            "\t\tFIELD a owner La;",
+            "CLASS b net/minecraft/World",
+            ""
+    );
+    private static final String TINY = String.join("\n",
+            "tiny\t2\t0\tofficial\tnamed",
+            "c\ta\tnet/minecraft/Entity",
+            "\tf\tI\ta\thealth",
+            "\tm\t(Lb;)V\ta\tsetWorld",
+            "c\ta$c\tnet/minecraft/Entity$Position",
+            "\tm\t()D\ta\tgetX",
+            "c\ta$d\tnet/minecraft/Entity$d",
+            "\tf\tLa;\ta\towner",
+            "c\tb\tnet/minecraft/World",
+            "\tm\t()La;\tb\tspawn",
+            ""
+    );
+
+    @Test
+    public void testParse() {
+        Mappings mappings = MappingsFormat.ENIGMA_FORMAT.parseLines(ENIGMA.split("\n"));
+        assertEquals("net/minecraft/Entity$Position", mappings.findNewClassName("a$c"));
+        assertEquals("net/minecraft/Entity$d", mappings.findNewClassName("a$d"));
+        assertEquals("health", mappings.findNewFieldName("a", "a"));
+        assertEquals("setWorld", mappings.findNewMethodName("a", "a", "(Lb;)V"));
+        assertEquals("getX", mappings.findNewMethodName("a$c", "a", "()D"));
+        assertEquals("owner", mappings.findNewFieldName("a$d", "a"));
+        assertEquals(
+                MethodData.create(
+                        JavaType.fromInternalName("net/minecraft/Entity"),
+                        "setWorld",
+                        MethodSignature.fromDescriptor("(Lnet/minecraft/World;)V")
+                ),
+                mappings.getNewMethod(MethodData.create(
+                        JavaType.fromInternalName("a"),
+                        "a",
+                        MethodSignature.fromDescriptor("(Lb;)V")
+                ))
+        );
+    }
+
+    @Test
+    public void testDirectory() throws IOException {
+        NamespacedMappings mappings = MappingsFormat.TINY_V2_FORMAT.parseNamespaced(new BufferedReader(new StringReader(TINY)));
+        Path directory = Files.createTempDirectory("srglib-enigma");
+        try {
+            MappingsFormat.ENIGMA_FORMAT.writeDirectory(mappings, "official", "named", directory);
+            assertTrue(Files.isRegularFile(directory.resolve("net/minecraft/Entity.mapping")));
+            assertTrue(Files.isRegularFile(directory.resolve("net/minecraft/World.mapping")));
+            // Nested classes are in the file of their outer class
+            assertTrue(!Files.exists(directory.resolve("net/minecraft/Entity$Position.mapping")));
+            assertEquals(mappings.getMappings("official", "named"), MappingsFormat.ENIGMA_FORMAT.parseDirectory(directory));
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package net.techcable.srglib;
+
+import net.techcable.srglib.format.MappingsFormat;
+import net.techcable.srglib.mappings.Mappings;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the bucket distribution of the model types' hash codes with the old XOR-based hash codes.
+ * <p>
+ * Run {@link #main(String[])} with the paths of SRG files to benchmark real mappings.
+ * </p>
+ */
+public class HashDistributionTest {
+    @Test
+    public void testObfuscatedNames() {
+        List<String> names = obfuscatedNames(2000);
+        List<FieldData> fields = new ArrayList<>();
+        List<MethodData> methods = new ArrayList<>();
+        List<JavaType> types = new ArrayList<>();
+        for (String className : names) {
+            types.add(JavaType.fromInternalName(className));
+        }
+        for (int i = 0; i < names.size(); i++) {
+            JavaType owner = types.get(i);
+            // Obfuscated members reuse the same short names as the classes
+            for (int j = 0; j < 8; j++) {
+                fields.add(FieldData.create(owner, names.get(j)));
+                JavaType first = types.get((i + j) % types.size()), second = types.get((i + j + 1) % types.size());
+                methods.add(MethodData.create(owner, names.get(j), MethodSignature.create(Arrays.asList(first, second), PrimitiveType.VOID)));
+                methods.add(MethodData.create(owner, names.get(j), MethodSignature.create(Arrays.asList(second, first), PrimitiveType.VOID)));
+            }
+        }
+        Distribution legacyFields = Distribution.of(fields, HashDistributionTest::legacyHash);
+        Distribution newFields = Distribution.of(fields, FieldData::hashCode);
+        Distribution legacyMethods = Distribution.of(methods, HashDistributionTest::legacyHash);
+        Distribution newMethods = Distribution.of(methods, MethodData::hashCode);
+        assertTrue("Fields: " + newFields + " vs " + legacyFields, newFields.distinctHashes > legacyFields.distinctHashes);
+        assertTrue("Fields: " + newFields + " vs " + legacyFields, newFields.maxBucket <= legacyFields.maxBucket);
+        assertTrue("Methods: " + newMethods + " vs " + legacyMethods, newMethods.distinctHashes > legacyMethods.distinctHashes);
+        assertTrue("Methods: " + newMethods + " vs " + legacyMethods, newMethods.maxBucket <= legacyMethods.maxBucket);
+        // Unique members should almost never share a full hash code
+        assertTrue("Fields: " + newFields, newFields.distinctHashes > fields.size() * 0.99);
+        assertTrue("Methods: " + newMethods, newMethods.distinctHashes > methods.size() * 0.99);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: HashDistributionTest <srg files...>");
+            System.exit(1);
+        }
+        for (String arg : args) {
+            Mappings mappings = MappingsFormat.SEARGE_FORMAT.parseFile(Paths.get(arg));
+            System.out.println(arg + ":");
+            printComparison("classes", mappings.classes(), HashDistributionTest::legacyHash, JavaType::hashCode);
+            printComparison("fields", mappings.fields(), HashDistributionTest::legacyHash, FieldData::hashCode);
+            printComparison("methods", mappings.methods(), HashDistributionTest::legacyHash, MethodData::hashCode);
+        }
+    }
+
+    private static <T> void printComparison(String label, Collection<T> values, ToIntFunction<T> legacy, ToIntFunction<T> current) {
+        System.out.println("  " + label + " (" + values.size() + "):");
+        System.out.println("    before: " + Distribution.of(values, legacy));
+        System.out.println("    after:  " + Distribution.of(values, current));
+    }
+
+    private static List<String> obfuscatedNames(int count) {
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; names.size() < count; i++) {
+            StringBuilder builder = new StringBuilder();
+            int remaining = i;
+            do {
+                builder.append((char) ('a' + remaining % 26));
+                remaining = remaining / 26 - 1;
+            } while (remaining >= 0);
+            names.add(builder.reverse().toString());
+        }
+        return names;
+    }
+
+    //
+    // The hash codes used before they were mixed and cached
+    //
+
+    private static int legacyHash(JavaType type) {
+        switch (type.getSort()) {
+            case REFERENCE_TYPE:
+                return type.getName().hashCode();
+            case ARRAY_TYPE:
+                JavaType innermostType = type;
+                int dimensions = 0;
+                while (innermostType.isArrayType()) {
+                    innermostType = innermostType.getElementType();
+                    dimensions++;
+                }
+                return dimensions + ~legacyHash(innermostType);
+            default:
+                return type.hashCode();
+        }
+    }
+
+    private static int legacyHash(MethodSignature signature) {
+        int hash = signature.getReturnType() == PrimitiveType.VOID ? 0 : legacyHash(signature.getReturnType());
+        if (!signature.getParameterTypes().isEmpty()) {
+            int listHash = 1;
+            for (JavaType parameterType : signature.getParameterTypes()) {
+                listHash = 31 * listHash + legacyHash(parameterType);
+            }
+            hash ^= listHash;
+        }
+        return hash;
+    }
+
+    private static int legacyHash(FieldData field) {
+        return legacyHash(field.getDeclaringType()) ^ field.getName().hashCode();
+    }
+
+    private static int legacyHash(MethodData method) {
+        return legacyHash(method.getDeclaringType()) ^ method.getName().hashCode() ^ legacyHash(method.getSignature());
+    }
+
+    /**
+     * The distribution of hash codes in a power-of-two table, spread the same way as {@link java.util.HashMap}.
+     */
+    private static final class Distribution {
+        private final int size, distinctHashes, usedBuckets, maxBucket;
+        private final double averageProbes;
+
+        private Distribution(int size, int distinctHashes, int usedBuckets, int maxBucket, double averageProbes) {
+            this.size = size;
+            this.distinctHashes = distinctHashes;
+            this.usedBuckets = usedBuckets;
+            this.maxBucket = maxBucket;
+            this.averageProbes = averageProbes;
+        }
+
+        private static <T> Distribution of(Collection<T> values, ToIntFunction<T> hashFunction) {
+            int capacity = Integer.highestOneBit(Math.max(values.size() * 4 / 3, 1)) << 1;
+            int[] buckets = new int[capacity];
+            Set<Integer> distinct = new HashSet<>();
+            for (T value : values) {
+                int hash = hashFunction.applyAsInt(value);
+                distinct.add(hash);
+                buckets[(hash ^ (hash >>> 16)) & (capacity - 1)]++;
+            }
+            int usedBuckets = 0, maxBucket = 0;
+            long probes = 0;
+            for (int bucket : buckets) {
+                if (bucket > 0) usedBuckets++;
+                maxBucket = Math.max(maxBucket, bucket);
+                probes += (long) bucket * (bucket + 1) / 2; // Cost of finding every entry in the chain
+            }
+            return new Distribution(
+                    values.size(),
+                    distinct.size(),
+                    usedBuckets,
+                    maxBucket,
+                    values.isEmpty() ? 0 : (double) probes / values.size()
+            );
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%d distinct hashes, %d/%d buckets used, max chain %d, %.2f average probes",
+                    distinctHashes,
+                    usedBuckets,
+                    Integer.highestOneBit(Math.max(size * 4 / 3, 1)) << 1,
+                    maxBucket,
+                    averageProbes
+            );
+        }
+    }
+}
@@ -1,15 +1,43 @@
 package net.techcable.srglib;
 
+import net.techcable.srglib.format.IndexedMappings;
+import net.techcable.srglib.format.MappingsCache;
+import net.techcable.srglib.format.MappingsConverter;
+import net.techcable.srglib.format.MappingsFilter;
 import net.techcable.srglib.format.MappingsFormat;
+import net.techcable.srglib.format.MappingsLoader;
+import net.techcable.srglib.format.MappingsVisitor;
 import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.mappings.MutableMappings;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
 @RunWith(Parameterized.class)
 public class MappingsFormatTest {
@@ -45,11 +73,28 @@ public class MappingsFormatTest {
             "org/spigotmc/XRay deobfuscate ([BLjava/util/Set;)I doAFunkyDance",
             "org/spigotmc/XRay$Manager aquire ()Lorg/spigotmc/XRay; get"
     );
+    private static final List<String> TSRG_TEST_LINES = Arrays.asList(
+            "org/spigotmc/XRay net/techcable/xray/XRay",
+            "\tdeobfuscate ([BLjava/util/Set;)I doAFunkyDance",
+            "org/spigotmc/XRay$Manager net/techcable/xray/XRayManager",
+            "\taquire ()Lorg/spigotmc/XRay; get",
+            "org/spigotmc/XRay$Injector net/techcable/xray/injector/Injector",
+            "org/spigotmc/XRay$Injector$Manager net/techcable/xray/injector/InjectorManager",
+            "\ttaco seriousVariableName",
+            "obfs net/techcable/minecraft/NoHax",
+            "\ta (Lobf4;ID)Z isHacking",
+            "obf4 net/techcable/minecraft/Player",
+            "\ta dead",
+            "\tb blood",
+            "\tc health",
+            "\td speed"
+    );
     @Parameterized.Parameters
     public static Object[][] mappingFormats() {
         return new Object[][] {
                 new Object[] {  MappingsFormat.SEARGE_FORMAT, TEST_LINES },
-                new Object[] {  MappingsFormat.COMPACT_SEARGE_FORMAT, COMPACT_TEST_LINES }
+                new Object[] {  MappingsFormat.COMPACT_SEARGE_FORMAT, COMPACT_TEST_LINES },
+                new Object[] {  MappingsFormat.TSRG_FORMAT, TSRG_TEST_LINES }
         };
     }
     private final MappingsFormat mappingsFormat;
@@ -93,11 +138,256 @@ public class MappingsFormatTest {
         );
     }
 
+    @Test
+    public void testFindByName() {
+        Mappings parsed = mappingsFormat.parseLines(testLines);
+        for (Mappings result : new Mappings[] { parsed, parsed.snapshot() }) {
+            assertEquals("net/techcable/xray/XRay", result.findNewClassName("org/spigotmc/XRay"));
+            assertNull(result.findNewClassName("java/lang/String"));
+            assertEquals("isHacking", result.findNewMethodName("obfs", "a", "(Lobf4;ID)Z"));
+            assertNull(result.findNewMethodName("obfs", "a", "()V"));
+            assertEquals("dead", result.findNewFieldName("obf4", "a"));
+            assertNull(result.findNewFieldName("obf4", "z"));
+        }
+    }
+
     @Test
     public void testSerialize() {
         Mappings expected = mappingsFormat.parseLines(testLines);
         List<String> serialized = mappingsFormat.toLines(expected);
         Mappings actual = mappingsFormat.parseLines(serialized);
         assertEquals(expected, actual);
+        assertEquals(expected.digest(), actual.digest());
+        assertNotEquals(expected.digest(), expected.inverted().digest());
+    }
+
+    @Test
+    public void testVisit() throws IOException {
+        Mappings expected = mappingsFormat.parseLines(testLines);
+        Set<String> classes = new HashSet<>();
+        Set<String> fields = new HashSet<>();
+        Set<String> methods = new HashSet<>();
+        mappingsFormat.parse(new BufferedReader(new StringReader(String.join("\n", testLines))), new MappingsVisitor() {
+            @Override
+            public void visitClass(String original, String renamed) {
+                assertEquals(expected.getNewClass(JavaType.fromInternalName(original)).getInternalName(), renamed);
+                classes.add(original);
+            }
+
+            @Override
+            public void visitField(String owner, String name, @Nullable String renamedOwner, String renamedName) {
+                fields.add(owner + "/" + name);
+            }
+
+            @Override
+            public void visitMethod(String owner, String name, String descriptor, @Nullable String renamedOwner, String renamedName, @Nullable String renamedDescriptor) {
+                assertEquals(expected.findNewMethodName(owner, name, descriptor), renamedName);
+                methods.add(owner + "/" + name + descriptor);
+            }
+        });
+        assertEquals(expected.classes().stream().map(JavaType::getInternalName).collect(Collectors.toSet()), classes);
+        assertEquals(expected.fields().stream().map(FieldData::getInternalName).collect(Collectors.toSet()), fields);
+        assertEquals(expected.methods().size(), methods.size());
+    }
+
+    @Test
+    public void testTsrgPackages() throws IOException {
+        assumeTrue(mappingsFormat == MappingsFormat.TSRG_FORMAT);
+        List<String> packages = new ArrayList<>();
+        mappingsFormat.parse(new BufferedReader(new StringReader("net/minecraft/ net/mc/\na net/mc/A\n")), new MappingsVisitor() {
+            @Override
+            public void visitPackage(String original, String renamed) {
+                packages.add(original + " " + renamed);
+            }
+        });
+        assertEquals(Collections.singletonList("net/minecraft/ net/mc/"), packages);
+        Mappings mappings = mappingsFormat.parseLines("net/minecraft/ net/mc/", "a net/mc/A", "\tb c");
+        assertEquals("net/mc/A", mappings.findNewClassName("a"));
+        assertEquals(1, mappings.fields().size());
+    }
+
+    @Test
+    public void testParseFiltered() throws IOException {
+        Mappings expected = mappingsFormat.parseLines(testLines);
+        Mappings filtered = mappingsFormat.parse(
+                new BufferedReader(new StringReader(String.join("\n", testLines))),
+                MappingsFilter.prefixes("obf")
+        );
+        assertEquals(2, filtered.classes().size());
+        assertEquals(4, filtered.fields().size());
+        assertEquals(1, filtered.methods().size());
+        for (MethodData method : filtered.methods()) {
+            assertEquals(expected.getNewMethod(method), filtered.getNewMethod(method));
+        }
+        Mappings spigot = mappingsFormat.parse(
+                new BufferedReader(new StringReader(String.join("\n", testLines))),
+                MappingsFilter.packages("org.spigotmc")
+        );
+        assertEquals(4, spigot.classes().size());
+        assertEquals(1, spigot.fields().size());
+        assertEquals(2, spigot.methods().size());
+        assertEquals("net/techcable/xray/XRay", spigot.findNewClassName("org/spigotmc/XRay"));
+        assertNull(spigot.findNewClassName("obf4"));
+    }
+
+    @Test
+    public void testIndexed() throws IOException {
+        assumeTrue(mappingsFormat != MappingsFormat.TSRG_FORMAT); // Only supported for the SRG formats
+        Mappings expected = mappingsFormat.parseLines(testLines);
+        Path file = Files.createTempFile("mappings", ".srg");
+        try {
+            Files.write(file, testLines, StandardCharsets.UTF_8);
+            IndexedMappings indexed = IndexedMappings.open(file, mappingsFormat);
+            for (JavaType type : expected.classes()) {
+                assertEquals(expected.getNewClass(type), indexed.getNewClass(type));
+            }
+            for (MethodData method : expected.methods()) {
+                assertEquals(expected.getNewMethod(method), indexed.getNewMethod(method));
+            }
+            for (FieldData field : expected.fields()) {
+                assertEquals(expected.getNewField(field), indexed.getNewField(field));
+            }
+            assertEquals("isHacking", indexed.findNewMethodName("obfs", "a", "(Lobf4;ID)Z"));
+            assertNull(indexed.findNewMethodName("obfs", "a", "()V"));
+            assertNull(indexed.findNewClassName("java/lang/String"));
+            FieldData missing = FieldData.create(JavaType.fromInternalName("obf4"), "z");
+            assertEquals(FieldData.create(JavaType.fromInternalName("net/techcable/minecraft/Player"), "z"), indexed.getNewField(missing));
+            assertEquals(expected, indexed.snapshot());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testLoadAsync() throws Exception {
+        Mappings expected = mappingsFormat.parseLines(testLines);
+        Path file = Files.createTempFile("mappings", ".srg");
+        Path invertedFile = Files.createTempFile("inverted", ".srg");
+        try {
+            Files.write(file, testLines, StandardCharsets.UTF_8);
+            mappingsFormat.writeToFile(expected.inverted(), invertedFile);
+            MappingsLoader loader = new MappingsLoader();
+            assertEquals(expected, loader.load(file, mappingsFormat).get());
+            List<Mappings> all = loader.loadAll(Arrays.asList(file, invertedFile), mappingsFormat).get();
+            assertEquals(expected, all.get(0));
+            assertEquals(expected.inverted(), all.get(1));
+            Mappings roundTrip = loader.loadChained(Arrays.asList(file, invertedFile), mappingsFormat).get();
+            for (JavaType type : expected.classes()) {
+                assertEquals(type, roundTrip.getNewClass(type));
+            }
+        } finally {
+            Files.delete(file);
+            Files.delete(invertedFile);
+        }
+    }
+
+    @Test
+    public void testConvert() throws IOException {
+        assumeTrue(mappingsFormat != MappingsFormat.TSRG_FORMAT); // Only supported for the SRG formats
+        Mappings expected = mappingsFormat.parseLines(testLines);
+        MappingsFormat otherFormat = mappingsFormat == MappingsFormat.SEARGE_FORMAT
+                ? MappingsFormat.COMPACT_SEARGE_FORMAT
+                : MappingsFormat.SEARGE_FORMAT;
+        Path input = Files.createTempFile("mappings", ".srg");
+        Path output = Files.createTempFile("converted", ".srg");
+        try {
+            Files.write(input, testLines, StandardCharsets.UTF_8);
+            MappingsConverter.convert(input, mappingsFormat, output, otherFormat);
+            assertEquals(expected, otherFormat.parseFile(output));
+            MappingsConverter.convert(output, otherFormat, input, mappingsFormat);
+            assertEquals(expected, mappingsFormat.parseFile(input));
+            // Converting in place would truncate the input before reading it
+            try {
+                MappingsConverter.convert(input, mappingsFormat, input, otherFormat);
+                fail("Converted in place");
+            } catch (IllegalArgumentException ignored) {}
+            assertEquals(expected, mappingsFormat.parseFile(input));
+        } finally {
+            Files.delete(input);
+            Files.delete(output);
+        }
+    }
+
+    @Test
+    public void testWriteSorted() throws IOException {
+        Mappings expected = mappingsFormat.parseLines(testLines);
+        StringBuilder first = new StringBuilder(), second = new StringBuilder();
+        mappingsFormat.writeSorted(expected, first);
+        mappingsFormat.writeSorted(expected.inverted().inverted(), second);
+        assertEquals(first.toString(), second.toString());
+        assertEquals(expected, mappingsFormat.parseLines(first.toString().split("\n")));
+        // Large enough to be formatted in parallel
+        MutableMappings large = MutableMappings.create();
+        for (int i = 0; i < 20_000; i++) {
+            large.putClass(JavaType.fromInternalName("obf" + i), JavaType.fromInternalName("net/techcable/Class" + i));
+        }
+        StringBuilder output = new StringBuilder();
+        mappingsFormat.writeSorted(large, output);
+        List<String> lines = Arrays.asList(output.toString().split("\n"));
+        List<String> sortedLines = new ArrayList<>(lines);
+        Collections.sort(sortedLines);
+        assertEquals(sortedLines, lines);
+        assertEquals(large.snapshot(), mappingsFormat.parseLines(lines).snapshot());
+    }
+
+    @Test
+    public void testWriteToFile() throws IOException {
+        Mappings expected = mappingsFormat.parseLines(testLines);
+        Path file = Files.createTempFile("mappings", ".srg");
+        try {
+            Files.write(file, Collections.nCopies(1000, "stale contents that should be truncated"));
+            mappingsFormat.writeToFile(expected, file);
+            assertEquals(mappingsFormat.toLines(expected), Files.readAllLines(file, StandardCharsets.UTF_8));
+            assertEquals(expected, mappingsFormat.parseFile(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testGzip() throws Exception {
+        // Large enough to fill the buffer ring several times over
+        MutableMappings expected = MutableMappings.create();
+        for (int i = 0; i < 20_000; i++) {
+            expected.putClass(JavaType.fromInternalName("obf" + i), JavaType.fromInternalName("net/techcable/Class" + i));
+        }
+        Path file = Files.createTempFile("mappings", ".srg.gz");
+        try {
+            mappingsFormat.writeToFile(expected, file);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(file)),
+                    StandardCharsets.UTF_8
+            ))) {
+                assertEquals(mappingsFormat.toLines(expected), reader.lines().collect(Collectors.toList()));
+            }
+            assertEquals(expected.snapshot(), mappingsFormat.parseFile(file).snapshot());
+            assertEquals(expected.snapshot(), new MappingsLoader().load(file, mappingsFormat).get().snapshot());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testCache() throws IOException {
+        Mappings expected = mappingsFormat.parseLines(testLines);
+        Path directory = Files.createTempDirectory("mappings-cache");
+        Path file = directory.resolve("mappings.srg");
+        try {
+            MappingsCache cache = new MappingsCache(directory.resolve("cache"), 1024 * 1024);
+            mappingsFormat.writeToFile(expected, file);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+            assertEquals(expected, cache.load(file, mappingsFormat));
+            assertEquals(expected, cache.load(file, mappingsFormat)); // Cached
+            // Changing the file invalidates the cached mappings
+            Mappings changed = expected.inverted();
+            mappingsFormat.writeToFile(changed, file);
+            assertEquals(changed, cache.load(file, mappingsFormat));
+        } finally {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                    Files.delete(path);
+                }
+            }
+        }
     }
 }
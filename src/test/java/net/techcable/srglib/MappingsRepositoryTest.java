@@ -0,0 +1,101 @@
+package net.techcable.srglib;
+
+import net.techcable.srglib.format.MappingsFormat;
+import net.techcable.srglib.mappings.ImmutableMappings;
+import net.techcable.srglib.mappings.MappingsRepository;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class MappingsRepositoryTest {
+    @Test
+    public void testLoadOnce() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        MappingsRepository repository = new MappingsRepository((version, namespace) -> {
+            loads.incrementAndGet();
+            try {
+                started.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+            return MappingsFormat.SEARGE_FORMAT.parseLines("CL: a Entity");
+        }, Long.MAX_VALUE);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<ImmutableMappings>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> repository.get("1.12", "srg")));
+            }
+            started.countDown();
+            ImmutableMappings first = futures.get(0).get();
+            for (Future<ImmutableMappings> future : futures) {
+                assertSame(first, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testEvictionAndInterning() throws Exception {
+        MappingsRepository repository = new MappingsRepository((version, namespace) -> MappingsFormat.SEARGE_FORMAT.parseLines(
+                "CL: a Entity",
+                "FD: a/a Entity/dead"
+        ), 500);
+        ImmutableMappings first = repository.get("1.11", "srg");
+        ImmutableMappings second = repository.get("1.12", "srg");
+        // Names common to both versions are shared
+        assertSame(first.getNewClass("a"), second.getNewClass("a"));
+        assertSame(
+                first.getNewField(FieldData.create(JavaType.fromInternalName("a"), "a")),
+                second.getNewField(FieldData.create(JavaType.fromInternalName("a"), "a"))
+        );
+        // The budget only fits two versions, so the least recently used is evicted
+        repository.get("1.11", "srg");
+        repository.get("1.13", "srg");
+        assertNotNull(repository.getIfLoaded("1.11", "srg"));
+        assertNull(repository.getIfLoaded("1.12", "srg"));
+        assertNotNull(repository.getIfLoaded("1.13", "srg"));
+    }
+
+    @Test
+    public void testInvalidateWhileLoading() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1), invalidated = new CountDownLatch(1);
+        MappingsRepository repository = new MappingsRepository((version, namespace) -> {
+            loading.countDown();
+            try {
+                invalidated.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+            return MappingsFormat.SEARGE_FORMAT.parseLines("CL: a Entity");
+        }, Long.MAX_VALUE);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<ImmutableMappings> future = executor.submit(() -> repository.get("1.12", "srg"));
+            loading.await(10, TimeUnit.SECONDS);
+            repository.invalidate("1.12", "srg");
+            invalidated.countDown();
+            // The waiting caller still gets its result, but the stale mappings aren't kept
+            assertNotNull(future.get());
+            assertNull(repository.getIfLoaded("1.12", "srg"));
+            assertEquals(0, repository.getTotalWeight());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package net.techcable.srglib;
+
+import net.techcable.srglib.format.MappingsFormat;
+import net.techcable.srglib.format.MappingsVisitor;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.mappings.NamespacedMappings;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class NamespacedMappingsTest {
+    private static final String TINY = String.join("\n",
+            "tiny\t2\t0\tofficial\tintermediary\tnamed",
+            "\tsome-property\tvalue",
+            "c\ta\tnet/minecraft/class_1\tnet/minecraft/Entity",
+            "\tc\tA comment",
+            "\tf\tI\ta\tfield_1\thealth",
+            "\tm\t(Lb;)V\ta\tmethod_1\tsetWorld",
+            "\t\tp\t1\t\t\tworld",
+            "c\tb\tnet/minecraft/class_2\tnet/minecraft/World",
+            "\tm\t()La;\tb\tmethod_2\t",
+            "c\tc\tnet/minecraft/class_3\t",
+            ""
+    );
+
+    private static NamespacedMappings parse() throws IOException {
+        return MappingsFormat.TINY_V2_FORMAT.parseNamespaced(new BufferedReader(new StringReader(TINY)));
+    }
+
+    @Test
+    public void testProjection() throws IOException {
+        NamespacedMappings mappings = parse();
+        assertEquals(Arrays.asList("official", "intermediary", "named"), mappings.getNamespaces());
+        Mappings officialToNamed = mappings.getMappings("official", "named");
+        assertEquals(JavaType.fromInternalName("net/minecraft/Entity"), officialToNamed.getNewClass(JavaType.fromInternalName("a")));
+        // Missing names default to the first namespace
+        assertEquals(JavaType.fromInternalName("c"), officialToNamed.getNewClass(JavaType.fromInternalName("c")));
+        assertEquals("health", officialToNamed.findNewFieldName("a", "a"));
+        assertEquals("setWorld", officialToNamed.findNewMethodName("a", "a", "(Lb;)V"));
+        assertEquals(
+                MethodData.create(
+                        JavaType.fromInternalName("net/minecraft/World"),
+                        "b",
+                        MethodSignature.fromDescriptor("()Lnet/minecraft/Entity;")
+                ),
+                officialToNamed.getNewMethod(MethodData.create(
+                        JavaType.fromInternalName("b"),
+                        "b",
+                        MethodSignature.fromDescriptor("()La;")
+                ))
+        );
+        Mappings intermediaryToNamed = mappings.getMappings("intermediary", "named");
+        assertEquals("setWorld", intermediaryToNamed.findNewMethodName("net/minecraft/class_1", "method_1", "(Lnet/minecraft/class_2;)V"));
+        // Projections match chaining through the intermediate namespace
+        assertEquals(
+                Mappings.chain(mappings.getMappings("official", "intermediary"), intermediaryToNamed).snapshot(),
+                officialToNamed.snapshot()
+        );
+        assertSame(mappings.getMappings("named", "official"), officialToNamed.inverted());
+    }
+
+    @Test
+    public void testFormat() throws IOException {
+        NamespacedMappings mappings = parse();
+        StringBuilder output = new StringBuilder();
+        MappingsFormat.TINY_V2_FORMAT.writeNamespaced(mappings, output);
+        NamespacedMappings reparsed = MappingsFormat.TINY_V2_FORMAT.parseNamespaced(new BufferedReader(new StringReader(output.toString())));
+        for (String from : mappings.getNamespaces()) {
+            for (String to : mappings.getNamespaces()) {
+                assertEquals(mappings.getMappings(from, to), reparsed.getMappings(from, to));
+            }
+        }
+        // As a plain format, the first namespace maps to the second
+        assertEquals(mappings.getMappings("official", "intermediary"), MappingsFormat.TINY_V2_FORMAT.parseLines(TINY.split("\n")));
+        List<String> visited = new ArrayList<>();
+        MappingsFormat.TINY_V2_FORMAT.parse(new BufferedReader(new StringReader(TINY)), new MappingsVisitor() {
+            @Override
+            public void visitClass(String original, String renamed) {
+                visited.add(original + " " + renamed);
+            }
+
+            @Override
+            public void visitField(String owner, String name, @Nullable String renamedOwner, String renamedName) {
+                visited.add(owner + "/" + name + " " + renamedOwner + "/" + renamedName);
+            }
+
+            @Override
+            public void visitMethod(String owner, String name, String descriptor, @Nullable String renamedOwner, String renamedName, @Nullable String renamedDescriptor) {
+                visited.add(owner + "/" + name + descriptor + " " + renamedOwner + "/" + renamedName);
+            }
+        });
+        assertEquals(Arrays.asList(
+                "a net/minecraft/class_1",
+                "a/a net/minecraft/class_1/field_1",
+                "a/a(Lb;)V net/minecraft/class_1/method_1",
+                "b net/minecraft/class_2",
+                "b/b()La; net/minecraft/class_2/method_2",
+                "c net/minecraft/class_3"
+        ), visited);
+    }
+
+    @Test
+    public void testEscapedNames() throws IOException {
+        String tiny = String.join("\n",
+                "tiny\t2\t0\tofficial\tnamed",
+                "\tescaped-names",
+                "c\ta\tnet/minecraft/Entity",
+                "\tf\tI\ta\thealth\\0",
+                ""
+        );
+        NamespacedMappings mappings = MappingsFormat.TINY_V2_FORMAT.parseNamespaced(new BufferedReader(new StringReader(tiny)));
+        // Null chars are ignorable, so they're valid in names
+        assertEquals("health\0", mappings.getMappings("official", "named").findNewFieldName("a", "a"));
+        StringBuilder output = new StringBuilder();
+        MappingsFormat.TINY_V2_FORMAT.writeNamespaced(mappings, output);
+        assertEquals(tiny, output.toString());
+    }
+}
@@ -0,0 +1,99 @@
+package net.techcable.srglib;
+
+import net.techcable.srglib.format.LineNumberTable;
+import net.techcable.srglib.format.MappingsFormat;
+import net.techcable.srglib.mappings.Mappings;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ProGuardMappingsTest {
+    private static final String PROGUARD = String.join("\n",
+            "# compiler: R8",
+            "com.example.Entity -> a:",
+            "    int health -> a",
+            "    com.example.World world -> b",
+            "    1:3:void <init>(com.example.World) -> <init>",
+            "    4:4:void damage(int):20:20 -> a",
+            "    4:4:void update(float,long[][]):10:10 -> a",
+            "    5:7:void update(float,long[][]) -> a",
+            "    8:8:int com.example.Util.clamp(int):5:5 -> a",
+            "    8:8:void update(float,long[][]):12:12 -> a",
+            "    boolean isAlive() -> c",
+            "com.example.World -> b:",
+            "    com.example.Entity[] entities() -> a",
+            ""
+    );
+
+    private static Mappings parse(LineNumberTable.Builder lineNumbers) throws IOException {
+        return MappingsFormat.PROGUARD_FORMAT.parseWithLineNumbers(new BufferedReader(new StringReader(PROGUARD)), lineNumbers);
+    }
+
+    @Test
+    public void testMappings() throws IOException {
+        Mappings mappings = parse(LineNumberTable.builder());
+        assertEquals(mappings, MappingsFormat.PROGUARD_FORMAT.parseLines(PROGUARD.split("\n")));
+        assertEquals(JavaType.fromInternalName("a"), mappings.getNewClass(JavaType.fromInternalName("com/example/Entity")));
+        assertEquals("b", mappings.findNewFieldName("com/example/Entity", "world"));
+        assertEquals(
+                MethodData.create(JavaType.fromInternalName("a"), "a", MethodSignature.fromDescriptor("(F[[J)V")),
+                mappings.getNewMethod(MethodData.create(
+                        JavaType.fromInternalName("com/example/Entity"),
+                        "update",
+                        MethodSignature.fromDescriptor("(F[[J)V")
+                ))
+        );
+        assertEquals("a", mappings.findNewMethodName("com/example/World", "entities", "()[Lcom/example/Entity;"));
+        assertEquals("c", mappings.findNewMethodName("com/example/Entity", "isAlive", "()Z"));
+        // Inlined frames aren't renamed methods
+        assertNull(mappings.findNewMethodName("com/example/Entity", "damage", "(I)V"));
+    }
+
+    @Test
+    public void testLineNumbers() throws IOException {
+        LineNumberTable.Builder builder = LineNumberTable.builder();
+        parse(builder);
+        LineNumberTable table = builder.build();
+        assertEquals(5, table.size());
+        MethodData update = MethodData.create(
+                JavaType.fromInternalName("com/example/Entity"),
+                "update",
+                MethodSignature.fromDescriptor("(F[[J)V")
+        );
+        MethodData damage = MethodData.create(
+                JavaType.fromInternalName("com/example/Entity"),
+                "damage",
+                MethodSignature.fromDescriptor("(I)V")
+        );
+        MethodData clamp = MethodData.create(
+                JavaType.fromInternalName("com/example/Util"),
+                "clamp",
+                MethodSignature.fromDescriptor("(I)I")
+        );
+        assertEquals(Arrays.asList(frame(damage, 20), frame(update, 10)), frames(table.lookup("a", "a", 4)));
+        assertEquals(Collections.singletonList(frame(update, 6)), frames(table.lookup("a", "a", 6)));
+        assertEquals(Arrays.asList(frame(clamp, 5), frame(update, 12)), frames(table.lookup("a", "a", 8)));
+        assertEquals(Collections.emptyList(), table.lookup("a", "a", 9));
+        assertEquals(Collections.emptyList(), table.lookup("a", "c", 1));
+        // Ranges of the same method share it
+        assertSame(table.lookup("a", "a", 4).get(1).getMethod(), table.lookup("a", "a", 6).get(0).getMethod());
+    }
+
+    private static String frame(MethodData method, int line) {
+        return method + ":" + line;
+    }
+
+    private static List<String> frames(List<LineNumberTable.Frame> frames) {
+        return frames.stream().map(LineNumberTable.Frame::toString).collect(Collectors.toList());
+    }
+}
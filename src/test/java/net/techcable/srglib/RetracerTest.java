@@ -0,0 +1,74 @@
+package net.techcable.srglib;
+
+import net.techcable.srglib.format.LineNumberTable;
+import net.techcable.srglib.format.MappingsFormat;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.remap.Retracer;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+
+public class RetracerTest {
+    private static final String PROGUARD = String.join("\n",
+            "com.example.Entity -> a.a:",
+            "    4:4:void damage(int):20:20 -> a",
+            "    4:4:void update(float):10:10 -> a",
+            "    5:7:void update(float) -> a",
+            "    void remove() -> b",
+            "    void remove(boolean) -> b",
+            "com.example.World -> a.b:",
+            "    void tick() -> a",
+            ""
+    );
+    private static final String TRACE = String.join("\n",
+            "Exception in thread \"main\" java.lang.IllegalStateException: a.b is broken.",
+            "\tat a.a.a(SourceFile:4)",
+            "\tat a.a.a(SourceFile:6)",
+            "\tat a.a.b(SourceFile)",
+            "\tat app//a.b.a(Unknown Source)",
+            "\tat java.base/java.lang.Thread.run(Thread.java:833)",
+            "Skipped a and b, since 1.5 isn't a.c"
+    );
+
+    @Test
+    public void testRetrace() throws IOException {
+        LineNumberTable.Builder builder = LineNumberTable.builder();
+        Mappings mappings = MappingsFormat.PROGUARD_FORMAT.parseWithLineNumbers(new BufferedReader(new StringReader(PROGUARD)), builder);
+        Retracer retracer = new Retracer(mappings, builder.build());
+        assertEquals("com.example.World", retracer.retraceClass("a.b"));
+        assertEquals("remove", retracer.retraceMethod("a.a", "b"));
+        assertEquals(String.join("\n",
+                "Exception in thread \"main\" java.lang.IllegalStateException: com.example.World is broken.",
+                "\tat com.example.Entity.damage(SourceFile:20)",
+                "\tat com.example.Entity.update(SourceFile:10)",
+                "\tat com.example.Entity.update(SourceFile:6)",
+                "\tat com.example.Entity.remove(SourceFile)",
+                "\tat app//com.example.World.tick(Unknown Source)",
+                "\tat java.base/java.lang.Thread.run(Thread.java:833)",
+                "Skipped a and b, since 1.5 isn't a.c"
+        ), retracer.retrace(TRACE));
+        // Without line numbers, inlined frames can't be expanded
+        assertEquals(
+                "\tat com.example.Entity.update(SourceFile:4)",
+                new Retracer(mappings).retrace("\tat a.a.a(SourceFile:4)")
+        );
+    }
+
+    @Test
+    public void testLongLines() throws IOException {
+        Retracer retracer = new Retracer(MappingsFormat.PROGUARD_FORMAT.parseLines(PROGUARD.split("\n")));
+        StringBuilder input = new StringBuilder(), expected = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            input.append("a.a.b a.b ");
+            expected.append("com.example.Entity.remove com.example.World ");
+        }
+        StringWriter output = new StringWriter();
+        retracer.retrace(new StringReader(input.toString()), output);
+        assertEquals(expected.toString(), output.toString());
+    }
+}
@@ -0,0 +1,55 @@
+package net.techcable.srglib;
+
+import net.techcable.srglib.format.MappingsFormat;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.remap.SignatureRemapper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+@RunWith(Parameterized.class)
+public class SignatureRemapperTest {
+    private static final Mappings MAPPINGS = MappingsFormat.SEARGE_FORMAT.parseLines(
+            "CL: a net/minecraft/server/Entity",
+            "CL: b net/minecraft/server/World",
+            "CL: b$a net/minecraft/server/World$Chunk",
+            "CL: c net/minecraft/server/Registry"
+    ).snapshot();
+
+    @Parameterized.Parameters
+    public static Object[][] testData() {
+        return new Object[][] {
+                { "La;", "Lnet/minecraft/server/Entity;" },
+                { "[[La;", "[[Lnet/minecraft/server/Entity;" },
+                { "(ILa;[Lb;)La;", "(ILnet/minecraft/server/Entity;[Lnet/minecraft/server/World;)Lnet/minecraft/server/Entity;" },
+                { "Ljava/util/List<+La;>;", "Ljava/util/List<+Lnet/minecraft/server/Entity;>;" },
+                { "<T:La;U::Ljava/lang/Comparable<TT;>;>Ljava/lang/Object;Lc;",
+                        "<T:Lnet/minecraft/server/Entity;U::Ljava/lang/Comparable<TT;>;>Ljava/lang/Object;Lnet/minecraft/server/Registry;" },
+                { "<E:Ljava/lang/Exception;>(Ljava/util/Map<La;*>;)V^TE;^Lb;",
+                        "<E:Ljava/lang/Exception;>(Ljava/util/Map<Lnet/minecraft/server/Entity;*>;)V^TE;^Lnet/minecraft/server/World;" },
+                { "Lb<La;>.a<-Lc;>;", "Lnet/minecraft/server/World<Lnet/minecraft/server/Entity;>.Chunk<-Lnet/minecraft/server/Registry;>;" },
+                { "(Ljava/lang/String;[IJ)V", "(Ljava/lang/String;[IJ)V" },
+        };
+    }
+
+    private final String original, expected;
+
+    public SignatureRemapperTest(String original, String expected) {
+        this.original = original;
+        this.expected = expected;
+    }
+
+    @Test
+    public void testRemap() {
+        SignatureRemapper remapper = new SignatureRemapper(MAPPINGS);
+        assertEquals(expected, remapper.remapSignature(original));
+        // Reusing the remapper must give the same result
+        assertEquals(expected, remapper.remapSignature(original));
+        if (original.equals(expected)) {
+            assertSame(original, remapper.remapSignature(original));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package net.techcable.srglib;
+
+import net.techcable.srglib.format.MappingsFormat;
+import net.techcable.srglib.mappings.Mappings;
+import net.techcable.srglib.remap.TextRemapper;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+
+public class TextRemapperTest {
+    private static final Mappings MAPPINGS = MappingsFormat.COMPACT_SEARGE_FORMAT.parseLines(
+            "a net/minecraft/Entity",
+            "a$b net/minecraft/Entity$Position",
+            "b net/minecraft/World",
+            "c/d net/minecraft/util/Vec",
+            "a field_1 health",
+            "a func_1 (Lb;)V setWorld",
+            "b func_3 ()V tick",
+            "b func_2 ()V update",
+            "c/d func_2 ()V normalize"
+    );
+
+    @Test
+    public void testRemap() {
+        TextRemapper remapper = new TextRemapper(MAPPINGS);
+        assertEquals(
+                "Class.forName(\"net.minecraft.util.Vec\"); entity.health = 20; entity.setWorld(world);",
+                remapper.remap("Class.forName(\"c.d\"); entity.field_1 = 20; entity.func_1(world);")
+        );
+        // Internal names and nested classes
+        assertEquals(
+                "net/minecraft/util/Vec net.minecraft.Entity$Position",
+                remapper.remap("c/d a$b")
+        );
+        // Only whole names match, and classes never match the end of another name
+        assertEquals(
+                "field_10 xfield_1 e.c.d org/c/d abc",
+                remapper.remap("field_10 xfield_1 e.c.d org/c/d abc")
+        );
+        // Ambiguous members are left alone
+        assertEquals("world.func_2()", remapper.remap("world.func_2()"));
+        assertEquals("net.minecraft.World.tick", remapper.remap("b.func_3"));
+        assertEquals("func_1 net.minecraft.World", new TextRemapper(MAPPINGS, false).remap("func_1 b"));
+        assertEquals("nothing", new TextRemapper(Mappings.empty()).remap("nothing"));
+    }
+
+    @Test
+    public void testStream() throws IOException {
+        TextRemapper remapper = new TextRemapper(MAPPINGS);
+        StringBuilder input = new StringBuilder(), expected = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            input.append("c.d.field_1(a);\n");
+            expected.append("net.minecraft.util.Vec.health(net.minecraft.Entity);\n");
+        }
+        StringWriter output = new StringWriter();
+        remapper.remap(new StringReader(input.toString()), output);
+        assertEquals(expected.toString(), output.toString());
+    }
+}